@@ -30,7 +30,6 @@ import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.core.toolkit.CollKit;
 import org.aoju.bus.core.toolkit.ObjectKit;
 import org.aoju.bus.core.toolkit.StringKit;
-import org.aoju.bus.health.Platform;
 import org.aoju.bus.logger.Logger;
 import org.aoju.lancia.events.DefaultBrowserListener;
 import org.aoju.lancia.events.EventEmitter;
@@ -50,9 +49,11 @@ import org.aoju.lancia.option.LaunchOptions;
 import org.aoju.lancia.option.LaunchOptionsBuilder;
 import org.aoju.lancia.worker.Connection;
 import org.aoju.lancia.worker.exception.TimeoutException;
+import org.aoju.lancia.worker.metrics.StartupTimings;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
@@ -99,6 +100,10 @@ public class Browser extends EventEmitter {
     private final Process process;
     private final TaskQueue<String> screenshotTaskQueue;
     private final Function<Object, Object> closeCallback;
+    /**
+     * 启动浏览器时各阶段的耗时,连接到已有浏览器时为null
+     */
+    private volatile StartupTimings startupTimings;
 
     public Browser(Connection connection, List<String> contextIds, boolean ignoreHTTPSErrors,
                    Viewport defaultViewport, Process process, Function<Object, Object> closeCallback) {
@@ -113,7 +118,7 @@ public class Browser extends EventEmitter {
         }
         this.closeCallback = closeCallback;
         this.defaultContext = new Context(connection, this, "");
-        this.contexts = new HashMap<>();
+        this.contexts = new ConcurrentHashMap<>();
         if (CollKit.isNotEmpty(contextIds)) {
             for (String contextId : contextIds) {
                 contexts.putIfAbsent(contextId, new Context(this.connection, this, contextId));
@@ -193,6 +198,7 @@ public class Browser extends EventEmitter {
 
     /**
      * 设置浏览器参数
+     * 单例只有一个浏览器进程,需要多进程、按页面租用和单独替换崩溃实例时使用{@link BrowserPool}
      */
     public static synchronized Browser newInstance(LaunchOptions options) {
         try {
@@ -228,22 +234,20 @@ public class Browser extends EventEmitter {
                     .build();
         }
 
+        Process process;
         try {
             INSTANCE = Puppeteer.launch(options);
+            process = INSTANCE.process();
             INSTANCE = Puppeteer.connect(INSTANCE.wsEndpoint(), null, null);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
         LaunchOptions opts = options;
         INSTANCE.onDisconnected(b -> {
-            String command = "ps -ef | grep chrome | grep -v \"grep\" | awk '{print $2}' | xargs kill -9";
-            if (Platform.isWindows()) {
-                command = "taskkill /f /im chrome.exe";
-            }
+            // 只结束本实例的进程树,不影响同一台机器上的其他浏览器
             try {
-                Process process = Runtime.getRuntime().exec(command);
-                process.waitFor();
-            } catch (Exception e) {
+                Builder.killProcessTree(process);
+            } catch (RuntimeException e) {
                 Logger.error(e);
             }
             newInstance(opts);
@@ -299,6 +303,42 @@ public class Browser extends EventEmitter {
         return context;
     }
 
+    /**
+     * 异步创建隐身上下文,不阻塞调用线程
+     *
+     * @param proxyServer     上下文使用的代理,为空时使用浏览器的代理
+     * @param proxyBypassList 不走代理的地址列表,为空时忽略
+     * @return 创建完成时结束的future
+     */
+    public CompletableFuture<Context> createIncognitoBrowserContextAsync(String proxyServer, String proxyBypassList) {
+        Map<String, Object> params = new HashMap<>();
+        if (StringKit.isNotEmpty(proxyServer)) {
+            params.put("proxyServer", proxyServer);
+        }
+        if (StringKit.isNotEmpty(proxyBypassList)) {
+            params.put("proxyBypassList", proxyBypassList);
+        }
+        return this.connection.sendAsync("Target.createBrowserContext", params).thenApply(result -> {
+            String browserContextId = result.getString("browserContextId");
+            Context context = new Context(this.connection, this, browserContextId);
+            this.contexts.put(browserContextId, context);
+            return context;
+        });
+    }
+
+    /**
+     * 异步销毁上下文,上下文中的页面一起关闭
+     *
+     * @param contextId 上下文id
+     * @return 销毁完成时结束的future
+     */
+    public CompletableFuture<Void> disposeContextAsync(String contextId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("browserContextId", contextId);
+        return this.connection.sendAsync("Target.disposeBrowserContext", params)
+                .thenAccept(result -> this.contexts.remove(contextId));
+    }
+
     public void disposeContext(String contextId) {
         Map<String, Object> params = new HashMap<>();
         params.put("browserContextId", contextId);
@@ -520,4 +560,12 @@ public class Browser extends EventEmitter {
         return viewport;
     }
 
+    public StartupTimings getStartupTimings() {
+        return startupTimings;
+    }
+
+    public void setStartupTimings(StartupTimings startupTimings) {
+        this.startupTimings = startupTimings;
+    }
+
 }
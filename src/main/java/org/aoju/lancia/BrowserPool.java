@@ -0,0 +1,728 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia;
+
+import org.aoju.bus.core.lang.Assert;
+import org.aoju.bus.core.thread.NamedThreadFactory;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.option.BrowserPoolOptions;
+import org.aoju.lancia.option.LaunchOptions;
+import org.aoju.lancia.worker.exception.LaunchException;
+import org.aoju.lancia.worker.exception.TimeoutException;
+import org.aoju.lancia.worker.metrics.StartupTimings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 浏览器池,管理多个浏览器进程并按页面租出
+ * 每个浏览器同时租出的页面数有上限,完成指定次数的渲染或运行超过指定时间后,
+ * 等租出的页面全部归还再回收,崩溃的浏览器按PID单独结束并补充新的进程,不影响池中其他浏览器
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class BrowserPool implements AutoCloseable {
+
+    /**
+     * 启动失败后第一次重试的等待时间,单位是毫秒,之后每次失败翻倍
+     */
+    private static final long RETRY_INITIAL_DELAY = 1000;
+    /**
+     * 启动失败后重试的最长等待时间,单位是毫秒
+     */
+    private static final long RETRY_MAX_DELAY = 30000;
+
+    private final LaunchOptions launchOptions;
+
+    private final BrowserPoolOptions options;
+
+    private final NamedThreadFactory launchThreads = new NamedThreadFactory("browser-pool-", true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 有页面归还、浏览器加入或离开时通知等待租用的线程
+     */
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * 可以租出页面的浏览器,由{@link #lock}保护
+     */
+    private final List<Instance> instances = new ArrayList<>();
+
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder leaseWaitNanos = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder recycledCount = new LongAdder();
+    private final LongAdder crashedCount = new LongAdder();
+    private final LongAdder launchFailures = new LongAdder();
+    private final LongAccumulator maxLeaseWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder startupCount = new LongAdder();
+    private final LongAdder startupSpawnNanos = new LongAdder();
+    private final LongAdder startupEndpointNanos = new LongAdder();
+    private final LongAdder startupConnectNanos = new LongAdder();
+    private final LongAdder startupFirstTargetNanos = new LongAdder();
+    private volatile StartupTimings lastStartupTimings;
+
+    /**
+     * 正在启动和即将启动的浏览器数,不含等待重试的,由{@link #lock}保护
+     */
+    private int launching;
+
+    /**
+     * 连续启动失败的次数,决定重试的等待时间
+     */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * 最近一次启动失败的原因
+     */
+    private volatile Throwable lastLaunchFailure;
+
+    private volatile boolean closed;
+
+    /**
+     * 创建浏览器池并行启动{@link BrowserPoolOptions#getSize()}个浏览器,全部启动完成或失败后返回
+     *
+     * @param launchOptions 浏览器启动选项
+     * @param options       浏览器池选项
+     */
+    public BrowserPool(LaunchOptions launchOptions, BrowserPoolOptions options) {
+        Assert.notNull(launchOptions, "LaunchOptions must not be null");
+        this.launchOptions = launchOptions;
+        this.options = options == null ? new BrowserPoolOptions() : options;
+        Assert.isTrue(this.options.getSize() > 0, "BrowserPool size must be positive");
+        Assert.isTrue(this.options.getMaxPagesPerBrowser() > 0, "maxPagesPerBrowser must be positive");
+        this.lock.lock();
+        try {
+            this.launching = this.options.getSize();
+        } finally {
+            this.lock.unlock();
+        }
+        CountDownLatch launched = new CountDownLatch(this.options.getSize());
+        for (int i = 1; i < this.options.getSize(); i++) {
+            this.launchThreads.newThread(() -> {
+                try {
+                    this.launchOne();
+                } finally {
+                    launched.countDown();
+                }
+            }).start();
+        }
+        try {
+            this.launchOne();
+        } finally {
+            launched.countDown();
+        }
+        try {
+            launched.await();
+        } catch (InterruptedException e) {
+            // 其余浏览器继续在后台启动,租用时会等待它们
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 租用一个页面,等待时间取自{@link BrowserPoolOptions#getLeaseTimeout()}
+     *
+     * @return 租约,用完后关闭
+     */
+    public Lease lease() {
+        return this.lease(this.options.getLeaseTimeout());
+    }
+
+    /**
+     * 租用一个页面,优先选择租出页面最少的浏览器
+     *
+     * @param timeout 等待时间,单位是毫秒,小于等于0为一直等待
+     * @return 租约,用完后关闭
+     */
+    public Lease lease(long timeout) {
+        long start = System.nanoTime();
+        Instance instance;
+        List<Instance> retired = new ArrayList<>();
+        this.lock.lock();
+        try {
+            while (true) {
+                if (this.closed) {
+                    throw new IllegalStateException("BrowserPool is closed");
+                }
+                instance = this.select(retired);
+                if (instance != null) {
+                    instance.leased++;
+                    break;
+                }
+                if (this.instances.isEmpty() && this.launching == 0) {
+                    // 浏览器都启动失败了,正在等待重试,不必等到超时
+                    throw new LaunchException("No browser in BrowserPool is available, the last launch failed: "
+                            + (this.lastLaunchFailure == null ? "unknown" : this.lastLaunchFailure.getMessage()), this.lastLaunchFailure);
+                }
+                long remaining = timeout <= 0 ? Long.MAX_VALUE
+                        : TimeUnit.MILLISECONDS.toNanos(timeout) - (System.nanoTime() - start);
+                if (remaining <= 0) {
+                    this.leaseTimeouts.increment();
+                    throw new TimeoutException("Wait for a page from BrowserPool for " + timeout + " MILLISECONDS");
+                }
+                try {
+                    this.changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a page", e);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+            this.retire(retired);
+        }
+        long waited = System.nanoTime() - start;
+        this.leaseCount.increment();
+        this.leaseWaitNanos.add(waited);
+        this.maxLeaseWaitNanos.accumulate(waited);
+        try {
+            return new Lease(this, instance, instance.newPage());
+        } catch (RuntimeException e) {
+            this.release(instance, false);
+            throw e;
+        }
+    }
+
+    /**
+     * 选出租出页面最少的可用浏览器,顺便把到期的浏览器标记为回收
+     * 调用时持有{@link #lock},移除的浏览器的替补在这里计入{@link #launching}
+     *
+     * @param retired 已经空闲、可以立即回收的浏览器
+     * @return 浏览器,没有可用的时返回null
+     */
+    private Instance select(List<Instance> retired) {
+        Instance best = null;
+        long now = System.currentTimeMillis();
+        for (int i = this.instances.size() - 1; i >= 0; i--) {
+            Instance instance = this.instances.get(i);
+            if (!instance.retiring && this.options.getMaxUptime() > 0
+                    && now - instance.startedAt >= this.options.getMaxUptime()) {
+                instance.retiring = true;
+            }
+            if (instance.retiring) {
+                if (instance.leased == 0) {
+                    this.instances.remove(i);
+                    this.launching++;
+                    retired.add(instance);
+                }
+                continue;
+            }
+            if (instance.leased < this.options.getMaxPagesPerBrowser()
+                    && (best == null || instance.leased < best.leased)) {
+                best = instance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 归还页面
+     *
+     * @param instance 页面所在的浏览器
+     * @param rendered 是否计入渲染次数
+     */
+    private void release(Instance instance, boolean rendered) {
+        boolean retire = false;
+        this.lock.lock();
+        try {
+            instance.leased--;
+            if (rendered) {
+                instance.renders++;
+                if (this.options.getMaxRendersPerBrowser() > 0 && instance.renders >= this.options.getMaxRendersPerBrowser()) {
+                    instance.retiring = true;
+                }
+            }
+            if (instance.retiring && instance.leased == 0 && this.instances.remove(instance)) {
+                this.launching++;
+                retire = true;
+            }
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        if (retire) {
+            this.retire(instance);
+        }
+    }
+
+    private void retire(List<Instance> retired) {
+        for (Instance instance : retired) {
+            this.retire(instance);
+        }
+    }
+
+    /**
+     * 回收浏览器并启动一个新的补上,关闭浏览器和结束进程在启动线程上进行,不占用租用方的线程
+     *
+     * @param instance 已经从池中移除的浏览器
+     */
+    private void retire(Instance instance) {
+        this.recycledCount.increment();
+        Logger.info("Recycling browser pid {} after {} renders", instance.pid, instance.renders);
+        this.shutdown(instance);
+        this.replenish();
+    }
+
+    /**
+     * 在启动线程上关闭已经从池中移除的浏览器
+     *
+     * @param instance 浏览器
+     */
+    private void shutdown(Instance instance) {
+        this.launchThreads.newThread(instance::shutdown).start();
+    }
+
+    /**
+     * 浏览器断开连接,如果它还在池中说明不是主动回收的,按崩溃处理
+     *
+     * @param instance 浏览器
+     */
+    private void disconnected(Instance instance) {
+        boolean crashed;
+        this.lock.lock();
+        try {
+            crashed = this.instances.remove(instance);
+            if (crashed) {
+                this.launching++;
+                this.changed.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        if (crashed) {
+            this.crashedCount.increment();
+            Logger.warn("Browser pid {} disconnected with {} pages leased, replacing it", instance.pid, instance.leased);
+            this.shutdown(instance);
+            this.replenish();
+        }
+    }
+
+    /**
+     * 启动一个浏览器补上被移除的,调用前已在锁内计入{@link #launching},
+     * 移除与补充之间租用方不会误以为池中已经没有浏览器
+     */
+    private void replenish() {
+        if (this.closed) {
+            this.lock.lock();
+            try {
+                this.launching--;
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            return;
+        }
+        this.launchThreads.newThread(this::launchOne).start();
+    }
+
+    /**
+     * 启动失败后按指数退避重试;等待期间不计入{@link #launching},
+     * 池中没有浏览器时租用会立即失败而不是一直等待
+     */
+    private void retry() {
+        int failures = this.consecutiveFailures.incrementAndGet();
+        long delay = Math.min(RETRY_MAX_DELAY, RETRY_INITIAL_DELAY << Math.min(failures - 1, 5));
+        Logger.warn("Retrying browser launch for BrowserPool in {} ms after {} consecutive failures", delay, failures);
+        this.launchThreads.newThread(() -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            this.lock.lock();
+            try {
+                if (this.closed) {
+                    return;
+                }
+                this.launching++;
+            } finally {
+                this.lock.unlock();
+            }
+            this.launchOne();
+        }).start();
+    }
+
+    /**
+     * 启动一个浏览器加入池中,调用前已计入{@link #launching}
+     */
+    private void launchOne() {
+        Instance instance = null;
+        try {
+            Browser browser = this.launch();
+            this.recordStartup(browser.getStartupTimings());
+            instance = new Instance(browser, this.options.getMaxIdlePagesPerBrowser());
+            Instance added = instance;
+            browser.onDisconnected(event -> this.disconnected(added));
+            if (instance.pages != null) {
+                instance.pages.prewarm(this.options.getPrewarmPagesPerBrowser());
+            }
+        } catch (IOException | RuntimeException e) {
+            this.launchFailures.increment();
+            this.lastLaunchFailure = e;
+            Logger.error("Failed to launch browser for BrowserPool", e);
+        }
+        boolean rejected = false;
+        boolean replace = false;
+        this.lock.lock();
+        try {
+            this.launching--;
+            if (instance != null) {
+                if (this.closed || !instance.browser.isConnected()) {
+                    rejected = true;
+                    if (!this.closed) {
+                        replace = true;
+                        this.launching++;
+                    }
+                } else {
+                    this.instances.add(instance);
+                    this.consecutiveFailures.set(0);
+                }
+            }
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        if (instance == null) {
+            if (!this.closed) {
+                this.retry();
+            }
+        } else if (rejected) {
+            instance.shutdown();
+            if (replace) {
+                this.replenish();
+            }
+        }
+    }
+
+    private void recordStartup(StartupTimings timings) {
+        if (timings == null) {
+            return;
+        }
+        this.startupCount.increment();
+        this.startupSpawnNanos.add(timings.getSpawnNanos());
+        this.startupEndpointNanos.add(timings.getEndpointNanos());
+        this.startupConnectNanos.add(timings.getConnectNanos());
+        this.startupFirstTargetNanos.add(timings.getFirstTargetNanos());
+        this.lastStartupTimings = timings;
+    }
+
+    /**
+     * 启动浏览器进程
+     *
+     * @return 浏览器
+     * @throws IOException 启动失败
+     */
+    protected Browser launch() throws IOException {
+        return Puppeteer.launch(this.launchOptions);
+    }
+
+    /**
+     * 池中可以租出页面的浏览器数,不含正在启动的
+     *
+     * @return 浏览器数
+     */
+    public int getSize() {
+        this.lock.lock();
+        try {
+            return this.instances.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 正在启动的浏览器数
+     *
+     * @return 浏览器数
+     */
+    public int getLaunching() {
+        this.lock.lock();
+        try {
+            return this.launching;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 当前租出的页面数
+     *
+     * @return 页面数
+     */
+    public int getLeasedPages() {
+        this.lock.lock();
+        try {
+            int leased = 0;
+            for (Instance instance : this.instances) {
+                leased += instance.leased;
+            }
+            return leased;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 正在等待租用页面的线程数
+     *
+     * @return 线程数
+     */
+    public int getWaiting() {
+        this.lock.lock();
+        try {
+            return this.lock.getWaitQueueLength(this.changed);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long getLeaseCount() {
+        return this.leaseCount.sum();
+    }
+
+    public long getLeaseTimeoutCount() {
+        return this.leaseTimeouts.sum();
+    }
+
+    /**
+     * 平均租用等待时间
+     *
+     * @return 单位是毫秒
+     */
+    public double getAverageLeaseWaitMillis() {
+        long count = this.leaseCount.sum();
+        return count == 0 ? 0 : this.leaseWaitNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * 最长租用等待时间
+     *
+     * @return 单位是毫秒
+     */
+    public double getMaxLeaseWaitMillis() {
+        return this.maxLeaseWaitNanos.get() / 1e6;
+    }
+
+    public long getRecycledCount() {
+        return this.recycledCount.sum();
+    }
+
+    public long getCrashedCount() {
+        return this.crashedCount.sum();
+    }
+
+    public long getLaunchFailureCount() {
+        return this.launchFailures.sum();
+    }
+
+    /**
+     * 最近一次启动浏览器各阶段的耗时
+     *
+     * @return 启动耗时, 还没有浏览器启动完成时为null
+     */
+    public StartupTimings getLastStartupTimings() {
+        return this.lastStartupTimings;
+    }
+
+    /**
+     * 池中已启动浏览器各阶段的平均耗时,不含启动失败的
+     *
+     * @return 启动耗时, 没有调试地址来源
+     */
+    public StartupTimings getAverageStartupTimings() {
+        StartupTimings average = new StartupTimings();
+        long count = this.startupCount.sum();
+        if (count > 0) {
+            average.setSpawnNanos(this.startupSpawnNanos.sum() / count);
+            average.setEndpointNanos(this.startupEndpointNanos.sum() / count);
+            average.setConnectNanos(this.startupConnectNanos.sum() / count);
+            average.setFirstTargetNanos(this.startupFirstTargetNanos.sum() / count);
+        }
+        return average;
+    }
+
+    /**
+     * 关闭池中所有浏览器,未归还的页面随浏览器一起关闭
+     */
+    @Override
+    public void close() {
+        List<Instance> all;
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            all = new ArrayList<>(this.instances);
+            this.instances.clear();
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        for (Instance instance : all) {
+            instance.shutdown();
+        }
+    }
+
+    /**
+     * 池中的一个浏览器进程
+     */
+    private static class Instance {
+
+        private final Browser browser;
+
+        private final long pid;
+
+        private final long startedAt = System.currentTimeMillis();
+
+        private final AtomicBoolean shutdown = new AtomicBoolean();
+
+        /**
+         * 空闲页面池,未启用页面复用时为空
+         */
+        private final PagePool pages;
+
+        /**
+         * 以下字段由{@link BrowserPool#lock}保护
+         */
+        private int leased;
+
+        private int renders;
+
+        private boolean retiring;
+
+        Instance(Browser browser, int maxIdlePages) {
+            this.browser = browser;
+            this.pages = maxIdlePages > 0 ? new PagePool(browser, maxIdlePages) : null;
+            Process process = browser.process();
+            this.pid = process == null ? -1 : process.pid();
+        }
+
+        Page newPage() {
+            return this.pages != null ? this.pages.borrow() : this.browser.newPage();
+        }
+
+        /**
+         * 归还页面,启用页面复用时重置后留待下次租用
+         *
+         * @param page 页面
+         * @throws InterruptedException 关闭页面时被中断
+         */
+        void release(Page page) throws InterruptedException {
+            if (this.pages != null) {
+                this.pages.release(page);
+            } else if (!page.isClosed() && this.browser.isConnected()) {
+                page.close();
+            }
+        }
+
+        /**
+         * 关闭浏览器并按PID结束它的进程树,空闲页面随浏览器一起关闭
+         */
+        void shutdown() {
+            if (!this.shutdown.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                this.browser.close();
+            } catch (RuntimeException e) {
+                Logger.warn("Failed to close browser pid {}: {}", this.pid, e.getMessage());
+            } finally {
+                Builder.killProcessTree(this.browser.process());
+            }
+        }
+
+    }
+
+    /**
+     * 页面租约,关闭时归还或关闭页面并把名额还给浏览器池
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final BrowserPool pool;
+
+        private final Instance instance;
+
+        private final Page page;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(BrowserPool pool, Instance instance, Page page) {
+            this.pool = pool;
+            this.instance = instance;
+            this.page = page;
+        }
+
+        public Page getPage() {
+            return page;
+        }
+
+        public Browser getBrowser() {
+            return instance.browser;
+        }
+
+        /**
+         * 浏览器进程号,进程不是由本地启动时为-1
+         *
+         * @return PID
+         */
+        public long getPid() {
+            return instance.pid;
+        }
+
+        @Override
+        public void close() {
+            if (!this.released.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                this.instance.release(this.page);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                Logger.warn("Failed to close leased page: {}", e.getMessage());
+            } finally {
+                this.pool.release(this.instance, true);
+            }
+        }
+
+    }
+
+}
@@ -30,7 +30,6 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.core.lang.Normal;
-import org.aoju.bus.core.thread.NamedThreadFactory;
 import org.aoju.bus.core.toolkit.CollKit;
 import org.aoju.bus.core.toolkit.IoKit;
 import org.aoju.bus.core.toolkit.StringKit;
@@ -45,6 +44,11 @@ import org.aoju.lancia.nimble.runtime.CallFrame;
 import org.aoju.lancia.nimble.runtime.ExceptionDetails;
 import org.aoju.lancia.nimble.runtime.RemoteObject;
 import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.WorkerPool;
+import org.aoju.lancia.worker.domain.IODomain;
+import org.aoju.lancia.worker.domain.RuntimeDomain;
+import org.aoju.lancia.worker.exception.ProtocolException;
+import org.aoju.lancia.worker.metrics.RenderEvent;
 
 import java.io.*;
 import java.math.BigInteger;
@@ -83,6 +87,10 @@ public class Builder {
      * 临时文件夹前缀
      */
     public static final String PROFILE_PREFIX = "puppeteer_dev_chrome_profile-";
+    /**
+     * pipe连接命名管道所在临时文件夹前缀
+     */
+    public static final String PIPE_PREFIX = "lancia_pipe-";
     /**
      * 把浏览器版本存放到环境变量的字段
      */
@@ -287,10 +295,6 @@ public class Builder {
     private static final int RETRY_TIMES = 5;
     private static final String FAIL_RESULT = "-1";
     private static final Map<String, QueryHandler> QUERY_HANDLER = new HashMap<>();
-    /**
-     * 单线程，一个浏览器只能有一个trcing 任务
-     */
-    private static ExecutorService COMMON_EXECUTOR = null;
 
     public static final String toString(InputStream in) throws IOException {
         StringWriter wirter = null;
@@ -503,14 +507,23 @@ public class Builder {
     }
 
     public static String createProtocolError(JSONObject node) {
-        JSONObject methodNode = node.getJSONObject(RECV_MESSAGE_METHOD_PROPERTY);
-        JSONObject errNode = node.getJSONObject(RECV_MESSAGE_ERROR_PROPERTY);
-        String errorMsg = errNode.getString(RECV_MESSAGE_ERROR_MESSAGE_PROPERTY);
-        String method = Normal.EMPTY;
-        if (methodNode != null) {
-            method = methodNode.toJSONString();
+        String method = null;
+        if (node.get(RECV_MESSAGE_METHOD_PROPERTY) != null) {
+            method = JSON.toJSONString(node.get(RECV_MESSAGE_METHOD_PROPERTY));
         }
-        String message = "Protocol error " + method + ": " + errorMsg;
+        return createProtocolError(method, node.getJSONObject(RECV_MESSAGE_ERROR_PROPERTY));
+    }
+
+    /**
+     * 根据命令和回应中的错误信息生成错误描述
+     *
+     * @param method  命令
+     * @param errNode 错误信息
+     * @return 错误描述
+     */
+    public static String createProtocolError(String method, JSONObject errNode) {
+        String errorMsg = errNode.getString(RECV_MESSAGE_ERROR_MESSAGE_PROPERTY);
+        String message = "Protocol error " + (method == null ? Normal.EMPTY : method) + ": " + errorMsg;
         String dataNode = errNode.getString(RECV_MESSAGE_ERROR_DATA_PROPERTY);
         if (dataNode != null) {
             message += " " + dataNode;
@@ -613,17 +626,31 @@ public class Builder {
         if (isSync) {
             return Builder.commonExecutor().submit(() -> {
                 try {
-                    printPDF(client, handler, path);
+                    printPDF(client, handler, path, null);
                 } catch (IOException e) {
                     Logger.error("Method readProtocolStream error", e);
                 }
             });
         } else {
-            return printPDF(client, handler, path);
+            return printPDF(client, handler, path, null);
         }
     }
 
-    private static byte[] printPDF(CDPSession client, String handler, String path) throws IOException {
+    /**
+     * 在当前线程读取协议流，每读到一块数据记录到JFR事件中
+     *
+     * @param client  CDPSession
+     * @param handler 发送给websocket的参数
+     * @param path    文件存放的路径
+     * @param event   JFR事件
+     * @return 字节数组
+     * @throws IOException 操作文件的异常
+     */
+    public static final byte[] readProtocolStream(CDPSession client, String handler, String path, RenderEvent event) throws IOException {
+        return printPDF(client, handler, path, event);
+    }
+
+    private static byte[] printPDF(CDPSession client, String handler, String path, RenderEvent event) throws IOException {
         boolean eof = false;
         File file = null;
         BufferedOutputStream writer = null;
@@ -634,8 +661,7 @@ public class Builder {
             org.aoju.lancia.Builder.createNewFile(file);
         }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("handle", handler);
+        IODomain io = new IODomain(client);
         try {
 
             if (file != null) {
@@ -648,20 +674,21 @@ public class Builder {
             int byteLength = 0;
 
             while (!eof) {
-                JSONObject response = client.send("IO.read", params, true);
-                String eofNode = response.getString(RECV_MESSAGE_STREAM_EOF_PROPERTY);
-                Boolean base64EncodedNode = response.getBoolean(RECV_MESSAGE_BASE64ENCODED_PROPERTY);
-                String dataText = response.getString(RECV_MESSAGE_STREAM_DATA_PROPERTY);
+                IODomain.ReadResult response = io.read(handler);
+                String dataText = response.getData();
 
                 if (StringKit.isNotEmpty(dataText)) {
                     try {
-                        if (base64EncodedNode != null && base64EncodedNode) {
+                        if (response.getBase64Encoded()) {
                             bytes = Base64.getDecoder().decode(dataText);
                         } else {
                             bytes = dataText.getBytes();
                         }
                         bufs.add(bytes);
                         byteLength += bytes.length;
+                        if (event != null) {
+                            event.addChunk(bytes.length);
+                        }
                         //转成二进制流 io
                         if (file != null) {
                             ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
@@ -676,9 +703,9 @@ public class Builder {
                         IoKit.close(reader);
                     }
                 }
-                eof = eofNode == null || Boolean.parseBoolean(eofNode);
+                eof = response.getEof() == null || response.getEof();
             }
-            client.send("IO.close", params, true);
+            io.close(handler);
             return getBytes(bufs, byteLength);
         } finally {
             IoKit.close(writer);
@@ -719,10 +746,6 @@ public class Builder {
         return sb.toString();
     }
 
-    public static final Set<DefaultBrowserListener> getConcurrentSet() {
-        return new CopyOnWriteArraySet<>();
-    }
-
     public static final <T> BrowserListenerWrapper<T> addEventListener(EventEmitter emitter, String eventName, DefaultBrowserListener<T> handler) {
         emitter.addListener(eventName, handler);
         return new BrowserListenerWrapper<>(emitter, eventName, handler);
@@ -774,10 +797,13 @@ public class Builder {
     public static void releaseObject(CDPSession client, RemoteObject remoteObject, boolean isBlock) {
         if (StringKit.isEmpty(remoteObject.getObjectId()))
             return;
-        Map<String, Object> params = new HashMap<>();
-        params.put("objectId", remoteObject.getObjectId());
         try {
-            client.send("Runtime.releaseObject", params, isBlock);
+            RuntimeDomain runtime = new RuntimeDomain(client);
+            if (isBlock) {
+                runtime.releaseObject(remoteObject.getObjectId());
+            } else {
+                runtime.releaseObjectAsync(remoteObject.getObjectId());
+            }
         } catch (Exception e) {
             // Exceptions might happen in case of a page been navigated or closed.
             //重新导航到某个网页 或者页面已经关闭
@@ -787,31 +813,16 @@ public class Builder {
     }
 
     public static Object waitForEvent(EventEmitter eventEmitter, String eventName, Predicate predicate, int timeout, String abortPromise) throws InterruptedException {
-        CountDownLatch latch = new CountDownLatch(1);
-        final Object[] result = {null};
-        DefaultBrowserListener listener = new DefaultBrowserListener() {
-            @Override
-            public void onBrowserEvent(Object event) {
-                if (!predicate.test(event))
-                    return;
-                result[0] = event;
-                latch.countDown();
-            }
-        };
-        listener.setMethod(eventName);
-        BrowserListenerWrapper wrapper = addEventListener(eventEmitter, eventName, listener);
+        CompletableFuture<Object> future = eventEmitter.waitForEvent(eventName, null, predicate);
         try {
-            boolean await = latch.await(timeout, TimeUnit.MILLISECONDS);
-            if (!await) {
-                throw new RuntimeException(abortPromise);
-            }
-            return result[0];
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException(abortPromise);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         } finally {
-            List<BrowserListenerWrapper> removes = new ArrayList<>();
-            removes.add(wrapper);
-            removeEventListeners(removes);
+            future.cancel(false);
         }
-
     }
 
     public static final String evaluationString(String fun, PageEvaluateType type, Object... args) {
@@ -831,26 +842,56 @@ public class Builder {
     }
 
     /**
-     * 通用执行者
+     * 按PID强制结束进程及其子进程,只影响这个进程树,不会波及同一台机器上的其他浏览器
+     *
+     * @param process 进程,为空时忽略
+     */
+    public static void killProcessTree(Process process) {
+        if (process == null) {
+            return;
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * 通用执行者,用于内部任务
      *
      * @return 执行服务
      */
     public static final ExecutorService commonExecutor() {
-        if (COMMON_EXECUTOR == null) {
-            synchronized (Builder.class) {
-                if (COMMON_EXECUTOR == null) {
-                    String customNum = System.getProperty(Builder.COMMONT_THREAD_POOL_NUM);
-                    int threadNum = 0;
-                    if (StringKit.isNotEmpty(customNum)) {
-                        threadNum = Integer.parseInt(customNum);
-                    } else {
-                        threadNum = Math.max(1, Runtime.getRuntime().availableProcessors());
-                    }
-                    COMMON_EXECUTOR = new ThreadPoolExecutor(threadNum, threadNum, 30, TimeUnit.SECONDS, new LinkedBlockingDeque<>(), new NamedThreadFactory("common-pool-"));
-                }
+        return WorkerPool.internal();
+    }
+
+    /**
+     * 用户事件处理器执行者,与内部任务隔离
+     *
+     * @return 执行服务
+     */
+    public static final ExecutorService userExecutor() {
+        return WorkerPool.user();
+    }
+
+    /**
+     * 等待异步命令的结果，把执行异常还原成原本的运行时异常
+     *
+     * @param future 异步结果
+     * @param <T>    结果类型
+     * @return 结果
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new ProtocolException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException(e);
         }
-        return COMMON_EXECUTOR;
     }
 
     public static final CompletionService completionService() {
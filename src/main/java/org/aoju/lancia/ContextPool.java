@@ -0,0 +1,376 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia;
+
+import org.aoju.bus.core.lang.Assert;
+import org.aoju.bus.core.toolkit.CollKit;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.kernel.browser.Context;
+import org.aoju.lancia.option.ContextPoolOptions;
+import org.aoju.lancia.worker.exception.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 隐身上下文池,每个租约独占一个上下文,租户之间不共享cookie和存储
+ * 上下文连同代理和权限预先创建好,租约结束后在后台异步销毁并补充新的上下文,
+ * 创建和销毁都不在请求路径上
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class ContextPool implements AutoCloseable {
+
+    /**
+     * 等待上下文时检查池状态的间隔,单位是毫秒
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private final Browser browser;
+
+    private final ContextPoolOptions options;
+
+    private final BlockingQueue<Context> ready = new LinkedBlockingQueue<>();
+
+    private final Set<Context> leased = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 正在创建的上下文数,由this保护
+     */
+    private int creating;
+
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder disposedCount = new LongAdder();
+    private final LongAdder creationFailures = new LongAdder();
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder leaseWaitNanos = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * 创建上下文池并在后台创建{@link ContextPoolOptions#getSize()}个上下文
+     *
+     * @param browser 浏览器
+     * @param options 上下文池选项
+     */
+    public ContextPool(Browser browser, ContextPoolOptions options) {
+        Assert.notNull(browser, "Browser must not be null");
+        this.browser = browser;
+        this.options = options == null ? new ContextPoolOptions() : options;
+        Assert.isTrue(this.options.getSize() > 0, "ContextPool size must be positive");
+        Map<String, List<String>> permissions = this.options.getPermissions();
+        if (permissions != null) {
+            // 未知权限在这里失败,不会在创建上下文之后才失败
+            for (List<String> list : permissions.values()) {
+                if (list != null) {
+                    for (String permission : list) {
+                        Assert.isTrue(Context.isPermission(permission), "Unknown permission: " + permission);
+                    }
+                }
+            }
+        }
+        this.fill();
+    }
+
+    /**
+     * 租用一个上下文及其中的一个页面,等待时间取自{@link ContextPoolOptions#getLeaseTimeout()}
+     *
+     * @return 租约,用完后关闭
+     */
+    public Lease lease() {
+        return this.lease(this.options.getLeaseTimeout());
+    }
+
+    /**
+     * 租用一个上下文及其中的一个页面
+     *
+     * @param timeout 等待时间,单位是毫秒,小于等于0为一直等待,
+     *                浏览器断开或者上下文创建全部失败时立即抛出{@link IllegalStateException}
+     * @return 租约,用完后关闭
+     */
+    public Lease lease(long timeout) {
+        if (this.closed) {
+            throw new IllegalStateException("ContextPool is closed");
+        }
+        // 之前的创建失败时在这里重新补充
+        this.fill();
+        long start = System.nanoTime();
+        Context context = this.await(timeout, start);
+        this.leaseWaitNanos.add(System.nanoTime() - start);
+        this.leaseCount.increment();
+        this.leased.add(context);
+        this.fill();
+        try {
+            Page page = context.newPage();
+            Map<String, String> headers = this.options.getExtraHTTPHeaders();
+            if (headers != null && !headers.isEmpty()) {
+                page.setExtraHTTPHeaders(new HashMap<>(headers));
+            }
+            return new Lease(this, context, page);
+        } catch (RuntimeException e) {
+            this.recycle(context);
+            throw e;
+        }
+    }
+
+    /**
+     * 分段等待空闲上下文,每段结束时检查浏览器和池的状态并重新补充,
+     * 浏览器断开或者创建全部失败时立即失败,不会一直挂起
+     *
+     * @param timeout 等待时间,单位是毫秒,小于等于0为一直等待
+     * @param start   开始等待的时间
+     * @return 空闲上下文
+     */
+    private Context await(long timeout, long start) {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long failures = this.creationFailures.sum();
+        while (true) {
+            long wait = POLL_INTERVAL;
+            if (timeout > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    this.leaseTimeouts.increment();
+                    throw new TimeoutException("Wait for a context from ContextPool for " + timeout + " MILLISECONDS");
+                }
+                wait = Math.min(wait, remaining);
+            }
+            Context context;
+            try {
+                context = this.ready.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a context", e);
+            }
+            if (context != null) {
+                return context;
+            }
+            if (this.closed) {
+                throw new IllegalStateException("ContextPool is closed");
+            }
+            if (!this.browser.isConnected()) {
+                throw new IllegalStateException("Browser disconnected while waiting for a context");
+            }
+            synchronized (this) {
+                // 等待期间的创建全部失败,没有可以等的上下文
+                if (this.creating == 0 && this.ready.isEmpty() && this.creationFailures.sum() > failures) {
+                    throw new IllegalStateException("Failed to create incognito context for ContextPool");
+                }
+            }
+            this.fill();
+        }
+    }
+
+    /**
+     * 补充空闲上下文,已有的和正在创建的加起来不超过{@link ContextPoolOptions#getSize()}
+     */
+    private synchronized void fill() {
+        // 先算出缺口,创建同步失败时不会在这里反复重试
+        int missing = this.options.getSize() - this.ready.size() - this.creating;
+        for (int i = 0; i < missing && !this.closed; i++) {
+            this.creating++;
+            this.create().whenComplete((context, error) -> {
+                if (error != null) {
+                    this.creationFailures.increment();
+                    Logger.error("Failed to create incognito context for ContextPool", error);
+                } else {
+                    this.createdCount.increment();
+                    if (this.closed) {
+                        this.dispose(context);
+                    } else {
+                        this.ready.offer(context);
+                    }
+                }
+                synchronized (this) {
+                    this.creating--;
+                }
+            });
+        }
+    }
+
+    /**
+     * 创建上下文并授予权限,授权失败时销毁上下文
+     *
+     * @return 创建完成时结束的future
+     */
+    private CompletableFuture<Context> create() {
+        return this.browser.createIncognitoBrowserContextAsync(this.options.getProxyServer(), this.options.getProxyBypassList())
+                .thenCompose(context -> {
+                    Map<String, List<String>> permissions = this.options.getPermissions();
+                    if (permissions == null || permissions.isEmpty()) {
+                        return CompletableFuture.completedFuture(context);
+                    }
+                    List<CompletableFuture<?>> grants = new ArrayList<>(permissions.size());
+                    try {
+                        for (Map.Entry<String, List<String>> entry : permissions.entrySet()) {
+                            if (CollKit.isNotEmpty(entry.getValue())) {
+                                grants.add(context.overridePermissionsAsync(entry.getKey(), new ArrayList<>(entry.getValue())));
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        // 授权命令没能发出,刚创建的上下文不会进入池中,在这里销毁
+                        this.dispose(context);
+                        CompletableFuture<Context> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(new IllegalStateException("Failed to grant permissions", e));
+                        return failed;
+                    }
+                    return CompletableFuture.allOf(grants.toArray(new CompletableFuture[0]))
+                            .handle((result, error) -> {
+                                if (error != null) {
+                                    this.dispose(context);
+                                    throw new IllegalStateException("Failed to grant permissions", error);
+                                }
+                                return context;
+                            });
+                });
+    }
+
+    /**
+     * 租约结束,在后台销毁上下文并补充新的
+     *
+     * @param context 上下文
+     */
+    private void recycle(Context context) {
+        this.leased.remove(context);
+        this.dispose(context);
+        this.fill();
+    }
+
+    private void dispose(Context context) {
+        if (!this.browser.isConnected()) {
+            return;
+        }
+        this.disposedCount.increment();
+        context.closeAsync().whenComplete((result, error) -> {
+            if (error != null) {
+                Logger.warn("Failed to dispose incognito context {}: {}", context.getId(), error.getMessage());
+            }
+        });
+    }
+
+    public int getReadyCount() {
+        return this.ready.size();
+    }
+
+    public synchronized int getCreatingCount() {
+        return this.creating;
+    }
+
+    public int getLeasedCount() {
+        return this.leased.size();
+    }
+
+    public long getCreatedCount() {
+        return this.createdCount.sum();
+    }
+
+    public long getDisposedCount() {
+        return this.disposedCount.sum();
+    }
+
+    public long getCreationFailureCount() {
+        return this.creationFailures.sum();
+    }
+
+    public long getLeaseCount() {
+        return this.leaseCount.sum();
+    }
+
+    public long getLeaseTimeoutCount() {
+        return this.leaseTimeouts.sum();
+    }
+
+    /**
+     * 平均租用等待时间
+     *
+     * @return 单位是毫秒
+     */
+    public double getAverageLeaseWaitMillis() {
+        long count = this.leaseCount.sum();
+        return count == 0 ? 0 : this.leaseWaitNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * 销毁所有空闲上下文,租出的上下文在租约结束时销毁
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        Context context;
+        while ((context = this.ready.poll()) != null) {
+            this.dispose(context);
+        }
+    }
+
+    /**
+     * 上下文租约,关闭时销毁整个上下文,其中的页面、cookie和存储一起丢弃
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final ContextPool pool;
+
+        private final Context context;
+
+        private final Page page;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(ContextPool pool, Context context, Page page) {
+            this.pool = pool;
+            this.context = context;
+            this.page = page;
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public Page getPage() {
+            return page;
+        }
+
+        @Override
+        public void close() {
+            if (this.released.compareAndSet(false, true)) {
+                this.pool.recycle(this.context);
+            }
+        }
+
+    }
+
+}
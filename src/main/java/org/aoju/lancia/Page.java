@@ -32,7 +32,9 @@ import com.alibaba.fastjson.TypeReference;
 import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.core.toolkit.CollKit;
 import org.aoju.bus.core.toolkit.StringKit;
+import org.aoju.lancia.events.BrowserListener;
 import org.aoju.lancia.events.DefaultBrowserListener;
+import org.aoju.lancia.events.Event;
 import org.aoju.lancia.events.EventEmitter;
 import org.aoju.lancia.events.EventHandler;
 import org.aoju.lancia.events.Events;
@@ -61,11 +63,14 @@ import org.aoju.lancia.nimble.performance.PageMetrics;
 import org.aoju.lancia.nimble.runtime.*;
 import org.aoju.lancia.nimble.webAuthn.Credentials;
 import org.aoju.lancia.option.*;
+import org.aoju.lancia.worker.Batch;
 import org.aoju.lancia.worker.CDPSession;
 import org.aoju.lancia.worker.Connection;
 import org.aoju.lancia.worker.exception.PageCrashException;
 import org.aoju.lancia.worker.exception.TerminateException;
+import org.aoju.lancia.worker.domain.PageDomain;
 import org.aoju.lancia.worker.exception.TimeoutException;
+import org.aoju.lancia.worker.metrics.RenderEvent;
 
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
@@ -117,12 +122,28 @@ public class Page extends EventEmitter {
     private final EmulationManager emulationManager;
     private final Tracing tracing;
     private final Map<String, Function<List<?>, Object>> pageBindings;
+    /**
+     * 绑定名称对应的注入脚本id,重置页面时用于移除
+     */
+    private final Map<String, String> bindingScripts = new HashMap<>();
     private final Coverage coverage;
     private final TaskQueue<String> screenshotTaskQueue;
     private final Map<String, Worker> workers;
+    /**
+     * 已经启用的按需域
+     */
+    private final Set<String> enabledDomains = ConcurrentHashMap.newKeySet();
     private boolean closed;
     private boolean javascriptEnabled;
     private Viewport viewport;
+    /**
+     * 模拟过媒体类型或媒体特性,复用前清除
+     */
+    private volatile boolean mediaEmulated;
+    /**
+     * 设置过复用时无法可靠还原的覆盖(用户代理、时区、地理位置、CSP、视力障碍),这样的页面不再复用
+     */
+    private volatile boolean overridesTouched;
 
     public Page(CDPSession client, Target target, boolean ignoreHTTPSErrors, TaskQueue<String> screenshotTaskQueue) {
         super();
@@ -398,9 +419,16 @@ public class Page extends EventEmitter {
      */
     public static Page create(CDPSession client, Target target, boolean ignoreHTTPSErrors, Viewport viewport, TaskQueue<String> screenshotTaskQueue) throws ExecutionException, InterruptedException {
         Page page = new Page(client, target, ignoreHTTPSErrors, screenshotTaskQueue);
-        page.initialize();
+        Batch batch = client.batch();
+        page.initialize(batch);
+        boolean needsReload = false;
         if (viewport != null) {
-            page.setViewport(viewport);
+            needsReload = page.emulationManager.emulateViewport(viewport, batch);
+            page.viewport = viewport;
+        }
+        batch.join();
+        if (needsReload) {
+            page.reload(null);
         }
         return page;
     }
@@ -815,6 +843,7 @@ public class Page extends EventEmitter {
      * @param enabled 是否绕过页面的安全政策
      */
     public void setBypassCSP(boolean enabled) {
+        this.overridesTouched = true;
         Map<String, Object> params = new HashMap<>();
         params.put("enabled", enabled);
         this.client.send("Page.setBypassCSP", params, true);
@@ -950,6 +979,7 @@ public class Page extends EventEmitter {
             throw new IllegalArgumentException("Invalid latitude " + latitude + ": precondition -90 <= LATITUDE <= 90 failed.");
         if (accuracy < 0)
             throw new IllegalArgumentException("Invalid accuracy " + accuracy + ": precondition 0 <= ACCURACY failed.");
+        this.overridesTouched = true;
         Map<String, Object> params = new HashMap<>();
         params.put("longitude", longitude);
         params.put("latitude", latitude);
@@ -1002,6 +1032,8 @@ public class Page extends EventEmitter {
     }
 
     private String screenshotTask(String format, ScreenshotOptions options) throws IOException, ExecutionException, InterruptedException {
+        RenderEvent event = new RenderEvent();
+        event.begin();
         Map<String, Object> params = new HashMap<>();
         params.put("targetId", this.target.getTargetId());
         this.client.send("Target.activateTarget", params, true);
@@ -1032,22 +1064,24 @@ public class Page extends EventEmitter {
         if (shouldSetDefaultBackground) {
             setTransparentBackgroundColor();
         }
-        params.clear();
-        params.put("format", format);
-        params.put("quality", options.getQuality());
-        params.put("clip", clip);
-        JSONObject result = this.client.send("Page.captureScreenshot", params, true);
+        PageDomain.CaptureScreenshotResult result = new PageDomain(this.client).captureScreenshot(format, options.getQuality(), clip);
         if (shouldSetDefaultBackground) {
             this.client.send("Emulation.setDefaultBackgroundColorOverride", null, true);
         }
         if (options.getFullPage() && this.viewport != null)
             this.setViewport(this.viewport);
-        String data = result.getString("data");
+        String data = result.getData();
 //            byte[] buffer = decoder.decodeBuffer(data);
         byte[] buffer = Base64.getDecoder().decode(data);
         if (StringKit.isNotEmpty(options.getPath())) {
             Files.write(Paths.get(options.getPath()), buffer, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
         }
+        if (event.shouldCommit()) {
+            event.setKind("screenshot");
+            event.setFormat(format);
+            event.setBytes(buffer.length);
+            event.commit();
+        }
         return data;
     }
 
@@ -1196,16 +1230,133 @@ public class Page extends EventEmitter {
         if (needsReload) this.reload(null);
     }
 
+    /**
+     * 把页面恢复到刚创建时的状态以便复用,不关闭target
+     * 先关闭请求拦截等网络覆盖,以免导航被暂停而无人继续,再等分发通道处理完已经到达的事件后移除监听器,
+     * 借出期间的导航事件都已交给记录源的监听器,导航到about:blank后,
+     * 再在一个批量命令中移除绑定、额外请求头、访问过的源的存储,恢复脚本执行、媒体模拟和视口
+     *
+     * @param viewport 要恢复的视口,为空时清除视口模拟
+     * @param origins  本次使用中访问过的源,清除它们的cookie和存储,在移除监听器之后才读取
+     * @throws InterruptedException 异常
+     */
+    void reset(Viewport viewport, Collection<String> origins) throws InterruptedException {
+        Batch network = this.client.batch();
+        this.frameManager.networkManager().resetOverrides(network);
+        network.join();
+        // 批量命令可能为空,再等分发通道处理完已经到达的事件
+        CompletableFuture<Void> drained = new CompletableFuture<>();
+        this.client.getDispatchLane().execute(() -> drained.complete(null));
+        Builder.join(drained);
+        this.removeAllListeners();
+        this.goTo("about:blank");
+        Batch batch = this.client.batch();
+        for (String name : this.pageBindings.keySet()) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("name", name);
+            batch.add("Runtime.removeBinding", params);
+            String identifier = this.bindingScripts.get(name);
+            if (identifier != null) {
+                Map<String, Object> script = new HashMap<>();
+                script.put("identifier", identifier);
+                batch.add("Page.removeScriptToEvaluateOnNewDocument", script);
+            }
+        }
+        this.pageBindings.clear();
+        this.bindingScripts.clear();
+        this.frameManager.networkManager().clearExtraHTTPHeaders(batch);
+        if (!this.javascriptEnabled) {
+            this.javascriptEnabled = true;
+            Map<String, Object> params = new HashMap<>();
+            params.put("value", false);
+            batch.add("Emulation.setScriptExecutionDisabled", params);
+        }
+        if (this.mediaEmulated) {
+            this.mediaEmulated = false;
+            Map<String, Object> params = new HashMap<>();
+            params.put("media", "");
+            params.put("features", Collections.emptyList());
+            batch.add("Emulation.setEmulatedMedia", params);
+        }
+        for (String origin : origins) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("origin", origin);
+            params.put("storageTypes", "cookies,local_storage,indexeddb,websql,service_workers,cache_storage");
+            batch.add("Storage.clearDataForOrigin", params);
+        }
+        if (viewport != null && viewport != this.viewport) {
+            this.emulationManager.emulateViewport(viewport, batch);
+        } else if (viewport == null && this.viewport != null) {
+            this.emulationManager.clearViewport(batch);
+        }
+        this.viewport = viewport;
+        batch.join();
+    }
+
+    /**
+     * 是否设置过复用时无法还原的覆盖
+     *
+     * @return true为不应复用
+     */
+    boolean isOverridesTouched() {
+        return this.overridesTouched;
+    }
+
     protected void initialize() {
-        frameManager.initialize();
+        Batch batch = this.client.batch();
+        this.initialize(batch);
+        batch.join();
+    }
+
+    /**
+     * 把页面初始化命令加入批量命令
+     *
+     * @param batch 批量命令
+     */
+    protected void initialize(Batch batch) {
+        frameManager.initialize(batch);
         Map<String, Object> params = new HashMap<>();
         params.put("autoAttach", true);
         params.put("waitForDebuggerOnStart", false);
         params.put("flatten", true);
-        this.client.send("Target.setAutoAttach", params, false);
-        params.clear();
-        this.client.send("Performance.enable", params, false);
-        this.client.send("Log.enable", params, true);
+        batch.addBestEffort("Target.setAutoAttach", params);
+        Connection connection = this.client.getConnection();
+        if (connection == null || !connection.getConnectionOptions().getEnableDomainsOnDemand()) {
+            this.enabledDomains.add("Performance");
+            this.enabledDomains.add("Log");
+            batch.addBestEffort("Performance.enable", new HashMap<>());
+            batch.addBestEffort("Log.enable", new HashMap<>());
+        }
+    }
+
+    /**
+     * 监听需要额外域的事件时按需启用对应的域
+     */
+    @Override
+    public Event addListener(String method, BrowserListener<?> listener, boolean isOnce) {
+        Event event = super.addListener(method, listener, isOnce);
+        if (Events.PAGE_CONSOLE.getName().equals(method)) {
+            this.enableDomain("Log");
+        } else if (Events.PAGE_METRICS.getName().equals(method)) {
+            this.enableDomain("Performance");
+        }
+        return event;
+    }
+
+    /**
+     * 启用域,每个域只启用一次;不等待回应,同一会话的后续命令仍在其之后执行
+     *
+     * @param domain 域名称
+     */
+    private void enableDomain(String domain) {
+        if (!this.enabledDomains.add(domain)) {
+            return;
+        }
+        this.client.sendAsync(domain + ".enable", null).whenComplete((result, error) -> {
+            if (error != null) {
+                this.enabledDomains.remove(domain);
+            }
+        });
     }
 
     private void addConsoleMessage(String type, List<JSHandle> args, StackTrace stackTrace) {
@@ -1369,6 +1520,7 @@ public class Page extends EventEmitter {
      * @param userAgent userAgent的值
      */
     public void setUserAgent(String userAgent) {
+        this.overridesTouched = true;
         this.frameManager.networkManager().setUserAgent(userAgent);
     }
 
@@ -1407,6 +1559,7 @@ public class Page extends EventEmitter {
      * @param timezoneId 时区id
      */
     public void emulateTimezone(String timezoneId) {
+        this.overridesTouched = true;
         try {
             Map<String, Object> params = new HashMap<>();
             if (timezoneId == null) {
@@ -1427,6 +1580,7 @@ public class Page extends EventEmitter {
      * @param type 视力障碍类型
      */
     public void emulateVisionDeficiency(VisionDeficiency type) {
+        this.overridesTouched = true;
         Map<String, Object> params = new HashMap<>();
         params.put("type", type.getValue());
         this.client.send("Emulation.setEmulatedVisionDeficiency", params, true);
@@ -1491,7 +1645,10 @@ public class Page extends EventEmitter {
         this.client.send("Runtime.addBinding", params, true);
         params.clear();
         params.put("source", expression);
-        this.client.send("Page.addScriptToEvaluateOnNewDocument", params, true);
+        JSONObject script = this.client.send("Page.addScriptToEvaluateOnNewDocument", params, true);
+        if (script != null) {
+            this.bindingScripts.put(name, script.getString("identifier"));
+        }
         List<Frame> frames = this.frames();
         if (frames.isEmpty()) {
             return;
@@ -1611,6 +1768,7 @@ public class Page extends EventEmitter {
      * @throws InvocationTargetException 异常
      */
     public Metrics metrics() throws IllegalAccessException, IntrospectionException, InvocationTargetException {
+        this.enableDomain("Performance");
         JSONObject responseNode = this.client.send("Performance.getMetrics", null, true);
         List<Metric> metrics = new ArrayList<>();
         List<JSONObject> list = responseNode.getObject("metrics", new TypeReference<List<JSONObject>>() {
@@ -1696,12 +1854,20 @@ public class Page extends EventEmitter {
         params.put("marginRight", marginRight);
         params.put("pageRanges", options.getPageRanges());
         params.put("preferCSSPageSize", options.getPreferCSSPageSize());
+        RenderEvent event = new RenderEvent();
+        event.begin();
         JSONObject result = this.client.send("Page.printToPDF", params, true);
 
         if (result != null) {
             String handle = result.getString(Builder.RECV_MESSAGE_STREAM_PROPERTY);
             Assert.isTrue(handle != null, "Page.printToPDF result has no stream handle. Please check your chrome version. result=" + result);
-            return (byte[]) Builder.readProtocolStream(this.client, handle, options.getPath(), false);
+            byte[] data = Builder.readProtocolStream(this.client, handle, options.getPath(), event);
+            if (event.shouldCommit()) {
+                event.setKind("pdf");
+                event.setFormat("pdf");
+                event.commit();
+            }
+            return data;
         }
         throw new ProtocolException("Page.printToPDF no response");
     }
@@ -1896,6 +2062,7 @@ public class Page extends EventEmitter {
      */
     public void emulateMedia(String type) {
         Assert.isTrue("screen".equals(type) || "print".equals(type) || type == null, "Unsupported media type: " + type);
+        this.mediaEmulated = true;
         Map<String, Object> params = new HashMap<>();
         params.put("media", type);
         this.client.send("Emulation.setEmulatedMedia", params, true);
@@ -1903,6 +2070,7 @@ public class Page extends EventEmitter {
 
     public void emulateMediaFeatures(List<MediaFeature> features) {
         Pattern pattern = Pattern.compile("^prefers-(?:color-scheme|reduced-motion)$");
+        this.mediaEmulated = true;
         Map<String, Object> params = new HashMap<>();
         if (features == null) {
             params.put("features", null);
@@ -0,0 +1,329 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia;
+
+import org.aoju.bus.core.lang.Assert;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.events.DefaultBrowserListener;
+import org.aoju.lancia.events.Events;
+import org.aoju.lancia.kernel.page.Frame;
+import org.aoju.lancia.kernel.page.Viewport;
+import org.aoju.lancia.worker.Connection;
+
+import java.net.URI;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 页面池,保留已经初始化的页面,归还时重置状态而不是关闭target
+ * 新建页面需要创建target、等待targetCreated、附加会话并初始化各个域,重置只需要一次导航和一个批量命令
+ * 借出前校验页面,会话已断开或已关闭的页面直接丢弃;设置过用户代理、时区等无法还原的覆盖的页面归还时关闭
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class PagePool implements AutoCloseable {
+
+    private final Supplier<Page> factory;
+
+    private final int maxIdle;
+
+    /**
+     * 空闲页面,后进先出,最近用过的页面优先借出
+     */
+    private final Deque<Pooled> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final Map<Page, Pooled> borrowed = new ConcurrentHashMap<>();
+
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder reusedCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder resetFailures = new LongAdder();
+    private final LongAdder resetCount = new LongAdder();
+    private final LongAdder resetNanos = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param factory 新建页面的方法,例如{@link Browser#newPage()}
+     * @param maxIdle 最多保留的空闲页面数
+     */
+    public PagePool(Supplier<Page> factory, int maxIdle) {
+        Assert.notNull(factory, "Page factory must not be null");
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * 在浏览器的默认上下文中新建页面
+     *
+     * @param browser 浏览器
+     * @param maxIdle 最多保留的空闲页面数
+     */
+    public PagePool(Browser browser, int maxIdle) {
+        this(browser::newPage, maxIdle);
+    }
+
+    /**
+     * 预先创建页面,空闲页面数不超过上限
+     *
+     * @param count 页面数
+     */
+    public void prewarm(int count) {
+        for (int i = 0; i < count && !this.closed && this.idleCount.get() < this.maxIdle; i++) {
+            this.offer(this.create());
+        }
+    }
+
+    /**
+     * 借出一个页面,没有可用的空闲页面时新建
+     *
+     * @return 页面
+     */
+    public Page borrow() {
+        if (this.closed) {
+            throw new IllegalStateException("PagePool is closed");
+        }
+        Pooled pooled;
+        while ((pooled = this.idle.pollFirst()) != null) {
+            this.idleCount.decrementAndGet();
+            if (isUsable(pooled.page)) {
+                this.reusedCount.increment();
+                break;
+            }
+            this.discard(pooled);
+        }
+        if (pooled == null) {
+            pooled = this.create();
+        }
+        pooled.track();
+        this.borrowed.put(pooled.page, pooled);
+        return pooled.page;
+    }
+
+    /**
+     * 归还页面,重置成功且空闲页面未满时留待复用,否则关闭
+     *
+     * @param page 借出的页面
+     */
+    public void release(Page page) {
+        Pooled pooled = this.borrowed.remove(page);
+        Assert.notNull(pooled, "Page was not borrowed from this pool");
+        if (this.closed || !isUsable(page) || page.isOverridesTouched() || this.idleCount.get() >= this.maxIdle) {
+            this.discard(pooled);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            page.reset(pooled.viewport, pooled.origins());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.resetFailures.increment();
+            this.discard(pooled);
+            return;
+        } catch (RuntimeException e) {
+            Logger.warn("Failed to reset page, closing it: {}", e.getMessage());
+            this.resetFailures.increment();
+            this.discard(pooled);
+            return;
+        }
+        this.resetCount.increment();
+        this.resetNanos.add(System.nanoTime() - start);
+        this.offer(pooled);
+    }
+
+    private Pooled create() {
+        Page page = this.factory.get();
+        this.createdCount.increment();
+        return new Pooled(page);
+    }
+
+    private void offer(Pooled pooled) {
+        this.idle.offerFirst(pooled);
+        this.idleCount.incrementAndGet();
+        // 与close并发时由这里关闭刚放回的页面
+        if (this.closed) {
+            this.drain();
+        }
+    }
+
+    private void discard(Pooled pooled) {
+        this.discardedCount.increment();
+        if (isUsable(pooled.page)) {
+            try {
+                pooled.page.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                Logger.warn("Failed to close pooled page: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        Pooled pooled;
+        while ((pooled = this.idle.pollFirst()) != null) {
+            this.idleCount.decrementAndGet();
+            this.discard(pooled);
+        }
+    }
+
+    /**
+     * 页面未关闭且会话仍然连着
+     *
+     * @param page 页面
+     * @return true为可用
+     */
+    private static boolean isUsable(Page page) {
+        if (page.isClosed()) {
+            return false;
+        }
+        Connection connection = page.client().getConnection();
+        return connection != null && !connection.getClosed();
+    }
+
+    public int getIdleCount() {
+        return this.idleCount.get();
+    }
+
+    public int getBorrowedCount() {
+        return this.borrowed.size();
+    }
+
+    public long getCreatedCount() {
+        return this.createdCount.sum();
+    }
+
+    public long getReusedCount() {
+        return this.reusedCount.sum();
+    }
+
+    public long getDiscardedCount() {
+        return this.discardedCount.sum();
+    }
+
+    public long getResetFailureCount() {
+        return this.resetFailures.sum();
+    }
+
+    /**
+     * 平均重置耗时
+     *
+     * @return 单位是毫秒
+     */
+    public double getAverageResetMillis() {
+        long count = this.resetCount.sum();
+        return count == 0 ? 0 : this.resetNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * 关闭所有空闲页面,借出的页面归还时关闭
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.drain();
+    }
+
+    /**
+     * 池中的页面及其初始状态
+     */
+    private static class Pooled {
+
+        private final Page page;
+
+        /**
+         * 创建时的视口,重置时恢复
+         */
+        private final Viewport viewport;
+
+        /**
+         * 本次借出期间访问过的源
+         */
+        private final Set<String> origins = ConcurrentHashMap.newKeySet();
+
+        Pooled(Page page) {
+            this.page = page;
+            this.viewport = page.viewport();
+        }
+
+        /**
+         * 借出时开始记录访问过的源,监听器在重置时随页面的其他监听器一起移除
+         * 使用内部监听器,在会话的分发通道上同步记录,重置前已经处理的导航都不会漏掉
+         */
+        void track() {
+            this.origins.clear();
+            DefaultBrowserListener<Frame> listener = new DefaultBrowserListener<>() {
+                @Override
+                public void onBrowserEvent(Frame frame) {
+                    Pooled.this.add(frame.url());
+                }
+            };
+            listener.setMethod(Events.PAGE_FRAMENAVIGATED.getName());
+            this.page.addListener(listener.getMethod(), listener);
+        }
+
+        Set<String> origins() {
+            for (Frame frame : this.page.frames()) {
+                this.add(frame.url());
+            }
+            return this.origins;
+        }
+
+        private void add(String url) {
+            String origin = origin(url);
+            if (origin != null) {
+                this.origins.add(origin);
+            }
+        }
+
+        private static String origin(String url) {
+            if (url == null || !(url.startsWith("http:") || url.startsWith("https:"))) {
+                return null;
+            }
+            try {
+                URI uri = URI.create(url);
+                if (uri.getHost() == null) {
+                    return null;
+                }
+                return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+    }
+
+}
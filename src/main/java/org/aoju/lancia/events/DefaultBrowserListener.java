@@ -34,7 +34,7 @@ public class DefaultBrowserListener<T> implements BrowserListener<T> {
 
     private String method;
 
-    private Class<T> resolveType;
+    private Class<?> resolveType;
 
     private EventHandler<T> handler;
 
@@ -51,7 +51,7 @@ public class DefaultBrowserListener<T> implements BrowserListener<T> {
         return resolveType;
     }
 
-    public void setResolveType(Class<T> resolveType) {
+    public void setResolveType(Class<?> resolveType) {
         this.resolveType = resolveType;
     }
 
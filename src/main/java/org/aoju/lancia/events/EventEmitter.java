@@ -28,17 +28,19 @@ package org.aoju.lancia.events;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import org.aoju.bus.core.lang.Assert;
-import org.aoju.bus.core.toolkit.CollKit;
 import org.aoju.bus.logger.Logger;
 import org.aoju.lancia.Builder;
+import org.aoju.lancia.worker.DispatchLane;
 
-import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 
 /**
  * 事件发布，事件监听，模仿nodejs的EventEmitter
@@ -49,10 +51,41 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class EventEmitter implements Event {
 
-    private final Map<String, Set<DefaultBrowserListener>> listenerMap = new ConcurrentHashMap<>();
+    /**
+     * 监听器类声明的事件类型,按类缓存,注册时解析一次
+     */
+    private static final ClassValue<Class<?>> DECLARED_TYPES = new ClassValue<>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            Type genericSuperclass = type.getGenericSuperclass();
+            if (genericSuperclass instanceof ParameterizedType parameterizedType) {
+                Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
+                if (actualTypeArguments.length == 1) {
+                    Type argument = actualTypeArguments[0];
+                    if (argument instanceof ParameterizedType) {
+                        argument = ((ParameterizedType) argument).getRawType();
+                    }
+                    if (argument instanceof Class) {
+                        return (Class<?>) argument;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    /**
+     * 订阅索引,每个事件对应一个监听器列表,收到消息时据此决定是否需要解析
+     */
+    private final Map<String, ListenerList> listenerMap = new ConcurrentHashMap<>();
 
     private final AtomicInteger listenerCount = new AtomicInteger(0);
 
+    /**
+     * 用户监听器的串行分发通道,保证同一个发布者的事件按顺序交给用户
+     */
+    private volatile DispatchLane userLane;
+
     /**
      * 也是监听事件，不过这个方法只要在本项目内部使用，如果你想要自己监听事件，请使用{@link EventEmitter#on(String, EventHandler)}
      *
@@ -69,15 +102,14 @@ public class EventEmitter implements Event {
             return this;
         }
         listener.setIsOnce(isOnce);
-        Set<DefaultBrowserListener> browserListeners = this.listenerMap.get(method);
-        if (browserListeners == null) {
-            Set<DefaultBrowserListener> listeners = Builder.getConcurrentSet();
-            this.listenerMap.putIfAbsent(method, listeners);
-            listeners.add(listener);
-        } else {
-            browserListeners.add(listener);
+        // 子类声明的泛型类型优先于setResolveType设置的类型
+        Class<?> declaredType = DECLARED_TYPES.get(listener.getClass());
+        if (declaredType != null) {
+            listener.setResolveType(declaredType);
+        }
+        if (this.listenerMap.computeIfAbsent(method, key -> new ListenerList()).add(listener)) {
+            listenerCount.incrementAndGet();
         }
-        listenerCount.incrementAndGet();
         return this;
     }
 
@@ -90,56 +122,61 @@ public class EventEmitter implements Event {
      */
     @Override
     public Event removeListener(String method, BrowserListener<?> listener) {
-        Set<DefaultBrowserListener> listeners = this.listenerMap.get(method);
-        if (CollKit.isNotEmpty(listeners)) {
-            listeners.remove(listener);
+        ListenerList listeners = this.listenerMap.get(method);
+        if (listeners != null && listeners.remove(listener)) {
             listenerCount.decrementAndGet();
         }
         return this;
     }
 
+    /**
+     * 移除所有监听器,正在等待的{@link #waitForEvent}不受影响
+     */
+    public void removeAllListeners() {
+        for (ListenerList listeners : this.listenerMap.values()) {
+            AtomicReferenceArray<DefaultBrowserListener> slots = listeners.snapshot();
+            for (int i = 0; i < slots.length(); i++) {
+                DefaultBrowserListener listener = slots.get(i);
+                if (listener != null && listeners.remove(listener)) {
+                    listenerCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
     @Override
     public void emit(String method, Object params) {
         Assert.notNull(method, "method must not be null");
-        Set<DefaultBrowserListener> listeners = this.listenerMap.get(method);
-        if (CollKit.isEmpty(listeners))
+        ListenerList listeners = this.listenerMap.get(method);
+        if (listeners == null || !listeners.isSubscribed())
             return;
-        for (DefaultBrowserListener listener : listeners) {
+        Payload payload = new Payload(params);
+        AtomicReferenceArray<DefaultBrowserListener> slots = listeners.snapshot();
+        for (int i = 0; i < slots.length(); i++) {
+            DefaultBrowserListener listener = slots.get(i);
+            if (listener == null) {
+                continue;
+            }
             if (!listener.getIsAvaliable()) {
-                listeners.remove(listener);
-                listenerCount.decrementAndGet();
+                if (listeners.remove(listener)) {
+                    listenerCount.decrementAndGet();
+                }
                 continue;
             }
             if (listener.getIsOnce()) {
-                listeners.remove(listener);
+                // 一次性监听器只有移除成功的线程才能执行
+                if (!listeners.remove(listener)) {
+                    continue;
+                }
                 listenerCount.decrementAndGet();
             }
-            try {
-                Object event;
-                if (params != null) {
-                    Class<?> resolveType = null;
-                    Type genericSuperclass = listener.getClass().getGenericSuperclass();
-                    if (genericSuperclass instanceof ParameterizedType parameterizedType) {
-                        Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
-                        if (actualTypeArguments.length == 1) {
-                            resolveType = (Class) actualTypeArguments[0];
-                        }
-                    } else {
-                        resolveType = listener.getResolveType();
-                    }
-
-                    if (JSONObject.class.isAssignableFrom(params.getClass())) {
-                        event = readJsonObject(resolveType, (JSONObject) params);
-                    } else {
-                        event = params;
-                    }
-                } else {
-                    event = null;
+            invokeListener(listener, payload.as(listener.getResolveType()));
+        }
+        if (listeners.hasWaiters()) {
+            for (EventWaiter<?> waiter : listeners.waiters()) {
+                if (waiter.offer(payload.as(waiter.getType()))) {
+                    listeners.discard(waiter);
                 }
-                invokeListener(listener, event);
-            } catch (IOException e) {
-                Logger.error("publish event error:", e);
-                return;
             }
         }
     }
@@ -153,9 +190,7 @@ public class EventEmitter implements Event {
     private void invokeListener(DefaultBrowserListener listener, Object event) {
         try {
             if (listener.getIsSync()) {
-                Builder.commonExecutor().submit(() -> {
-                    listener.onBrowserEvent(event);
-                });
+                this.userLane().execute(() -> listener.onBrowserEvent(event));
             } else {
                 listener.onBrowserEvent(event);
             }
@@ -166,34 +201,41 @@ public class EventEmitter implements Event {
         }
     }
 
+    private DispatchLane userLane() {
+        DispatchLane lane = this.userLane;
+        if (lane == null) {
+            synchronized (this.listenerMap) {
+                lane = this.userLane;
+                if (lane == null) {
+                    lane = new DispatchLane(Builder::userExecutor);
+                    this.userLane = lane;
+                }
+            }
+        }
+        return lane;
+    }
+
     /**
-     * 如果clazz属于JsonNode.class则不用转换类型，如果不是，则将jsonNode转化成clazz类型对象
+     * 是否有监听者,查询订阅索引,用于在解析事件之前判断是否需要解析
      *
-     * @param clazz  目标类型
-     * @param params event的具体内容
-     * @param <T>    具体类型
-     * @return T
-     * @throws IOException 转化失败抛出的异常
+     * @param method 事件
+     * @return true为有监听者
      */
-    private <T> T readJsonObject(Class<T> clazz, JSONObject params) throws IOException {
-        if (params == null) {
-            throw new IllegalArgumentException(
-                    "Failed converting null response to clazz " + clazz.getName());
-        }
-        if (JSONObject.class.isAssignableFrom(clazz)) {
-            return (T) params;
-        }
-        return JSON.toJavaObject(params, clazz);
+    public boolean hasListener(String method) {
+        ListenerList listeners = this.listenerMap.get(method);
+        return listeners != null && listeners.isSubscribed();
     }
 
     public int getListenerCount(String method) {
-        Set<DefaultBrowserListener> listeners = this.listenerMap.get(method);
+        ListenerList listeners = this.listenerMap.get(method);
         int i = 0;
-        if (CollKit.isEmpty(listeners)) {
+        if (listeners == null) {
             return 0;
         }
-        for (DefaultBrowserListener listener : listeners) {
-            if (!listener.getIsAvaliable()) {
+        AtomicReferenceArray<DefaultBrowserListener> slots = listeners.snapshot();
+        for (int j = 0; j < slots.length(); j++) {
+            DefaultBrowserListener listener = slots.get(j);
+            if (listener == null || !listener.getIsAvaliable()) {
                 continue;
             }
             i++;
@@ -201,8 +243,29 @@ public class EventEmitter implements Event {
         return i;
     }
 
+    /**
+     * 等待下一个满足条件的事件,等待者不注册监听器,事件到达时在发布线程上直接判断
+     * 调用方超时或不再需要时取消返回的future即可移除等待者
+     *
+     * @param method      事件名称
+     * @param payloadType 事件内容的类型,为null时按原样交给predicate
+     * @param predicate   事件条件,为null时接受第一个事件
+     * @param <T>         事件内容的类型
+     * @return 事件的future
+     */
+    public <T> CompletableFuture<T> waitForEvent(String method, Class<T> payloadType, Predicate<? super T> predicate) {
+        Assert.notNull(method, "method must not be null");
+        ListenerList listeners = this.listenerMap.computeIfAbsent(method, key -> new ListenerList());
+        EventWaiter<T> waiter = new EventWaiter<>(payloadType, predicate);
+        listeners.await(waiter);
+        CompletableFuture<T> future = waiter.getFuture();
+        future.whenComplete((event, throwable) -> listeners.discard(waiter));
+        return future;
+    }
+
     /**
      * 监听事件，可用于自定义事件监听,用户监听的事件都是在别的线程中异步执行的
+     * 同一个发布者的事件按发布顺序逐个交给用户监听器,监听器中不要等待同一发布者的其他事件
      *
      * @param method  事件名称
      * @param handler 事件的处理器
@@ -216,6 +279,42 @@ public class EventEmitter implements Event {
         return this.addListener(method, listener);
     }
 
+    /**
+     * 按指定类型监听事件,事件内容反序列化为payloadType后交给处理器
+     *
+     * @param payloadType 事件内容的类型
+     * @param method      事件名称
+     * @param handler     事件的处理器
+     * @param <T>         事件内容的类型
+     * @return Event
+     */
+    public <T> Event on(Class<T> payloadType, String method, EventHandler<T> handler) {
+        DefaultBrowserListener<T> listener = new DefaultBrowserListener<>();
+        listener.setIsSync(true);
+        listener.setMethod(method);
+        listener.setResolveType(payloadType);
+        listener.setHandler(handler);
+        return this.addListener(method, listener);
+    }
+
+    /**
+     * 按指定类型一次性监听事件
+     *
+     * @param payloadType 事件内容的类型
+     * @param method      事件名称
+     * @param handler     事件处理器
+     * @param <T>         事件内容的类型
+     * @return Event
+     */
+    public <T> Event once(Class<T> payloadType, String method, EventHandler<T> handler) {
+        DefaultBrowserListener<T> listener = new DefaultBrowserListener<>();
+        listener.setIsSync(true);
+        listener.setMethod(method);
+        listener.setResolveType(payloadType);
+        listener.setHandler(handler);
+        return this.addListener(method, listener, true);
+    }
+
     /**
      * 一次性事件监听，用于自定义事件监听，与{@link EventEmitter#on(String, EventHandler)}的区别就是on会一直监听
      *
@@ -242,4 +341,45 @@ public class EventEmitter implements Event {
         return this.removeListener(method, listener);
     }
 
+    /**
+     * 一次发布的事件内容,同一事件对每种目标类型只反序列化一次
+     * 监听器通常共用一种类型,多数情况不会用到map
+     */
+    private static final class Payload {
+
+        private final Object params;
+        private final JSONObject json;
+        private Class<?> lastType;
+        private Object lastEvent;
+        private Map<Class<?>, Object> converted;
+
+        Payload(Object params) {
+            this.params = params;
+            this.json = params instanceof JSONObject ? (JSONObject) params : null;
+        }
+
+        Object as(Class<?> type) {
+            if (this.json == null || type == null || type.isInstance(this.json)) {
+                return this.params;
+            }
+            if (type == this.lastType) {
+                return this.lastEvent;
+            }
+            if (this.lastType != null) {
+                if (this.converted == null) {
+                    this.converted = new HashMap<>();
+                }
+                this.converted.put(this.lastType, this.lastEvent);
+            }
+            Object event = this.converted == null ? null : this.converted.get(type);
+            if (event == null) {
+                event = JSON.toJavaObject(this.json, type);
+            }
+            this.lastType = type;
+            this.lastEvent = event;
+            return event;
+        }
+
+    }
+
 }
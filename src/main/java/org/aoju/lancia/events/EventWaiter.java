@@ -0,0 +1,81 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.events;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * 一次性事件等待者,第一个满足条件的事件完成future
+ * 在发布事件的线程上直接判断,不经过用户分发通道
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+final class EventWaiter<T> {
+
+    private final Class<T> type;
+    private final Predicate<? super T> predicate;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    EventWaiter(Class<T> type, Predicate<? super T> predicate) {
+        this.type = type;
+        this.predicate = predicate;
+    }
+
+    Class<T> getType() {
+        return this.type;
+    }
+
+    CompletableFuture<T> getFuture() {
+        return this.future;
+    }
+
+    /**
+     * 交给等待者一个事件
+     *
+     * @param event 事件
+     * @return true为等待者已经结束,可以移除
+     */
+    @SuppressWarnings("unchecked")
+    boolean offer(Object event) {
+        if (this.future.isDone()) {
+            return true;
+        }
+        try {
+            if (this.predicate == null || this.predicate.test((T) event)) {
+                this.future.complete((T) event);
+                return true;
+            }
+        } catch (RuntimeException e) {
+            this.future.completeExceptionally(e);
+            return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,174 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.events;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单个事件的监听器列表
+ * 注册与移除只在锁内修改槽位,不复制整个数组;移除只留下空槽,空槽过多或数组写满时才整理一次
+ * 发布事件时直接遍历当前数组,不加锁也不分配对象,遍历顺序即注册顺序
+ * 一次性等待者单独放在队列里,不占用监听器槽位
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+final class ListenerList {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private final Object lock = new Object();
+    /**
+     * 有效监听器数量
+     */
+    private final AtomicInteger live = new AtomicInteger();
+    private final Queue<EventWaiter<?>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile AtomicReferenceArray<DefaultBrowserListener> slots = new AtomicReferenceArray<>(MIN_CAPACITY);
+    /**
+     * 下一个追加位置,只在锁内读写
+     */
+    private int tail;
+
+    /**
+     * 添加监听器,同一个监听器只会添加一次
+     *
+     * @param listener 监听器
+     * @return true为添加成功
+     */
+    boolean add(DefaultBrowserListener listener) {
+        synchronized (this.lock) {
+            AtomicReferenceArray<DefaultBrowserListener> array = this.slots;
+            for (int i = 0; i < this.tail; i++) {
+                if (array.get(i) == listener) {
+                    return false;
+                }
+            }
+            if (this.tail == array.length()) {
+                array = this.compact(array, Math.max(MIN_CAPACITY, (this.live.get() + 1) * 2));
+            }
+            array.set(this.tail++, listener);
+            this.live.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * 移除监听器,并发移除同一个监听器时只有一个调用者返回true
+     *
+     * @param listener 监听器
+     * @return true为移除成功
+     */
+    boolean remove(Object listener) {
+        synchronized (this.lock) {
+            AtomicReferenceArray<DefaultBrowserListener> array = this.slots;
+            for (int i = 0; i < this.tail; i++) {
+                if (array.get(i) == listener) {
+                    array.set(i, null);
+                    int remaining = this.live.decrementAndGet();
+                    // 末尾的空槽直接回收,先注册后移除的临时监听器不会让数组增长
+                    while (this.tail > 0 && array.get(this.tail - 1) == null) {
+                        this.tail--;
+                    }
+                    if (array.length() > MIN_CAPACITY && remaining * 4 < array.length()) {
+                        this.compact(array, Math.max(MIN_CAPACITY, remaining * 2));
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 按顺序整理有效监听器到新数组并发布,正在遍历旧数组的线程不受影响
+     */
+    private AtomicReferenceArray<DefaultBrowserListener> compact(AtomicReferenceArray<DefaultBrowserListener> array, int capacity) {
+        AtomicReferenceArray<DefaultBrowserListener> compacted = new AtomicReferenceArray<>(capacity);
+        int n = 0;
+        for (int i = 0; i < this.tail; i++) {
+            DefaultBrowserListener listener = array.get(i);
+            if (listener != null) {
+                compacted.set(n++, listener);
+            }
+        }
+        this.tail = n;
+        this.slots = compacted;
+        return compacted;
+    }
+
+    /**
+     * 当前的监听器数组,其中可能有空槽
+     *
+     * @return 监听器数组
+     */
+    AtomicReferenceArray<DefaultBrowserListener> snapshot() {
+        return this.slots;
+    }
+
+    /**
+     * 添加一次性等待者
+     *
+     * @param waiter 等待者
+     */
+    void await(EventWaiter<?> waiter) {
+        this.waiting.incrementAndGet();
+        this.waiters.add(waiter);
+    }
+
+    /**
+     * 移除等待者,等待者完成或取消后调用,重复调用无影响
+     *
+     * @param waiter 等待者
+     */
+    void discard(EventWaiter<?> waiter) {
+        if (this.waiters.remove(waiter)) {
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    Iterable<EventWaiter<?>> waiters() {
+        return this.waiters;
+    }
+
+    boolean hasWaiters() {
+        return this.waiting.get() > 0;
+    }
+
+    /**
+     * 是否有订阅者,包括监听器和等待者
+     *
+     * @return true为有订阅者
+     */
+    boolean isSubscribed() {
+        return this.live.get() > 0 || this.waiting.get() > 0;
+    }
+
+}
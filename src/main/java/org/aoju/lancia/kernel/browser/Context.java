@@ -25,6 +25,7 @@
  ********************************************************************************/
 package org.aoju.lancia.kernel.browser;
 
+import com.alibaba.fastjson.JSONObject;
 import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.core.toolkit.StringKit;
 import org.aoju.lancia.Browser;
@@ -40,6 +41,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -129,6 +131,16 @@ public class Context extends EventEmitter {
         this.browser.disposeContext(this.id);
     }
 
+    /**
+     * 异步关闭上下文,不阻塞调用线程
+     *
+     * @return 关闭完成时结束的future
+     */
+    public CompletableFuture<Void> closeAsync() {
+        Assert.isTrue(StringKit.isNotEmpty(this.id), "Non-incognito profiles cannot be closed!");
+        return this.browser.disposeContextAsync(this.id);
+    }
+
     /**
      * @return {boolean}
      */
@@ -137,6 +149,31 @@ public class Context extends EventEmitter {
     }
 
     public void overridePermissions(String origin, List<String> permissions) {
+        this.connection.send("Browser.grantPermissions", this.permissionParams(origin, permissions), true);
+    }
+
+    /**
+     * 异步授予权限,不阻塞调用线程
+     *
+     * @param origin      源
+     * @param permissions 权限
+     * @return 授权完成时结束的future
+     */
+    public CompletableFuture<JSONObject> overridePermissionsAsync(String origin, List<String> permissions) {
+        return this.connection.sendAsync("Browser.grantPermissions", this.permissionParams(origin, permissions));
+    }
+
+    /**
+     * 是否为可以授予的权限名称
+     *
+     * @param permission 权限名称
+     * @return true为可以授予
+     */
+    public static boolean isPermission(String permission) {
+        return webPermissionToProtocol.containsKey(permission);
+    }
+
+    private Map<String, Object> permissionParams(String origin, List<String> permissions) {
         permissions.replaceAll(item -> {
             String protocolPermission = webPermissionToProtocol.get(item);
             Assert.isTrue(protocolPermission != null, "Unknown permission: " + item);
@@ -146,7 +183,7 @@ public class Context extends EventEmitter {
         params.put("origin", origin);
         params.put("browserContextId", this.id);
         params.put("permissions", permissions);
-        this.connection.send("Browser.grantPermissions", params, true);
+        return params;
     }
 
     public List<Page> pages() {
@@ -164,6 +201,10 @@ public class Context extends EventEmitter {
         return this.browser.waitForTarget(target -> target.browserContext() == this && predicate.test(target), options);
     }
 
+    public String getId() {
+        return id;
+    }
+
     public Browser browser() {
         return browser;
     }
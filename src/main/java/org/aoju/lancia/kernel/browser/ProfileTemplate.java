@@ -0,0 +1,364 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.kernel.browser;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.TypeReference;
+import org.aoju.bus.core.lang.Assert;
+import org.aoju.bus.core.toolkit.StringKit;
+import org.aoju.bus.health.Platform;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.Browser;
+import org.aoju.lancia.Builder;
+import org.aoju.lancia.Page;
+import org.aoju.lancia.option.PageNavigateOptions;
+import org.aoju.lancia.worker.exception.LaunchException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * user-data-dir模板,打开一组预热地址后保存浏览器的磁盘缓存、代码缓存和着色器缓存,
+ * 每次启动时复制一份作为临时user-data-dir,新浏览器不必重新下载字体、样式和编译着色器
+ * <p>
+ * 复制时优先使用写时复制(Linux上cp --reflink=auto,macOS上cp -c),文件系统不支持时退化为普通复制;
+ * 不使用硬链接,浏览器会原地改写缓存条目,硬链接会把改动写回模板。
+ * 模板记录构建时的浏览器版本和预热地址,任一变化后在下次启动时重建。
+ * 复制出的目录作为{@link Runner}的临时目录,随浏览器关闭一起删除
+ * <p>
+ * 同一进程内可以并发启动,模板目录不应被多个进程同时使用
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class ProfileTemplate {
+
+    /**
+     * 模板中的user-data-dir
+     */
+    private static final String PROFILE = "profile";
+    /**
+     * 模板的构建信息
+     */
+    private static final String METADATA = "template.json";
+    /**
+     * 浏览器运行时产生、不能带到新浏览器中的文件
+     */
+    private static final List<String> TRANSIENT_FILES = Arrays.asList(
+            "SingletonLock", "SingletonSocket", "SingletonCookie", "DevToolsActivePort", "lockfile");
+    /**
+     * 命令行复制的等待时间,单位是毫秒
+     */
+    private static final long COPY_TIMEOUT = 60000;
+
+    private final Path directory;
+    private final List<String> warmupUrls;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 每个预热地址的导航超时,单位是毫秒
+     */
+    private int warmupTimeout = 30000;
+
+    /**
+     * @param directory  存放模板的目录,不存在时创建
+     * @param warmupUrls 构建模板时依次打开的地址
+     */
+    public ProfileTemplate(String directory, List<String> warmupUrls) {
+        Assert.isTrue(StringKit.isNotEmpty(directory), "Template directory must not be empty");
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.warmupUrls = warmupUrls == null ? Collections.emptyList() : new ArrayList<>(warmupUrls);
+    }
+
+    /**
+     * 模板不存在或与当前浏览器版本、预热地址不符时重建
+     *
+     * @param revision 浏览器版本
+     * @param warmer   以给定目录为user-data-dir启动浏览器并预热,返回前浏览器已退出
+     * @throws IOException 构建失败
+     */
+    public void ensure(String revision, Warmer warmer) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            if (this.isValid(revision)) {
+                return;
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        this.lock.writeLock().lock();
+        try {
+            if (this.isValid(revision)) {
+                return;
+            }
+            this.build(revision, warmer);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 复制模板得到一个新的临时user-data-dir
+     *
+     * @return 临时user-data-dir
+     * @throws IOException 复制失败
+     */
+    public Path newProfile() throws IOException {
+        this.lock.readLock().lock();
+        try {
+            Path profile = this.directory.resolve(PROFILE);
+            if (!Files.isDirectory(profile)) {
+                throw new LaunchException("Profile template " + this.directory + " has not been built");
+            }
+            Path target = Files.createTempDirectory(Builder.PROFILE_PREFIX).toRealPath();
+            try {
+                copy(profile, target);
+            } catch (IOException | RuntimeException e) {
+                delete(target);
+                throw e;
+            }
+            return target;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在浏览器中依次打开预热地址,单个地址失败不影响其余地址
+     *
+     * @param browser 以模板目录启动的浏览器
+     */
+    public void warmUp(Browser browser) {
+        PageNavigateOptions options = new PageNavigateOptions(null, this.warmupTimeout, Collections.singletonList("networkidle0"));
+        for (String url : this.warmupUrls) {
+            Page page = null;
+            try {
+                page = browser.newPage();
+                page.goTo(url, options);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LaunchException("Interrupted while warming up the profile template", e);
+            } catch (RuntimeException e) {
+                Logger.warn("Failed to warm up profile template with " + url + ": " + e.getMessage());
+            } finally {
+                if (page != null) {
+                    try {
+                        page.close();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException ignored) {
+                        // 浏览器关闭时页面随之关闭
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除模板,下次启动时重建
+     *
+     * @throws IOException 删除失败
+     */
+    public void invalidate() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            Files.deleteIfExists(this.directory.resolve(METADATA));
+            delete(this.directory.resolve(PROFILE));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 模板已构建且构建时的浏览器版本和预热地址与当前一致
+     *
+     * @param revision 浏览器版本
+     * @return 是否可用
+     */
+    public boolean isValid(String revision) {
+        Path metadata = this.directory.resolve(METADATA);
+        if (!Files.isRegularFile(metadata) || !Files.isDirectory(this.directory.resolve(PROFILE))) {
+            return false;
+        }
+        try {
+            JSONObject info = JSON.parseObject(new String(Files.readAllBytes(metadata), StandardCharsets.UTF_8));
+            return info != null
+                    && Objects.equals(revision, info.getString("revision"))
+                    && this.warmupUrls.equals(info.getObject("warmupUrls", TypeReference.LIST_STRING));
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("Failed to read profile template metadata " + metadata + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 在暂存目录中预热,完成后替换旧模板;元数据最后写入,构建中途失败时旧模板视为无效
+     */
+    private void build(String revision, Warmer warmer) throws IOException {
+        Files.createDirectories(this.directory);
+        Files.deleteIfExists(this.directory.resolve(METADATA));
+        Path staging = Files.createTempDirectory(this.directory, PROFILE + "-");
+        try {
+            long start = System.nanoTime();
+            warmer.warmUp(staging);
+            for (String name : TRANSIENT_FILES) {
+                Files.deleteIfExists(staging.resolve(name));
+            }
+            Path profile = this.directory.resolve(PROFILE);
+            delete(profile);
+            Files.move(staging, profile, StandardCopyOption.ATOMIC_MOVE);
+            JSONObject info = new JSONObject();
+            info.put("revision", revision);
+            info.put("warmupUrls", this.warmupUrls);
+            info.put("createdAt", System.currentTimeMillis());
+            Files.write(this.directory.resolve(METADATA), info.toJSONString().getBytes(StandardCharsets.UTF_8));
+            Logger.info("Built profile template " + this.directory + " for revision " + revision + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } finally {
+            delete(staging);
+        }
+    }
+
+    /**
+     * 复制目录内容,先尝试写时复制
+     */
+    private static void copy(Path source, Path target) throws IOException {
+        if (!Platform.isWindows() && copyByCmd(source, target)) {
+            return;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file).toString()),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 通过命令行复制,文件系统支持时共享数据块
+     *
+     * @return 是否复制成功
+     */
+    private static boolean copyByCmd(Path source, Path target) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("cp");
+        if (Platform.isMac()) {
+            cmd.add("-cR");
+        } else {
+            cmd.add("-R");
+            cmd.add("--reflink=auto");
+        }
+        cmd.add(source + "/.");
+        cmd.add(target.toString());
+        try {
+            Process process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = Builder.toString(in);
+            }
+            if (!process.waitFor(COPY_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            if (process.exitValue() != 0) {
+                Logger.debug("Copy-on-write copy of profile template failed, copying files instead: " + output);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 删除目录及其内容
+     */
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            List<Path> all = new ArrayList<>();
+            paths.forEach(all::add);
+            Collections.reverse(all);
+            for (Path p : all) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public List<String> getWarmupUrls() {
+        return warmupUrls;
+    }
+
+    public int getWarmupTimeout() {
+        return warmupTimeout;
+    }
+
+    public void setWarmupTimeout(int warmupTimeout) {
+        this.warmupTimeout = warmupTimeout;
+    }
+
+    /**
+     * 构建模板时启动浏览器并预热
+     */
+    public interface Warmer {
+
+        /**
+         * 以给定目录为user-data-dir启动浏览器,预热后关闭并等待进程退出
+         *
+         * @param profile user-data-dir
+         * @throws IOException 启动失败
+         */
+        void warmUp(Path profile) throws IOException;
+
+    }
+
+}
@@ -36,19 +36,27 @@ import org.aoju.lancia.events.EventEmitter;
 import org.aoju.lancia.option.ConnectionOptions;
 import org.aoju.lancia.option.LaunchOptions;
 import org.aoju.lancia.worker.Connection;
+import org.aoju.lancia.worker.PipeTransport;
 import org.aoju.lancia.worker.Transport;
 import org.aoju.lancia.worker.TransportFactory;
 import org.aoju.lancia.worker.exception.LaunchException;
 import org.aoju.lancia.worker.exception.TimeoutException;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import org.aoju.lancia.worker.metrics.StartupTimings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -61,8 +69,27 @@ import java.util.regex.Pattern;
 public class Runner extends EventEmitter implements AutoCloseable {
 
     private static final Pattern WS_ENDPOINT_PATTERN = Pattern.compile("^DevTools listening on (ws://.*)$");
-    private static final List<Runner> runners = new ArrayList<>();
-    private static boolean isRegisterShutdownHook = false;
+    /**
+     * 由shell把命名管道接到浏览器的fd 3(读取指令)和fd 4(写出消息)后再exec浏览器
+     */
+    private static final String PIPE_LAUNCHER = "exec \"$0\" \"$@\" 3<\"$LANCIA_PIPE_IN\" 4>\"$LANCIA_PIPE_OUT\"";
+    /**
+     * 浏览器在user-data-dir中写出调试端口的文件,第一行是端口,第二行是browser目标的路径
+     */
+    private static final String ACTIVE_PORT_FILE = "DevToolsActivePort";
+    /**
+     * 轮询DevToolsActivePort文件的间隔,单位是毫秒
+     */
+    private static final long ACTIVE_PORT_POLL_INTERVAL = 10;
+    /**
+     * 等待浏览器打开管道时检查进程状态的间隔,单位是毫秒
+     */
+    private static final long PIPE_POLL_INTERVAL = 50;
+    /**
+     * 池化时会并行启动多个浏览器,注册与关闭可能并发进行
+     */
+    private static final List<Runner> runners = new CopyOnWriteArrayList<>();
+    private static volatile boolean isRegisterShutdownHook = false;
     private final String executablePath;
     private final List<String> processArguments;
     private final String tempDirectory;
@@ -70,6 +97,23 @@ public class Runner extends EventEmitter implements AutoCloseable {
     private Process process;
     private Connection connection;
     private boolean closed;
+    /**
+     * pipe连接使用的命名管道所在目录
+     */
+    private Path pipeDirectory;
+    /**
+     * websocket连接时user-data-dir中的DevToolsActivePort文件,未指定user-data-dir时为null
+     */
+    private Path activePortFile;
+    /**
+     * 启动前DevToolsActivePort文件的修改时间,用来识别上一次运行遗留的文件
+     */
+    private FileTime staleActivePortTime;
+    /**
+     * 浏览器进程创建完成的时间
+     */
+    private long spawnedAt;
+    private final StartupTimings startupTimings = new StartupTimings();
 
     public Runner(String executablePath, List<String> processArguments, String tempDirectory) {
         super();
@@ -90,17 +134,209 @@ public class Runner extends EventEmitter implements AutoCloseable {
             throw new RuntimeException("This process has previously been started.");
         }
         List<String> arguments = new ArrayList<>();
+        boolean usePipe = processArguments.contains("--remote-debugging-pipe");
+        if (usePipe) {
+            createPipes();
+            arguments.add("/bin/sh");
+            arguments.add("-c");
+            arguments.add(PIPE_LAUNCHER);
+        }
         arguments.add(executablePath);
         arguments.addAll(processArguments);
 
         ProcessBuilder processBuilder = new ProcessBuilder().command(arguments).redirectErrorStream(true);
+        if (usePipe) {
+            processBuilder.environment().put("LANCIA_PIPE_IN", pipeDirectory.resolve("in").toString());
+            processBuilder.environment().put("LANCIA_PIPE_OUT", pipeDirectory.resolve("out").toString());
+        } else {
+            prepareActivePortFile();
+        }
+        long start = System.nanoTime();
         process = processBuilder.start();
+        this.spawnedAt = System.nanoTime();
+        this.startupTimings.setSpawnNanos(this.spawnedAt - start);
         this.closed = false;
 
         registerHook();
         addProcessListener(options);
     }
 
+    /**
+     * 找到user-data-dir中的DevToolsActivePort文件,并记下已有文件的修改时间
+     * <p>
+     * 不删除已有的文件,指定的user-data-dir可能正被另一个浏览器使用
+     */
+    private void prepareActivePortFile() {
+        String userDataDir = argumentValue("--user-data-dir=");
+        if (StringKit.isEmpty(userDataDir)) {
+            return;
+        }
+        this.activePortFile = Paths.get(userDataDir, ACTIVE_PORT_FILE);
+        try {
+            if (Files.exists(this.activePortFile)) {
+                this.staleActivePortTime = Files.getLastModifiedTime(this.activePortFile);
+            }
+        } catch (IOException e) {
+            Logger.warn("Failed to stat " + this.activePortFile + ", only the browser output will be watched");
+            this.activePortFile = null;
+        }
+    }
+
+    /**
+     * 取启动参数的值
+     *
+     * @param prefix 参数名,包含等号
+     * @return 参数值, 没有这个参数时为null
+     */
+    private String argumentValue(String prefix) {
+        String value = null;
+        for (String argument : processArguments) {
+            if (argument.startsWith(prefix)) {
+                value = argument.substring(prefix.length());
+            }
+        }
+        if (value != null && value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * 创建pipe连接使用的两个命名管道
+     *
+     * @throws IOException io异常
+     */
+    private void createPipes() throws IOException {
+        if (Platform.isWindows()) {
+            throw new LaunchException("Pipe connection is not supported on Windows, use the websocket connection instead");
+        }
+        pipeDirectory = Files.createTempDirectory(Builder.PIPE_PREFIX);
+        Process mkfifo = new ProcessBuilder("mkfifo",
+                pipeDirectory.resolve("in").toString(),
+                pipeDirectory.resolve("out").toString()).redirectErrorStream(true).start();
+        try {
+            if (!mkfifo.waitFor(10000, TimeUnit.MILLISECONDS) || mkfifo.exitValue() != 0) {
+                mkfifo.destroyForcibly();
+                throw new LaunchException("Failed to create pipes in " + pipeDirectory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LaunchException("Interrupted while creating pipes", e);
+        }
+    }
+
+    /**
+     * 打开与浏览器相连的管道,两端都打开后立即删除管道文件
+     * 读端在辅助线程上打开,浏览器在打开管道之前退出或者超时都会结束等待并结束浏览器进程
+     *
+     * @param timeout 等待时间,单位是毫秒,小于等于0为一直等待,浏览器退出时仍会立即失败
+     * @return 管道传输
+     * @throws IOException io异常
+     */
+    private Transport openPipes(int timeout) throws IOException {
+        File in = pipeDirectory.resolve("in").toFile();
+        File out = pipeDirectory.resolve("out").toFile();
+        try {
+            // 以读写方式打开不会阻塞,浏览器一侧的读端因此能够立即打开
+            RandomAccessFile pipeWrite = new RandomAccessFile(in, "rw");
+            // shell在exec浏览器之前打开写端,正常情况下只会等待shell启动
+            CompletableFuture<InputStream> opened = new CompletableFuture<>();
+            Thread opener = new Thread(() -> {
+                try {
+                    opened.complete(new FileInputStream(out));
+                } catch (IOException e) {
+                    opened.completeExceptionally(e);
+                }
+            }, "pipe-open");
+            opener.setDaemon(true);
+            opener.start();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            try {
+                while (true) {
+                    try {
+                        return new PipeTransport(opened.get(PIPE_POLL_INTERVAL, TimeUnit.MILLISECONDS), pipeWrite.getChannel());
+                    } catch (java.util.concurrent.TimeoutException e) {
+                        if (!process.isAlive()) {
+                            throw new LaunchException("Browser process exited with code " + process.exitValue() + " before opening the pipes");
+                        }
+                        if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+                            throw new TimeoutException("Timed out after " + timeout + " ms while waiting for the browser to open the pipes");
+                        }
+                    }
+                }
+            } catch (ExecutionException e) {
+                abandonPipe(pipeWrite, out, opened);
+                throw new LaunchException("Failed to open pipes to the browser", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandonPipe(pipeWrite, out, opened);
+                throw new LaunchException("Interrupted while waiting for the browser to open the pipes", e);
+            } catch (RuntimeException e) {
+                abandonPipe(pipeWrite, out, opened);
+                throw e;
+            }
+        } finally {
+            deletePipes();
+        }
+    }
+
+    /**
+     * 放弃打开管道,自己打开一次写端让辅助线程从阻塞中返回,并结束浏览器进程
+     *
+     * @param pipeWrite 已打开的写管道
+     * @param out       浏览器写出的管道
+     * @param opened    辅助线程打开的读端
+     */
+    private void abandonPipe(RandomAccessFile pipeWrite, File out, CompletableFuture<InputStream> opened) {
+        IoKit.close(pipeWrite);
+        opened.thenAccept(IoKit::close);
+        try {
+            new RandomAccessFile(out, "rw").close();
+        } catch (IOException e) {
+            Logger.debug("Failed to unblock pipe {}: {}", out, e.getMessage());
+        }
+        destroyForcibly();
+    }
+
+    /**
+     * 删除命名管道
+     */
+    private void deletePipes() {
+        if (pipeDirectory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pipeDirectory.resolve("in"));
+            Files.deleteIfExists(pipeDirectory.resolve("out"));
+            Files.deleteIfExists(pipeDirectory);
+        } catch (IOException e) {
+            Logger.warn("Failed to delete pipes in " + pipeDirectory);
+        }
+        pipeDirectory = null;
+    }
+
+    /**
+     * pipe连接时浏览器不会在输出中打印地址,持续读取输出以免浏览器因输出缓冲区写满而阻塞
+     *
+     * @param dumpio 是否打印浏览器输出
+     */
+    private void drainOutput(boolean dumpio) {
+        Thread drainThread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (dumpio) {
+                        System.out.println(line);
+                    }
+                }
+            } catch (IOException ignored) {
+                // 浏览器进程已退出
+            }
+        }, "BrowserOutputReader");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
     /**
      * 注册钩子函数，程序关闭时，关闭浏览器
      */
@@ -179,6 +415,7 @@ public class Runner extends EventEmitter implements AutoCloseable {
      */
     public void kill() {
         this.destroyForcibly();
+        this.deletePipes();
         //delete user-data-dir
         try {
             if (StringKit.isNotEmpty(tempDirectory)) {
@@ -246,9 +483,34 @@ public class Runner extends EventEmitter implements AutoCloseable {
      * @return
      */
     public Connection setUpConnection(boolean usePipe, int timeout, int slowMo, boolean dumpio, ConnectionOptions connectionOptions) throws InterruptedException {
-        Connection connection = this.setUpConnection(usePipe, timeout, slowMo, dumpio);
-        connection.setConnectionOptions(connectionOptions);
-        return connection;
+        if (usePipe) {
+            // pipe connection
+            if (pipeDirectory == null) {
+                throw new LaunchException("Pipes were not created, the browser process must be started with --remote-debugging-pipe");
+            }
+            long start = System.nanoTime();
+            Transport transport;
+            try {
+                transport = openPipes(timeout);
+            } catch (IOException e) {
+                throw new LaunchException("Failed to open pipes to the browser: " + e.getMessage(), e);
+            }
+            drainOutput(dumpio);
+            this.connection = new Connection("", transport, slowMo, connectionOptions);
+            this.startupTimings.setEndpointSource(StartupTimings.SOURCE_PIPE);
+            this.startupTimings.setConnectNanos(System.nanoTime() - start);
+            Logger.info("Connect to browser by pipe");
+        } else {
+            /// websoket connection
+            String waitForWSEndpoint = waitForWSEndpoint(timeout, dumpio);
+            long start = System.nanoTime();
+            this.startupTimings.setEndpointNanos(start - this.spawnedAt);
+            Transport transport = TransportFactory.create(waitForWSEndpoint, connectionOptions);
+            this.connection = new Connection(waitForWSEndpoint, transport, slowMo, connectionOptions);
+            this.startupTimings.setConnectNanos(System.nanoTime() - start);
+            Logger.info("Connect to browser by websocket url: " + waitForWSEndpoint);
+        }
+        return this.connection;
     }
 
     /**
@@ -262,36 +524,106 @@ public class Runner extends EventEmitter implements AutoCloseable {
      * @throws InterruptedException 打断异常
      */
     public Connection setUpConnection(boolean usePipe, int timeout, int slowMo, boolean dumpio) throws InterruptedException {
-        if (usePipe) {
-            // pipe connection
-            /*
-            throw new LaunchException("Temporarily not supported pipe connect to chromuim.If you have a pipe connect to chromium idea,pleaze new a issue in github:https://github.com/aoju/lancia/issues");
-            InputStream pipeRead = this.getProcess().getInputStream();
-            OutputStream pipeWrite = this.getProcess().getOutputStream();
-            PipeTransport transport = new PipeTransport(pipeRead, pipeWrite);
-            this.connection = new Connection("", transport, slowMo);
-            */
-        } else {
-            /// websoket connection
-            String waitForWSEndpoint = waitForWSEndpoint(timeout, dumpio);
-            Transport transport = TransportFactory.create(waitForWSEndpoint);
-            this.connection = new Connection(waitForWSEndpoint, transport, slowMo);
-            Logger.info("Connect to browser by websocket url: " + waitForWSEndpoint);
-        }
-        return this.connection;
+        return this.setUpConnection(usePipe, timeout, slowMo, dumpio, null);
     }
 
     /**
      * 等待浏览器ws url
+     * <p>
+     * 同时读取浏览器输出和轮询DevToolsActivePort文件,取先得到的地址
      *
-     * @param timeout 等待超时时间
+     * @param timeout 等待超时时间,小于等于0为一直等待
      * @param dumpio  浏览器版本
      * @return ws url
      */
     private String waitForWSEndpoint(int timeout, boolean dumpio) {
-        Runner.StreamReader reader = new Runner.StreamReader(timeout, dumpio, process.getInputStream());
+        CompletableFuture<Map.Entry<String, String>> endpoint = new CompletableFuture<>();
+        Runner.StreamReader reader = new Runner.StreamReader(dumpio, process.getInputStream(), endpoint);
         reader.start();
-        return reader.getResult();
+        if (activePortFile != null) {
+            watchActivePortFile(endpoint);
+        }
+        Map.Entry<String, String> result;
+        try {
+            result = timeout > 0 ? endpoint.get(timeout, TimeUnit.MILLISECONDS) : endpoint.get();
+        } catch (java.util.concurrent.TimeoutException e) {
+            endpoint.cancel(false);
+            throw new TimeoutException(
+                    "Timed out after " + timeout + " ms while trying to connect to the browser!"
+                            + "Chrome output: "
+                            + reader.getOutput());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof LaunchException ? (LaunchException) cause : new LaunchException("Can't get WSEndpoint", cause);
+        } catch (InterruptedException e) {
+            endpoint.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for dev tools server.", e);
+        }
+        this.startupTimings.setEndpointSource(result.getValue());
+        return result.getKey();
+    }
+
+    /**
+     * 轮询DevToolsActivePort文件,文件写完后用其中的端口完成地址,等到地址已得到或浏览器退出为止
+     *
+     * @param endpoint 地址和来源
+     */
+    private void watchActivePortFile(CompletableFuture<Map.Entry<String, String>> endpoint) {
+        Path file = this.activePortFile;
+        FileTime stale = this.staleActivePortTime;
+        String host = argumentValue("--remote-debugging-address=");
+        Process browser = this.process;
+        Thread watchThread = new Thread(() -> {
+            try {
+                while (!endpoint.isDone() && browser.isAlive()) {
+                    if (Files.exists(file) && (stale == null || !stale.equals(Files.getLastModifiedTime(file)))) {
+                        String url = readActivePortFile(file, StringKit.isEmpty(host) ? "127.0.0.1" : host);
+                        if (url != null) {
+                            endpoint.complete(new AbstractMap.SimpleImmutableEntry<>(url, StartupTimings.SOURCE_ACTIVE_PORT_FILE));
+                            return;
+                        }
+                    }
+                    Thread.sleep(ACTIVE_PORT_POLL_INTERVAL);
+                }
+            } catch (IOException ignored) {
+                // 文件正在被写入或已被删除,浏览器输出仍然可以提供地址
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "BrowserActivePortWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * 解析DevToolsActivePort文件
+     *
+     * @param file DevToolsActivePort文件
+     * @param host 调试地址监听的主机
+     * @return ws url, 文件尚未写完时为null
+     * @throws IOException 读取失败
+     */
+    static String readActivePortFile(Path file, String host) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() < 2) {
+            return null;
+        }
+        String port = lines.get(0).trim();
+        String path = lines.get(1).trim();
+        if (!port.matches("\\d{1,5}") || "0".equals(port) || !path.startsWith("/devtools/browser/")) {
+            return null;
+        }
+        return "ws://" + host + ":" + port + path;
+    }
+
+    /**
+     * 本次启动各阶段的耗时,创建Browser并等到第一个目标的阶段由启动器填写
+     *
+     * @return 启动耗时
+     */
+    public StartupTimings getStartupTimings() {
+        return startupTimings;
     }
 
     public Process getProcess() {
@@ -373,28 +705,27 @@ public class Runner extends EventEmitter implements AutoCloseable {
         }
     }
 
+    /**
+     * 读取浏览器输出,在其中找到调试地址;得到地址后继续读取,以免浏览器因输出缓冲区写满而阻塞
+     */
     static class StreamReader {
 
-        private final StringBuilder ws = new StringBuilder();
-        private final AtomicBoolean success = new AtomicBoolean(false);
         private final AtomicReference<String> chromeOutput = new AtomicReference<>("");
 
-        private final int timeout;
-
         private final boolean dumpio;
 
         private final InputStream inputStream;
 
-        private Thread readThread;
+        private final CompletableFuture<Map.Entry<String, String>> endpoint;
 
-        public StreamReader(int timeout, boolean dumpio, InputStream inputStream) {
-            this.timeout = timeout;
+        public StreamReader(boolean dumpio, InputStream inputStream, CompletableFuture<Map.Entry<String, String>> endpoint) {
             this.dumpio = dumpio;
             this.inputStream = inputStream;
+            this.endpoint = endpoint;
         }
 
         public void start() {
-            readThread = new Thread(
+            Thread readThread = new Thread(
                     () -> {
                         StringBuilder chromeOutputBuilder = new StringBuilder();
                         BufferedReader reader = null;
@@ -405,11 +736,13 @@ public class Runner extends EventEmitter implements AutoCloseable {
                                 if (dumpio) {
                                     System.out.println(line);
                                 }
+                                if (endpoint.isDone()) {
+                                    continue;
+                                }
                                 Matcher matcher = WS_ENDPOINT_PATTERN.matcher(line);
                                 if (matcher.find()) {
-                                    ws.append(matcher.group(1));
-                                    success.set(true);
-                                    break;
+                                    endpoint.complete(new AbstractMap.SimpleImmutableEntry<>(matcher.group(1), StartupTimings.SOURCE_STDOUT));
+                                    continue;
                                 }
 
                                 if (chromeOutputBuilder.length() != 0) {
@@ -418,39 +751,30 @@ public class Runner extends EventEmitter implements AutoCloseable {
                                 chromeOutputBuilder.append(line);
                                 chromeOutput.set(chromeOutputBuilder.toString());
                             }
+                            endpoint.completeExceptionally(new LaunchException(
+                                    "Browser process exited before the DevTools endpoint was available!"
+                                            + "Chrome output: "
+                                            + chromeOutput.get()));
                         } catch (Exception e) {
-                            Logger.error("Failed to launch the browser process!please see TROUBLESHOOTING: https://github.com/puppeteer/puppeteer/blob/master/docs/troubleshooting.md:", e);
+                            if (!endpoint.isDone()) {
+                                Logger.error("Failed to launch the browser process!please see TROUBLESHOOTING: https://github.com/puppeteer/puppeteer/blob/master/docs/troubleshooting.md:", e);
+                                endpoint.completeExceptionally(e);
+                            }
                         } finally {
                             IoKit.close(reader);
                         }
-                    });
-
+                    }, "BrowserOutputReader");
+            readThread.setDaemon(true);
             readThread.start();
         }
 
-        public String getResult() {
-            try {
-                readThread.join(timeout);
-                if (!success.get()) {
-                    if (readThread != null) {
-                        readThread = null;
-                    }
-                    throw new TimeoutException(
-                            "Timed out after " + timeout + " ms while trying to connect to the browser!"
-                                    + "Chrome output: "
-                                    + chromeOutput.get());
-                }
-            } catch (InterruptedException e) {
-                if (readThread != null) {
-                    readThread = null;
-                }
-                throw new RuntimeException("Interrupted while waiting for dev tools server.", e);
-            }
-            String url = ws.toString();
-            if (StringKit.isEmpty(url)) {
-                throw new LaunchException("Can't get WSEndpoint");
-            }
-            return url;
+        /**
+         * 得到调试地址之前的浏览器输出
+         *
+         * @return 浏览器输出
+         */
+        public String getOutput() {
+            return chromeOutput.get();
         }
 
     }
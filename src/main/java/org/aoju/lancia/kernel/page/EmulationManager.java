@@ -26,6 +26,7 @@
 package org.aoju.lancia.kernel.page;
 
 import org.aoju.lancia.nimble.emulation.ScreenOrientation;
+import org.aoju.lancia.worker.Batch;
 import org.aoju.lancia.worker.CDPSession;
 
 import java.util.HashMap;
@@ -49,6 +50,20 @@ public class EmulationManager {
     }
 
     public boolean emulateViewport(Viewport viewport) {
+        Batch batch = this.client.batch();
+        boolean reloadNeeded = this.emulateViewport(viewport, batch);
+        batch.join();
+        return reloadNeeded;
+    }
+
+    /**
+     * 把视口模拟命令加入批量命令
+     *
+     * @param viewport 视口
+     * @param batch    批量命令
+     * @return 是否需要重新加载页面
+     */
+    public boolean emulateViewport(Viewport viewport, Batch batch) {
         boolean mobile = viewport.getIsMobile();
         int width = viewport.getWidth();
         int height = viewport.getHeight();
@@ -74,14 +89,28 @@ public class EmulationManager {
         params.put("height", height);
         params.put("deviceScaleFactor", deviceScaleFactor);
         params.put("screenOrientation", screenOrientation);
-        this.client.send("Emulation.setDeviceMetricsOverride", params, false);
-        params.clear();
-        params.put("enabled", hasTouch);
-        this.client.send("Emulation.setTouchEmulationEnabled", params, true);
+        batch.add("Emulation.setDeviceMetricsOverride", params);
+        Map<String, Object> touch = new HashMap<>();
+        touch.put("enabled", hasTouch);
+        batch.add("Emulation.setTouchEmulationEnabled", touch);
         boolean reloadNeeded = this.emulatingMobile != mobile || this.hasTouch != hasTouch;
         this.emulatingMobile = mobile;
         this.hasTouch = hasTouch;
         return reloadNeeded;
     }
 
+    /**
+     * 把清除视口模拟的命令加入批量命令
+     *
+     * @param batch 批量命令
+     */
+    public void clearViewport(Batch batch) {
+        batch.add("Emulation.clearDeviceMetricsOverride", new HashMap<>());
+        Map<String, Object> touch = new HashMap<>();
+        touch.put("enabled", false);
+        batch.add("Emulation.setTouchEmulationEnabled", touch);
+        this.emulatingMobile = false;
+        this.hasTouch = false;
+    }
+
 }
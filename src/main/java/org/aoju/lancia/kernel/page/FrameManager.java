@@ -32,6 +32,7 @@ import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.core.toolkit.CollKit;
 import org.aoju.bus.core.toolkit.StringKit;
 import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.Builder;
 import org.aoju.lancia.Page;
 import org.aoju.lancia.events.DefaultBrowserListener;
 import org.aoju.lancia.events.EventEmitter;
@@ -41,11 +42,15 @@ import org.aoju.lancia.nimble.runtime.ExecutionContextCreatedPayload;
 import org.aoju.lancia.nimble.runtime.ExecutionContextDescription;
 import org.aoju.lancia.nimble.runtime.ExecutionContextDestroyedPayload;
 import org.aoju.lancia.option.PageNavigateOptions;
+import org.aoju.lancia.worker.Batch;
 import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.domain.PageDomain;
 import org.aoju.lancia.worker.exception.NavigateException;
 import org.aoju.lancia.worker.exception.TimeoutException;
+import org.aoju.lancia.worker.metrics.NavigationEvent;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -295,36 +300,62 @@ public class FrameManager extends EventEmitter {
 
 
     public void initialize() {
-        this.client.send("Page.enable", null, false);
-        JSONObject result = this.client.send("Page.getFrameTree", null, true);
-        FrameTree frameTree = JSON.toJavaObject(result.getJSONObject("frameTree"), FrameTree.class);
-        this.handleFrameTree(frameTree);
+        Batch batch = this.client.batch();
+        this.initialize(batch);
+        batch.join();
+    }
+
+    /**
+     * 把初始化命令加入批量命令,框架树在会话的分发通道上处理,
+     * 通道按到达顺序执行,Page.getFrameTree的回应先于Runtime.enable,
+     * 因此框架树一定在Runtime.enable产生的执行上下文事件之前处理完
+     *
+     * @param batch 批量命令
+     */
+    public void initialize(Batch batch) {
+        batch.addBestEffort("Page.enable", null);
+        CompletableFuture<JSONObject> frameTree = batch.add("Page.getFrameTree", null);
 
         Map<String, Object> params = new HashMap<>();
         params.put("enabled", true);
-        this.client.send("Page.setLifecycleEventsEnabled", params, false);
-
-        this.client.send("Runtime.enable", null, true);
-        this.ensureIsolatedWorld(UTILITY_WORLD_NAME);
-        this.networkManager.initialize();
-
+        batch.addBestEffort("Page.setLifecycleEventsEnabled", params);
+        batch.add("Runtime.enable", null);
+        boolean isolatedWorld = this.ensureIsolatedWorld(UTILITY_WORLD_NAME, batch);
+        batch.include(frameTree.thenCompose(result -> {
+            this.handleFrameTree(JSON.toJavaObject(result.getJSONObject("frameTree"), FrameTree.class));
+            return isolatedWorld ? this.createIsolatedWorlds(UTILITY_WORLD_NAME) : CompletableFuture.completedFuture(null);
+        }));
+        this.networkManager.initialize(batch);
     }
 
-    private void ensureIsolatedWorld(String name) {
+    /**
+     * 注册隔离环境的注入脚本,各框架中的隔离环境需要在框架树就绪后用{@link #createIsolatedWorlds(String)}创建
+     *
+     * @param name  隔离环境名称
+     * @param batch 批量命令
+     * @return 已经注册过时返回false
+     */
+    private boolean ensureIsolatedWorld(String name, Batch batch) {
         if (this.isolatedWorlds.contains(name))
-            return;
+            return false;
         this.isolatedWorlds.add(name);
         Map<String, Object> params = new HashMap<>();
         params.put("source", "//# sourceURL=" + ExecutionContext.EVALUATION_SCRIPT_URL);
         params.put("worldName", name);
-        this.client.send("Page.addScriptToEvaluateOnNewDocument", params, true);
+        batch.add("Page.addScriptToEvaluateOnNewDocument", params);
+        return true;
+    }
+
+    private CompletableFuture<Void> createIsolatedWorlds(String name) {
+        List<CompletableFuture<JSONObject>> futures = new ArrayList<>();
         this.frames().forEach(frame -> {
             Map<String, Object> param = new HashMap<>();
             param.put("frameId", frame.getId());
             param.put("grantUniveralAccess", true);
             param.put("worldName", name);
-            this.client.send("Page.createIsolatedWorld", param, true);
+            futures.add(this.client.sendAsync("Page.createIsolatedWorld", param));
         });
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
     }
 
     private void handleFrameTree(FrameTree frameTree) {
@@ -472,16 +503,32 @@ public class FrameManager extends EventEmitter {
             assertNoLegacyNavigationOptions(waitUntil);
         }
         if (!isBlock) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("url", url);
-            // jackJson 不序列化null值对 HashMap里面的 null值不起作用
-            if (referrer != null) {
-                params.put("referrer", referrer);
-            }
-            params.put("frameId", frame.getId());
-            this.client.send("Page.navigate", params, false);
+            new PageDomain(this.client).navigateNoWait(url, referrer, frame.getId());
             return null;
         }
+        NavigationEvent event = new NavigationEvent();
+        event.begin();
+        String outcome = "success";
+        try {
+            return this.navigateAndWait(frame, url, referrer, waitUntil, timeout);
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            throw e;
+        } catch (RuntimeException | InterruptedException e) {
+            outcome = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.setUrl(url);
+                event.setWaitUntil(String.join(",", waitUntil));
+                event.setTimeout(timeout);
+                event.setOutcome(outcome);
+                event.commit();
+            }
+        }
+    }
+
+    private Response navigateAndWait(Frame frame, String url, String referrer, List<String> waitUntil, int timeout) throws InterruptedException {
         LifecycleWatcher watcher = new LifecycleWatcher(this, frame, waitUntil, timeout);
         long start = System.currentTimeMillis();
         try {
@@ -522,23 +569,16 @@ public class FrameManager extends EventEmitter {
     }
 
     private boolean navigate(CDPSession client, String url, String referrer, String frameId, int timeout) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("url", url);
-        // JSON不序列化null值对 HashMap里面的 null值不起作用
-        if (referrer != null) {
-            params.put("referrer", referrer);
-        }
-        params.put("frameId", frameId);
         try {
-            JSONObject response = client.send("Page.navigate", params, true, null, timeout);
+            PageDomain.NavigateResult response = new PageDomain(client).navigate(url, referrer, frameId, timeout > 0 ? timeout : Builder.DEFAULT_TIMEOUT);
             this.setNavigateResult("success");
             if (response == null) {
                 return false;
             }
-            if (response.get("errorText") != null) {
-                throw new InternalException(response.get("errorText").toString() + " at " + url);
+            if (response.getErrorText() != null) {
+                throw new InternalException(response.getErrorText() + " at " + url);
             }
-            if (response.get("loaderId") != null) {
+            if (response.getLoaderId() != null) {
                 return true;
             }
         } catch (InternalException e) {
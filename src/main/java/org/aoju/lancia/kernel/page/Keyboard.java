@@ -29,6 +29,7 @@ import org.aoju.bus.core.toolkit.StringKit;
 import org.aoju.lancia.nimble.input.KeyDefinition;
 import org.aoju.lancia.nimble.input.KeyDescription;
 import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.domain.InputDomain;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -301,12 +302,12 @@ public class Keyboard {
         keyDefinitions.put("VolumeUp", new KeyDefinition(183, "VolumeUp", "VolumeUp", 4));
     }
 
-    private final CDPSession client;
+    private final InputDomain input;
     private final Set<String> pressedKeys;
     private int modifiers;
 
     public Keyboard(CDPSession client) {
-        this.client = client;
+        this.input = new InputDomain(client);
         this.modifiers = 0;
         this.pressedKeys = new HashSet<>();
     }
@@ -319,42 +320,26 @@ public class Keyboard {
         if (StringKit.isEmpty(text)) {
             text = description.getText();
         }
-        Map<String, Object> params = new HashMap<>();
-        if (StringKit.isNotEmpty(text)) {
-            params.put("type", "keyDown");
-        } else {
-            params.put("type", "rawKeyDown");
-        }
-        params.put("modifiers", this.modifiers);
-        params.put("windowsVirtualKeyCode", description.getKeyCode());
-        params.put("code", description.getCode());
-        params.put("key", description.getKey());
-        params.put("text", text);
-        params.put("unmodifiedText", text);
-        params.put("autoRepeat", autoRepeat);
-        params.put("location", description.getLocation());
-        params.put("isKeypad", description.getLocation() == 3);
-        this.client.send("Input.dispatchKeyEvent", params, true);
+        String type = StringKit.isNotEmpty(text) ? "keyDown" : "rawKeyDown";
+        this.input.dispatchKeyEvent(type, this.modifiers, description.getKey(), description.getCode(), keyCode(description),
+                text, text, autoRepeat, description.getLocation(), description.getLocation() == 3);
     }
 
     public void up(String key) {
         KeyDescription description = this.keyDescriptionForString(key);
         this.modifiers &= ~this.modifierBit(description.getKey());
         this.pressedKeys.remove(description.getCode());
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "keyUp");
-        params.put("modifiers", this.modifiers);
-        params.put("key", description.getKey());
-        params.put("windowsVirtualKeyCode", description.getKeyCode());
-        params.put("code", description.getCode());
-        params.put("location", description.getLocation());
-        this.client.send("Input.dispatchKeyEvent", params, true);
+        this.input.dispatchKeyEvent("keyUp", this.modifiers, description.getKey(), description.getCode(), keyCode(description),
+                null, null, null, description.getLocation(), null);
+    }
+
+    private static Integer keyCode(KeyDescription description) {
+        Number keyCode = description.getKeyCode();
+        return keyCode == null ? null : keyCode.intValue();
     }
 
     public void sendCharacter(String cha) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("text", cha);
-        this.client.send("Input.insertText", params, true);
+        this.input.insertText(cha);
     }
 
     private boolean charIsKey(String c) {
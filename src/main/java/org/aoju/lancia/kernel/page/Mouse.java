@@ -28,11 +28,10 @@ package org.aoju.lancia.kernel.page;
 import org.aoju.bus.core.toolkit.StringKit;
 import org.aoju.lancia.option.ClickOptions;
 import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.domain.InputDomain;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 鼠标
@@ -43,7 +42,7 @@ import java.util.Map;
  */
 public class Mouse {
 
-    private final CDPSession client;
+    private final InputDomain input;
 
     private final Keyboard keyboard;
 
@@ -54,7 +53,7 @@ public class Mouse {
     private String button;
 
     public Mouse(CDPSession client, Keyboard keyboard) {
-        this.client = client;
+        this.input = new InputDomain(client);
         this.keyboard = keyboard;
         this.x = 0;
         this.y = 0;
@@ -79,14 +78,10 @@ public class Mouse {
     }
 
     private void stepRun(double steps, double fromX, double fromY, int i) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "mouseMoved");
-        params.put("button", this.button);
         BigDecimal divide = new BigDecimal(i).divide(new BigDecimal(steps), 17, RoundingMode.HALF_UP);
-        params.put("x", divide.multiply(BigDecimal.valueOf(this.x - fromX)).add(new BigDecimal(fromX)).doubleValue());
-        params.put("y", divide.multiply(BigDecimal.valueOf(this.y - fromY)).add(new BigDecimal(fromY)).doubleValue());
-        params.put("modifiers", this.keyboard.getModifiers());
-        this.client.send("Input.dispatchMouseEvent", params, true);
+        double x = divide.multiply(BigDecimal.valueOf(this.x - fromX)).add(new BigDecimal(fromX)).doubleValue();
+        double y = divide.multiply(BigDecimal.valueOf(this.y - fromY)).add(new BigDecimal(fromY)).doubleValue();
+        this.input.dispatchMouseEvent("mouseMoved", x, y, this.keyboard.getModifiers(), this.button, null, null, null, null);
     }
 
     public void click(int x, int y, ClickOptions options) throws InterruptedException {
@@ -117,14 +112,7 @@ public class Mouse {
         if (options.getClickCount() != 0) {
             clickCount = options.getClickCount();
         }
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "mouseReleased");
-        params.put("button", button);
-        params.put("x", this.x);
-        params.put("y", this.y);
-        params.put("modifiers", this.keyboard.getModifiers());
-        params.put("clickCount", clickCount);
-        this.client.send("Input.dispatchMouseEvent", params, true);
+        this.input.dispatchMouseEvent("mouseReleased", this.x, this.y, this.keyboard.getModifiers(), button, clickCount, null, null, null);
     }
 
     public void down() {
@@ -140,14 +128,7 @@ public class Mouse {
         if (options.getClickCount() != 0) {
             clickCount = options.getClickCount();
         }
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "mousePressed");
-        params.put("button", button);
-        params.put("x", this.x);
-        params.put("y", this.y);
-        params.put("modifiers", this.keyboard.getModifiers());
-        params.put("clickCount", clickCount);
-        this.client.send("Input.dispatchMouseEvent", params, true);
+        this.input.dispatchMouseEvent("mousePressed", this.x, this.y, this.keyboard.getModifiers(), button, clickCount, null, null, null);
     }
 
     public int buttonNameToButton(String buttonName) {
@@ -167,30 +148,14 @@ public class Mouse {
      * @param deltaY 坐标y
      */
     public void wheel(double deltaX, double deltaY) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "mouseWheel");
-        params.put("x", this.x);
-        params.put("y", this.y);
-        params.put("deltaX", deltaX);
-        params.put("deltaY", deltaY);
-        params.put("modifiers", this.keyboard.getModifiers());
-        params.put("pointerType", "mouse");
-        this.client.send("Input.dispatchMouseEvent", params, true);
+        this.input.dispatchMouseEvent("mouseWheel", this.x, this.y, this.keyboard.getModifiers(), null, null, deltaX, deltaY, "mouse");
     }
 
     /**
      * 触发一个鼠标滚轮事件
      */
     public void wheel() {
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "mouseWheel");
-        params.put("x", this.x);
-        params.put("y", this.y);
-        params.put("deltaX", 0.00);
-        params.put("deltaY", 0.00);
-        params.put("modifiers", this.keyboard.getModifiers());
-        params.put("pointerType", "mouse");
-        this.client.send("Input.dispatchMouseEvent", params, true);
+        this.wheel(0.00, 0.00);
     }
 
 }
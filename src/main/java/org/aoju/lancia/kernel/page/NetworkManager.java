@@ -36,6 +36,7 @@ import org.aoju.lancia.nimble.fetch.AuthRequiredPayload;
 import org.aoju.lancia.nimble.fetch.RequestPausedPayload;
 import org.aoju.lancia.nimble.network.*;
 import org.aoju.lancia.nimble.webAuthn.Credentials;
+import org.aoju.lancia.worker.Batch;
 import org.aoju.lancia.worker.CDPSession;
 
 import java.util.*;
@@ -172,14 +173,70 @@ public class NetworkManager extends EventEmitter {
         this.client.send("Network.setExtraHTTPHeaders", params, true);
     }
 
+    /**
+     * 把清除额外请求头的命令加入批量命令,没有设置过时不发送
+     *
+     * @param batch 批量命令
+     */
+    public void clearExtraHTTPHeaders(Batch batch) {
+        if (this.extraHTTPHeaders.isEmpty()) {
+            return;
+        }
+        this.extraHTTPHeaders = new HashMap<>();
+        Map<String, Object> params = new HashMap<>();
+        params.put("headers", this.extraHTTPHeaders);
+        batch.add("Network.setExtraHTTPHeaders", params);
+    }
+
+    /**
+     * 关闭请求拦截、认证、离线模式和禁用缓存,页面复用前调用,被暂停的请求由浏览器继续
+     *
+     * @param batch 批量命令
+     */
+    public void resetOverrides(Batch batch) {
+        boolean cacheDisabled = this.userCacheDisabled || this.protocolRequestInterceptionEnabled;
+        this.credentials = null;
+        this.userRequestInterceptionEnabled = false;
+        this.userCacheDisabled = false;
+        this.attemptedAuthentications.clear();
+        if (this.protocolRequestInterceptionEnabled) {
+            this.protocolRequestInterceptionEnabled = false;
+            batch.add("Fetch.disable", null);
+        }
+        if (cacheDisabled) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("cacheDisabled", false);
+            batch.add("Network.setCacheDisabled", params);
+        }
+        if (this.offline) {
+            this.offline = false;
+            Map<String, Object> params = new HashMap<>();
+            params.put("offline", false);
+            params.put("latency", 0);
+            params.put("downloadThroughput", -1);
+            params.put("uploadThroughput", -1);
+            batch.add("Network.emulateNetworkConditions", params);
+        }
+    }
+
     public void initialize() {
-        this.client.send("Network.enable", null, true);
+        Batch batch = this.client.batch();
+        this.initialize(batch);
+        batch.join();
+    }
+
+    /**
+     * 把网络初始化命令加入批量命令
+     *
+     * @param batch 批量命令
+     */
+    public void initialize(Batch batch) {
+        batch.add("Network.enable", null);
         if (this.ignoreHTTPSErrors) {
             Map<String, Object> params = new HashMap<>();
             params.put("ignore", true);
-            this.client.send("Security.setIgnoreCertificateErrors", params, true);
+            batch.add("Security.setIgnoreCertificateErrors", params);
         }
-
     }
 
     public void authenticate(Credentials credentials) {
@@ -26,11 +26,11 @@
 package org.aoju.lancia.kernel.page;
 
 import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.domain.InputDomain;
+import org.aoju.lancia.worker.domain.RuntimeDomain;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 屏幕触摸
@@ -41,35 +41,26 @@ import java.util.Map;
  */
 public class Touchscreen {
 
-    private final CDPSession client;
+    private final InputDomain input;
+
+    private final RuntimeDomain runtime;
 
     private final Keyboard keyboard;
 
     public Touchscreen(CDPSession client, Keyboard keyboard) {
-        this.client = client;
+        this.input = new InputDomain(client);
+        this.runtime = new RuntimeDomain(client);
         this.keyboard = keyboard;
     }
 
     public void tap(int x, int y) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("expression", "new Promise(x => requestAnimationFrame(() => requestAnimationFrame(x)))");
-        params.put("awaitPromise", true);
-        this.client.send("Runtime.evaluate", params, true);
+        this.runtime.evaluate("new Promise(x => requestAnimationFrame(() => requestAnimationFrame(x)))", null, true);
 
         TouchPoint touchPoint = new TouchPoint(x, y);
         List<TouchPoint> touchPoints = new ArrayList<>();
         touchPoints.add(touchPoint);
-        params.clear();
-        params.put("type", "touchStart");
-        params.put("touchPoints", touchPoints);
-        params.put("modifiers", this.keyboard.getModifiers());
-        this.client.send("Input.dispatchTouchEvent", params, true);
-
-        params.clear();
-        params.put("type", "touchEnd");
-        params.put("touchPoints", new ArrayList<>());
-        params.put("modifiers", this.keyboard.getModifiers());
-        this.client.send("Input.dispatchTouchEvent", params, true);
+        this.input.dispatchTouchEvent("touchStart", touchPoints, this.keyboard.getModifiers());
+        this.input.dispatchTouchEvent("touchEnd", new ArrayList<>(), this.keyboard.getModifiers());
     }
 
     static class TouchPoint {
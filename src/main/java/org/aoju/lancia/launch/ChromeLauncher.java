@@ -35,6 +35,7 @@ import org.aoju.lancia.Browser;
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.Launcher;
 import org.aoju.lancia.kernel.browser.Fetcher;
+import org.aoju.lancia.kernel.browser.ProfileTemplate;
 import org.aoju.lancia.kernel.browser.Revision;
 import org.aoju.lancia.kernel.browser.Runner;
 import org.aoju.lancia.option.BrowserOptions;
@@ -44,18 +45,22 @@ import org.aoju.lancia.option.LaunchOptions;
 import org.aoju.lancia.worker.Connection;
 import org.aoju.lancia.worker.Transport;
 import org.aoju.lancia.worker.TransportFactory;
+import org.aoju.lancia.worker.WorkerPool;
 import org.aoju.lancia.worker.exception.LaunchException;
+import org.aoju.lancia.worker.metrics.StartupTimings;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -67,6 +72,11 @@ import java.util.function.Function;
  */
 public class ChromeLauncher implements Launcher {
 
+    /**
+     * 预热后等待浏览器退出的时间,单位是毫秒
+     */
+    private static final long TEMPLATE_EXIT_TIMEOUT = 10000;
+
     private boolean isPuppeteerCore;
 
     private String projectRoot;
@@ -86,6 +96,18 @@ public class ChromeLauncher implements Launcher {
 
     @Override
     public Browser launch(LaunchOptions options) throws IOException {
+        return this.launch(options, null);
+    }
+
+    /**
+     * 启动浏览器
+     *
+     * @param options         启动参数
+     * @param templateProfile 构建模板时使用的user-data-dir,为null时按启动参数处理user-data-dir
+     * @return 浏览器
+     * @throws IOException 启动失败
+     */
+    private Browser launch(LaunchOptions options, Path templateProfile) throws IOException {
         String temporaryUserDataDir = null;
         List<String> chromeArguments = defaultArgs(options);
 
@@ -102,18 +124,27 @@ public class ChromeLauncher implements Launcher {
                 isCustomUserDir = true;
             }
         }
-        if (!isCustomUserDir) {
-            temporaryUserDataDir = Files.createTempDirectory(Builder.PROFILE_PREFIX).toRealPath().toString();
+        String chromeExecutable = resolveExecutablePath(options.getExecutablePath());
+        if (templateProfile != null) {
+            chromeArguments.add("--user-data-dir=" + templateProfile);
+        } else if (!isCustomUserDir) {
+            ProfileTemplate template = options.getProfileTemplate();
+            if (template != null) {
+                template.ensure(this.templateRevision(chromeExecutable), profile -> this.warmUp(template, options, profile));
+                temporaryUserDataDir = template.newProfile().toString();
+            } else {
+                temporaryUserDataDir = Files.createTempDirectory(Builder.PROFILE_PREFIX).toRealPath().toString();
+            }
             chromeArguments.add("--user-data-dir=" + temporaryUserDataDir);
         }
         if (!isCustomRemoteDebugger) {
             chromeArguments.add(options.getPipe() ? "--remote-debugging-pipe" : "--remote-debugging-port=0");
         }
 
-        String chromeExecutable = resolveExecutablePath(options.getExecutablePath());
         boolean usePipe = chromeArguments.contains("--remote-debugging-pipe");
 
         Logger.trace("Calling " + chromeExecutable + String.join(" ", chromeArguments));
+        WorkerPool.configure(options.getConnectionOptions());
         Runner runner = new Runner(chromeExecutable, chromeArguments, temporaryUserDataDir);//
         try {
             runner.start(options);
@@ -122,8 +153,13 @@ public class ChromeLauncher implements Launcher {
                 runner.closeQuietly();
                 return null;
             };
+            long start = System.nanoTime();
             Browser browser = Browser.create(connection, null, options.getIgnoreHTTPSErrors(), options.getViewport(), runner.getProcess(), closeCallback);
             browser.waitForTarget(t -> "page".equals(t.type()), options);
+            StartupTimings timings = runner.getStartupTimings();
+            timings.setFirstTargetNanos(System.nanoTime() - start);
+            browser.setStartupTimings(timings);
+            Logger.debug("Browser started: " + timings);
             return browser;
         } catch (IOException | InterruptedException e) {
             runner.kill();
@@ -131,6 +167,57 @@ public class ChromeLauncher implements Launcher {
         }
     }
 
+    /**
+     * 以模板目录启动浏览器并打开预热地址,关闭后等待进程退出,确保缓存已写入磁盘
+     *
+     * @param template 模板
+     * @param options  启动参数
+     * @param profile  模板的user-data-dir
+     * @throws IOException 启动失败
+     */
+    private void warmUp(ProfileTemplate template, LaunchOptions options, Path profile) throws IOException {
+        Browser browser = this.launch(options, profile);
+        Process process = browser.process();
+        try {
+            template.warmUp(browser);
+        } finally {
+            browser.close();
+            try {
+                if (process != null && !process.waitFor(TEMPLATE_EXIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    Logger.warn("Browser did not exit after warming up the profile template, killing it");
+                    Builder.killProcessTree(process);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Builder.killProcessTree(process);
+                throw new LaunchException("Interrupted while waiting for the browser to exit", e);
+            }
+        }
+    }
+
+    /**
+     * 模板对应的浏览器版本,下载的浏览器取其版本号,其他浏览器取可执行文件路径和修改时间
+     *
+     * @param chromeExecutable 可执行文件路径
+     * @return 版本标识
+     * @throws IOException 读取失败
+     */
+    private String templateRevision(String chromeExecutable) throws IOException {
+        Path executable = Paths.get(chromeExecutable).toAbsolutePath().normalize();
+        FetcherOptions fetcherOptions = new FetcherOptions();
+        fetcherOptions.setProduct(this.product());
+        Fetcher fetcher = new Fetcher(this.projectRoot, fetcherOptions);
+        for (String revision : fetcher.localRevisions()) {
+            Revision revisionInfo = fetcher.revisionInfo(revision);
+            if (StringKit.isNotEmpty(revisionInfo.getExecutablePath())
+                    && executable.equals(Paths.get(revisionInfo.getExecutablePath()).toAbsolutePath().normalize())) {
+                return this.product() + "-" + revisionInfo.getRevision();
+            }
+        }
+        Path realPath = executable.toRealPath();
+        return realPath + "@" + Files.getLastModifiedTime(realPath).toMillis();
+    }
+
     /**
      * 返回默认的启动参数
      *
@@ -247,14 +334,15 @@ public class ChromeLauncher implements Launcher {
     @Override
     public Browser connect(BrowserOptions options, String browserWSEndpoint, String browserURL, Transport transport) {
         final Connection connection;
+        WorkerPool.configure(options.getConnectionOptions());
         try {
             if (transport != null) {
                 connection = new Connection("", transport, options.getSlowMo(), options.getConnectionOptions());
             } else if (StringKit.isNotEmpty(browserWSEndpoint)) {
-                connection = new Connection(browserWSEndpoint, TransportFactory.create(browserWSEndpoint), options.getSlowMo(), options.getConnectionOptions());
+                connection = new Connection(browserWSEndpoint, TransportFactory.create(browserWSEndpoint, options.getConnectionOptions()), options.getSlowMo(), options.getConnectionOptions());
             } else if (StringKit.isNotEmpty(browserURL)) {
                 String connectionURL = getWSEndpoint(browserURL);
-                connection = new Connection(connectionURL, TransportFactory.create(connectionURL), options.getSlowMo(), options.getConnectionOptions());
+                connection = new Connection(connectionURL, TransportFactory.create(connectionURL, options.getConnectionOptions()), options.getSlowMo(), options.getConnectionOptions());
             } else {
                 throw new IllegalArgumentException("Exactly one of browserWSEndpoint, browserURL or transport must be passed to puppeteer.connect");
             }
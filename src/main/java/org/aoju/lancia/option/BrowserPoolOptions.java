@@ -0,0 +1,122 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.option;
+
+/**
+ * 浏览器池选项
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class BrowserPoolOptions {
+
+    /**
+     * 浏览器进程数
+     */
+    private int size = 2;
+    /**
+     * 每个浏览器同时租出的最大页面数
+     */
+    private int maxPagesPerBrowser = 4;
+    /**
+     * 浏览器完成多少次渲染后回收,0为不限
+     */
+    private int maxRendersPerBrowser;
+    /**
+     * 浏览器运行多久后回收,单位是毫秒,0为不限
+     */
+    private long maxUptime;
+    /**
+     * 租用页面的默认等待时间,单位是毫秒,小于等于0为一直等待
+     */
+    private long leaseTimeout = 30000;
+    /**
+     * 每个浏览器保留的空闲页面数,大于0时归还的页面重置后复用而不是关闭
+     */
+    private int maxIdlePagesPerBrowser;
+    /**
+     * 浏览器启动后预先创建的页面数,不超过{@link #maxIdlePagesPerBrowser}
+     */
+    private int prewarmPagesPerBrowser;
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getMaxPagesPerBrowser() {
+        return maxPagesPerBrowser;
+    }
+
+    public void setMaxPagesPerBrowser(int maxPagesPerBrowser) {
+        this.maxPagesPerBrowser = maxPagesPerBrowser;
+    }
+
+    public int getMaxRendersPerBrowser() {
+        return maxRendersPerBrowser;
+    }
+
+    public void setMaxRendersPerBrowser(int maxRendersPerBrowser) {
+        this.maxRendersPerBrowser = maxRendersPerBrowser;
+    }
+
+    public long getMaxUptime() {
+        return maxUptime;
+    }
+
+    public void setMaxUptime(long maxUptime) {
+        this.maxUptime = maxUptime;
+    }
+
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public int getMaxIdlePagesPerBrowser() {
+        return maxIdlePagesPerBrowser;
+    }
+
+    public void setMaxIdlePagesPerBrowser(int maxIdlePagesPerBrowser) {
+        this.maxIdlePagesPerBrowser = maxIdlePagesPerBrowser;
+    }
+
+    public int getPrewarmPagesPerBrowser() {
+        return prewarmPagesPerBrowser;
+    }
+
+    public void setPrewarmPagesPerBrowser(int prewarmPagesPerBrowser) {
+        this.prewarmPagesPerBrowser = prewarmPagesPerBrowser;
+    }
+
+}
@@ -25,6 +25,8 @@
  ********************************************************************************/
 package org.aoju.lancia.option;
 
+import org.aoju.lancia.worker.metrics.ProtocolMetrics;
+
 /**
  * 浏览器选项
  *
@@ -33,10 +35,77 @@ package org.aoju.lancia.option;
  * @since JDK 1.8+
  */
 public class ConnectionOptions {
+
+    /**
+     * 命令默认的超时时间,单位是毫秒
+     */
+    public static final long DEFAULT_COMMAND_TIMEOUT = 180000;
+
+    /**
+     * session waiting message result timeout. the unit is millisecond, 0 or less means no timeout
+     */
+    private long sessionWaitingResultTimeout = DEFAULT_COMMAND_TIMEOUT;
+    /**
+     * 浏览器级别命令的默认超时时间,单位是毫秒,小于等于0代表不超时
+     */
+    private long commandTimeout = DEFAULT_COMMAND_TIMEOUT;
+    /**
+     * 命令超时时间轮的刻度,单位是毫秒,0为默认值
+     */
+    private long deadlineTick;
+    /**
+     * 内部任务与用户事件处理器的执行模式,为空时保持当前配置
+     * 执行池为进程内共享,只有第一次启动或连接时指定的配置生效,之后不同的配置会被忽略
+     */
+    private ExecutionMode executionMode;
+    /**
+     * 内部任务最大并发数,0为按执行模式取默认值,与{@link #executionMode}一起只在第一次配置时生效
+     */
+    private int internalWorkers;
+    /**
+     * 用户事件处理器最大并发数,0为按执行模式取默认值,与{@link #executionMode}一起只在第一次配置时生效
+     */
+    private int userWorkers;
+    /**
+     * 执行池队列容量,0为默认值,与{@link #executionMode}一起只在第一次配置时生效
+     */
+    private int workerQueueCapacity;
+    /**
+     * websocket传输的线程模型,为空时为{@link TransportMode#THREAD}
+     */
+    private TransportMode transportMode;
+    /**
+     * websocket单次写出合并的最大帧数,0为默认值
+     */
+    private int writeBatchSize;
+    /**
+     * 每个会话分发通道的积压上限,0为不限
+     */
+    private int laneCapacity;
+    /**
+     * 分发通道积压达到上限时的处理策略,为空时为{@link LaneOverflowPolicy#BLOCK}
+     */
+    private LaneOverflowPolicy laneOverflowPolicy;
+    /**
+     * {@link LaneOverflowPolicy#BLOCK}策略下读线程等待通道腾出空间的最长时间,单位是毫秒,0为默认值
+     */
+    private long laneBlockTimeout;
+    /**
+     * 页面只在有监听者或需要时才启用Log、Performance域,减少浏览器推送的事件
+     */
+    private boolean enableDomainsOnDemand;
+    /**
+     * 协议指标,为空时不记录
+     */
+    private ProtocolMetrics protocolMetrics;
     /**
-     * session waiting message result timeout. the unit is millisecond
+     * 入站消息的解析线程数,0为在读线程上直接处理
      */
-    private long sessionWaitingResultTimeout;
+    private int parseWorkers;
+    /**
+     * 入站流水线环形缓冲区的槽位数,0为默认值
+     */
+    private int inboundRingSize;
 
     public long getSessionWaitingResultTimeout() {
         return sessionWaitingResultTimeout;
@@ -46,4 +115,124 @@ public class ConnectionOptions {
         this.sessionWaitingResultTimeout = sessionWaitingResultTimeout;
     }
 
+    public long getCommandTimeout() {
+        return commandTimeout;
+    }
+
+    public void setCommandTimeout(long commandTimeout) {
+        this.commandTimeout = commandTimeout;
+    }
+
+    public long getDeadlineTick() {
+        return deadlineTick;
+    }
+
+    public void setDeadlineTick(long deadlineTick) {
+        this.deadlineTick = deadlineTick;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public int getInternalWorkers() {
+        return internalWorkers;
+    }
+
+    public void setInternalWorkers(int internalWorkers) {
+        this.internalWorkers = internalWorkers;
+    }
+
+    public int getUserWorkers() {
+        return userWorkers;
+    }
+
+    public void setUserWorkers(int userWorkers) {
+        this.userWorkers = userWorkers;
+    }
+
+    public int getWorkerQueueCapacity() {
+        return workerQueueCapacity;
+    }
+
+    public void setWorkerQueueCapacity(int workerQueueCapacity) {
+        this.workerQueueCapacity = workerQueueCapacity;
+    }
+
+    public TransportMode getTransportMode() {
+        return transportMode;
+    }
+
+    public void setTransportMode(TransportMode transportMode) {
+        this.transportMode = transportMode;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public int getLaneCapacity() {
+        return laneCapacity;
+    }
+
+    public void setLaneCapacity(int laneCapacity) {
+        this.laneCapacity = laneCapacity;
+    }
+
+    public LaneOverflowPolicy getLaneOverflowPolicy() {
+        return laneOverflowPolicy;
+    }
+
+    public void setLaneOverflowPolicy(LaneOverflowPolicy laneOverflowPolicy) {
+        this.laneOverflowPolicy = laneOverflowPolicy;
+    }
+
+    public long getLaneBlockTimeout() {
+        return laneBlockTimeout;
+    }
+
+    public void setLaneBlockTimeout(long laneBlockTimeout) {
+        this.laneBlockTimeout = laneBlockTimeout;
+    }
+
+    public boolean getEnableDomainsOnDemand() {
+        return enableDomainsOnDemand;
+    }
+
+    public void setEnableDomainsOnDemand(boolean enableDomainsOnDemand) {
+        this.enableDomainsOnDemand = enableDomainsOnDemand;
+    }
+
+    public ProtocolMetrics getProtocolMetrics() {
+        return protocolMetrics;
+    }
+
+    public void setProtocolMetrics(ProtocolMetrics protocolMetrics) {
+        this.protocolMetrics = protocolMetrics;
+    }
+
+    public int getParseWorkers() {
+        return parseWorkers;
+    }
+
+    public void setParseWorkers(int parseWorkers) {
+        this.parseWorkers = parseWorkers;
+    }
+
+    public int getInboundRingSize() {
+        return inboundRingSize;
+    }
+
+    public void setInboundRingSize(int inboundRingSize) {
+        this.inboundRingSize = inboundRingSize;
+    }
+
 }
@@ -0,0 +1,113 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.option;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 隐身上下文池选项
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class ContextPoolOptions {
+
+    /**
+     * 预先创建的空闲上下文数
+     */
+    private int size = 4;
+    /**
+     * 租用上下文的默认等待时间,单位是毫秒,小于等于0为一直等待
+     */
+    private long leaseTimeout = 30000;
+    /**
+     * 上下文使用的代理,为空时使用浏览器的代理
+     */
+    private String proxyServer;
+    /**
+     * 不走代理的地址列表
+     */
+    private String proxyBypassList;
+    /**
+     * 创建上下文时授予的权限,键为源
+     */
+    private Map<String, List<String>> permissions;
+    /**
+     * 租约中的页面每个请求都带上的请求头
+     */
+    private Map<String, String> extraHTTPHeaders;
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public String getProxyServer() {
+        return proxyServer;
+    }
+
+    public void setProxyServer(String proxyServer) {
+        this.proxyServer = proxyServer;
+    }
+
+    public String getProxyBypassList() {
+        return proxyBypassList;
+    }
+
+    public void setProxyBypassList(String proxyBypassList) {
+        this.proxyBypassList = proxyBypassList;
+    }
+
+    public Map<String, List<String>> getPermissions() {
+        return permissions;
+    }
+
+    public void setPermissions(Map<String, List<String>> permissions) {
+        this.permissions = permissions;
+    }
+
+    public Map<String, String> getExtraHTTPHeaders() {
+        return extraHTTPHeaders;
+    }
+
+    public void setExtraHTTPHeaders(Map<String, String> extraHTTPHeaders) {
+        this.extraHTTPHeaders = extraHTTPHeaders;
+    }
+
+}
@@ -27,6 +27,7 @@ package org.aoju.lancia.option;
 
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.kernel.Variables;
+import org.aoju.lancia.kernel.browser.ProfileTemplate;
 
 import java.util.List;
 
@@ -95,6 +96,10 @@ public class LaunchOptions extends BrowserOptions {
      * chrome or firefox
      */
     private String product;
+    /**
+     * 未指定userDataDir时,从模板复制临时user-data-dir,为null时使用空目录
+     */
+    private ProfileTemplate profileTemplate;
 
     public LaunchOptions() {
         super();
@@ -181,5 +186,13 @@ public class LaunchOptions extends BrowserOptions {
         this.product = product;
     }
 
+    public ProfileTemplate getProfileTemplate() {
+        return profileTemplate;
+    }
+
+    public void setProfileTemplate(ProfileTemplate profileTemplate) {
+        this.profileTemplate = profileTemplate;
+    }
+
 
 }
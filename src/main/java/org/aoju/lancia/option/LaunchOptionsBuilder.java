@@ -27,7 +27,9 @@ package org.aoju.lancia.option;
 
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.kernel.Variables;
+import org.aoju.lancia.kernel.browser.ProfileTemplate;
 import org.aoju.lancia.kernel.page.Viewport;
+import org.aoju.lancia.worker.metrics.ProtocolMetrics;
 
 import java.util.List;
 
@@ -128,6 +130,51 @@ public class LaunchOptionsBuilder {
         return this;
     }
 
+    /**
+     * 内部任务与用户事件处理器的执行模式
+     * 执行池为进程内共享,只有第一次启动或连接浏览器时指定的执行模式生效
+     *
+     * @param executionMode 执行模式
+     * @return LaunchOptionsBuilder
+     */
+    public LaunchOptionsBuilder executionMode(ExecutionMode executionMode) {
+        connectionOptions().setExecutionMode(executionMode);
+        return this;
+    }
+
+    /**
+     * websocket传输的线程模型
+     *
+     * @param transportMode 传输模式
+     * @return LaunchOptionsBuilder
+     */
+    public LaunchOptionsBuilder transportMode(TransportMode transportMode) {
+        connectionOptions().setTransportMode(transportMode);
+        return this;
+    }
+
+    /**
+     * 协议指标,例如{@link org.aoju.lancia.worker.metrics.InMemoryProtocolMetrics}
+     *
+     * @param protocolMetrics 协议指标
+     * @return LaunchOptionsBuilder
+     */
+    public LaunchOptionsBuilder protocolMetrics(ProtocolMetrics protocolMetrics) {
+        connectionOptions().setProtocolMetrics(protocolMetrics);
+        return this;
+    }
+
+    /**
+     * 入站消息的解析线程数,大于0时读线程只负责收帧,解析在这些线程上并行进行
+     *
+     * @param parseWorkers 解析线程数
+     * @return LaunchOptionsBuilder
+     */
+    public LaunchOptionsBuilder parseWorkers(int parseWorkers) {
+        connectionOptions().setParseWorkers(parseWorkers);
+        return this;
+    }
+
     public LaunchOptionsBuilder headless(boolean headless) {
         options.setHeadless(headless);
         return this;
@@ -143,6 +190,17 @@ public class LaunchOptionsBuilder {
         return this;
     }
 
+    /**
+     * 从预热过的模板复制临时user-data-dir,指定了userDataDir时不生效
+     *
+     * @param profileTemplate user-data-dir模板
+     * @return LaunchOptionsBuilder
+     */
+    public LaunchOptionsBuilder profileTemplate(ProfileTemplate profileTemplate) {
+        options.setProfileTemplate(profileTemplate);
+        return this;
+    }
+
     public LaunchOptionsBuilder devtools(boolean devtools) {
         options.setDevtools(devtools);
         return this;
@@ -152,4 +210,16 @@ public class LaunchOptionsBuilder {
         return options;
     }
 
+    /**
+     * 链接选项,未设置时创建一个
+     *
+     * @return ConnectionOptions
+     */
+    private ConnectionOptions connectionOptions() {
+        if (options.getConnectionOptions() == null) {
+            options.setConnectionOptions(new ConnectionOptions());
+        }
+        return options.getConnectionOptions();
+    }
+
 }
@@ -0,0 +1,623 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.socket;
+
+import org.aoju.lancia.worker.exception.SocketException;
+import org.aoju.lancia.worker.metrics.FrameBatchEvent;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A websocket client driven by a shared {@link SocketReactor} instead of dedicated read and write
+ * threads. Connecting, reading and writing are all non-blocking and happen on the selector thread,
+ * so any number of clients can be serviced by a handful of threads. Only the plain <var>ws</var>
+ * scheme is supported.
+ * <p>
+ * Frames are decoded and delivered on the selector thread; handlers that block will stall every
+ * other connection serviced by the same selector.
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public abstract class ChannelClient extends ListenerBuilder implements WebSocket {
+
+    /**
+     * The underlying engine
+     */
+    private final SocketBuilder engine;
+    /**
+     * The latch for connectBlocking()
+     */
+    private final CountDownLatch connectLatch = new CountDownLatch(1);
+    /**
+     * The latch for closeBlocking()
+     */
+    private final CountDownLatch closeLatch = new CountDownLatch(1);
+    /**
+     * Scratch array for gathering writes, only touched on the selector thread
+     */
+    private ByteBuffer[] gather = new ByteBuffer[SocketBuilder.DEFAULT_WRITE_BATCH];
+    /**
+     * Whether OP_WRITE has been requested and not yet served
+     */
+    private final AtomicBoolean writePending = new AtomicBoolean();
+    /**
+     * The URI this channel is supposed to connect to.
+     */
+    protected URI uri;
+    /**
+     * The additional headers to use
+     */
+    private Map<String, String> headers;
+    /**
+     * The selector thread servicing this client
+     */
+    private SocketReactor reactor;
+    /**
+     * The channel of this client
+     */
+    private SocketChannel channel;
+    /**
+     * The registration of the channel with the reactor's selector
+     */
+    private volatile SelectionKey key;
+
+    /**
+     * Constructs a ChannelClient instance and sets it to the connect to the specified URI. The
+     * channel does not attampt to connect automatically. The connection will be established once you
+     * call <var>connect</var>.
+     *
+     * @param serverUri the server URI to connect to
+     */
+    public ChannelClient(URI serverUri) {
+        this(serverUri, new Draft_6455(), null);
+    }
+
+    /**
+     * Constructs a ChannelClient instance and sets it to the connect to the specified URI. The
+     * channel does not attampt to connect automatically. The connection will be established once you
+     * call <var>connect</var>.
+     *
+     * @param serverUri   the server URI to connect to
+     * @param draft       The draft which should be used for this connection
+     * @param httpHeaders Additional HTTP-Headers
+     */
+    public ChannelClient(URI serverUri, Draft_6455 draft, Map<String, String> httpHeaders) {
+        if (serverUri == null) {
+            throw new IllegalArgumentException();
+        } else if (draft == null) {
+            throw new IllegalArgumentException("null as draft is permitted for `WebSocketServer` only!");
+        } else if (!"ws".equals(serverUri.getScheme())) {
+            throw new IllegalArgumentException("unsupported scheme: " + serverUri.getScheme());
+        }
+        this.uri = serverUri;
+        if (httpHeaders != null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(httpHeaders);
+        }
+        setTcpNoDelay(true);
+        setReuseAddr(false);
+        this.engine = new SocketBuilder(this, draft);
+    }
+
+    /**
+     * Initiates the websocket connection. This method does not block.
+     */
+    public void connect() {
+        if (channel != null) {
+            throw new IllegalStateException("ChannelClient objects are not reuseable");
+        }
+        try {
+            reactor = SocketReactor.next();
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, isTcpNoDelay());
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, isReuseAddr());
+            channel.connect(new InetSocketAddress(uri.getHost(), getPort()));
+            reactor.register(channel, this);
+        } catch (IOException | RuntimeException e) {
+            onFailure(e);
+        }
+    }
+
+    /**
+     * Same as <code>connect</code> but blocks until the websocket connected or failed to do so.<br>
+     *
+     * @return Returns whether it succeeded or not.
+     * @throws InterruptedException Thrown when the threads get interrupted
+     */
+    public boolean connectBlocking() throws InterruptedException {
+        connect();
+        connectLatch.await();
+        return engine.isOpen();
+    }
+
+    /**
+     * Initiates the websocket close handshake. This method does not block<br> In oder to make sure
+     * the connection is closed use <code>closeBlocking</code>
+     */
+    public void close() {
+        if (key != null) {
+            engine.close(Framedata.NORMAL);
+        }
+    }
+
+    /**
+     * Same as <code>close</code> but blocks until the websocket closed or failed to do so.<br>
+     *
+     * @throws InterruptedException Thrown when the threads get interrupted
+     */
+    public void closeBlocking() throws InterruptedException {
+        close();
+        closeLatch.await();
+    }
+
+    /**
+     * Sends <var>text</var> to the connected websocket server.
+     *
+     * @param text The string which will be transmitted.
+     */
+    public void send(String text) {
+        engine.send(text);
+    }
+
+    /**
+     * Serializes <var>message</var> straight into a masked text frame without an intermediate string.
+     *
+     * @param message the object to serialize as JSON
+     * @return the frame, ready for {@link #sendEncoded(ByteBuffer)}
+     */
+    public ByteBuffer encodeText(Object message) {
+        return engine.encode(message);
+    }
+
+    /**
+     * Sends a frame produced by {@link #encodeText(Object)}.
+     *
+     * @param frame the frame
+     */
+    public void sendEncoded(ByteBuffer frame) {
+        engine.sendEncoded(frame);
+    }
+
+    @Override
+    public <T> T getAttachment() {
+        return engine.getAttachment();
+    }
+
+    @Override
+    public <T> void setAttachment(T attachment) {
+        engine.setAttachment(attachment);
+    }
+
+    @Override
+    protected Collection<WebSocket> getConnections() {
+        return Collections.singletonList(engine);
+    }
+
+    @Override
+    public void sendPing() {
+        engine.sendPing();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Called on the selector thread once the TCP connection is established.
+     */
+    void onConnected() throws SocketException {
+        sendHandshake();
+    }
+
+    /**
+     * Called on the selector thread when the channel has data to read.
+     *
+     * @param buffer the reactor's shared read buffer, cleared
+     */
+    void onReadable(ByteBuffer buffer) throws IOException {
+        int read;
+        while ((read = channel.read(buffer)) > 0) {
+            buffer.flip();
+            engine.decode(buffer);
+            buffer.clear();
+        }
+        if (read == -1) {
+            engine.eot();
+        }
+    }
+
+    /**
+     * Called on the selector thread when the channel can accept more data. Queued frames, up to
+     * the engine's write batch size, are handed to the socket in one gathering write.
+     *
+     * @return whether the out queue has been drained and OP_WRITE can be dropped
+     */
+    boolean onWritable() throws IOException {
+        while (true) {
+            int count = 0;
+            int limit = engine.getWriteBatchSize();
+            if (gather.length < limit) {
+                gather = new ByteBuffer[limit];
+            }
+            for (ByteBuffer buffer : engine.outQueue) {
+                gather[count++] = buffer;
+                if (count == limit) {
+                    break;
+                }
+            }
+            if (count == 0) {
+                writePending.set(false);
+                // a frame queued between the emptiness check and the reset must not be left behind
+                if (engine.outQueue.isEmpty() || !writePending.compareAndSet(false, true)) {
+                    return true;
+                }
+                continue;
+            }
+            FrameBatchEvent event = new FrameBatchEvent();
+            event.begin();
+            long bytes = channel.write(gather, 0, count);
+            int written = 0;
+            while (written < count && !gather[written].hasRemaining()) {
+                FrameBuffer.release(engine.outQueue.poll());
+                gather[written++] = null;
+            }
+            engine.recordWrite(written);
+            if (event.shouldCommit()) {
+                event.setFrames(written);
+                event.setBytes(bytes);
+                event.setTransport("channel");
+                event.commit();
+            }
+            if (written < count) {
+                Arrays.fill(gather, written, count, null);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Called on the selector thread when connecting, reading or writing failed.
+     *
+     * @param e the cause
+     */
+    void onFailure(Exception e) {
+        if (e instanceof IOException && key != null) {
+            engine.eot();
+            return;
+        }
+        onWebsocketError(engine, e);
+        engine.closeConnection(key == null ? Framedata.NEVER_CONNECTED : Framedata.ABNORMAL_CLOSE, e.getMessage());
+    }
+
+    /**
+     * Flushes whatever the socket takes without blocking, then releases the channel.
+     */
+    private void closeChannel() {
+        if (reactor == null || channel == null) {
+            return;
+        }
+        reactor.execute(() -> {
+            try {
+                if (channel.isConnected()) {
+                    ByteBuffer[] buffers = engine.outQueue.toArray(new ByteBuffer[0]);
+                    if (buffers.length > 0) {
+                        channel.write(buffers);
+                    }
+                }
+            } catch (IOException ignored) {
+                // the connection is going away anyway
+            }
+            try {
+                if (key != null) {
+                    key.cancel();
+                }
+                channel.close();
+            } catch (IOException ex) {
+                onWebsocketError(engine, ex);
+            }
+        });
+    }
+
+    /**
+     * Extract the specified port
+     *
+     * @return the specified port or the default port for the ws scheme
+     */
+    private int getPort() {
+        int port = uri.getPort();
+        return port == -1 ? SocketBuilder.DEFAULT_PORT : port;
+    }
+
+    /**
+     * Create and send the handshake to the other endpoint
+     */
+    private void sendHandshake() throws SocketException {
+        String path;
+        String part1 = uri.getRawPath();
+        String part2 = uri.getRawQuery();
+        if (part1 == null || part1.length() == 0) {
+            path = "/";
+        } else {
+            path = part1;
+        }
+        if (part2 != null) {
+            path += '?' + part2;
+        }
+        int port = getPort();
+        String host = uri.getHost() + (port != SocketBuilder.DEFAULT_PORT ? ":" + port : "");
+
+        HandshakeBuilder handshake = new HandshakeBuilder();
+        handshake.setDescriptor(path);
+        handshake.put("Host", host);
+        if (headers != null) {
+            for (Map.Entry<String, String> kv : headers.entrySet()) {
+                handshake.put(kv.getKey(), kv.getValue());
+            }
+        }
+        engine.startHandshake(handshake);
+    }
+
+    /**
+     * This represents the state of the connection.
+     */
+    public ReadyState getReadyState() {
+        return engine.getReadyState();
+    }
+
+    /**
+     * Calls subclass' implementation of <var>onMessage</var>.
+     */
+    @Override
+    public final void onWebsocketMessage(WebSocket conn, String message) {
+        onMessage(message);
+    }
+
+    /**
+     * Calls subclass' implementation of <var>onOpen</var>.
+     */
+    @Override
+    public final void onWebsocketOpen(WebSocket conn, HandshakeBuilder handshake) {
+        startConnectionLostTimer();
+        onOpen(handshake);
+        connectLatch.countDown();
+    }
+
+    /**
+     * Calls subclass' implementation of <var>onClose</var>.
+     */
+    @Override
+    public final void onWebsocketClose(WebSocket conn, int code, String reason, boolean remote) {
+        stopConnectionLostTimer();
+        closeChannel();
+        onClose(code, reason, remote);
+        connectLatch.countDown();
+        closeLatch.countDown();
+    }
+
+    /**
+     * Calls subclass' implementation of <var>onIOError</var>.
+     */
+    @Override
+    public final void onWebsocketError(WebSocket conn, Exception ex) {
+        onError(ex);
+    }
+
+    @Override
+    public final void onWriteDemand(WebSocket conn) {
+        SelectionKey selectionKey = key;
+        if (selectionKey != null && writePending.compareAndSet(false, true)) {
+            reactor.requestWrite(selectionKey);
+        }
+    }
+
+    @Override
+    public void onWebsocketCloseInitiated(WebSocket conn, int code, String reason) {
+        onCloseInitiated(code, reason);
+    }
+
+    @Override
+    public void onWebsocketClosing(WebSocket conn, int code, String reason, boolean remote) {
+        onClosing(code, reason, remote);
+    }
+
+    /**
+     * Send when this peer sends a close handshake
+     *
+     * @param code   The codes can be looked up here: {@link Framedata}
+     * @param reason Additional information string
+     */
+    public void onCloseInitiated(int code, String reason) {
+        //To overwrite
+    }
+
+    /**
+     * Called as soon as no further frames are accepted
+     *
+     * @param code   The codes can be looked up here: {@link Framedata}
+     * @param reason Additional information string
+     * @param remote Returns whether or not the closing of the connection was initiated by the remote
+     *               host.
+     */
+    public void onClosing(int code, String reason, boolean remote) {
+
+    }
+
+    /**
+     * Setter for the maximum number of queued frames handed to one gathering write
+     *
+     * @param writeBatchSize the write batch size, a value lower than 1 restores the default
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        engine.setWriteBatchSize(writeBatchSize);
+    }
+
+    /**
+     * Getter for the average number of frames carried by one write
+     *
+     * @return frames per write
+     */
+    public double getFramesPerWrite() {
+        return engine.getFramesPerWrite();
+    }
+
+    /**
+     * Getter for the engine
+     *
+     * @return the engine
+     */
+    public WebSocket getConnection() {
+        return engine;
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress(WebSocket conn) {
+        try {
+            return channel != null ? (InetSocketAddress) channel.getLocalAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress(WebSocket conn) {
+        try {
+            return channel != null ? (InetSocketAddress) channel.getRemoteAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Called after an opening handshake has been performed and the given websocket is ready to be
+     * written on.
+     *
+     * @param handshake The handshake of the websocket instance
+     */
+    public abstract void onOpen(HandshakeBuilder handshake);
+
+    /**
+     * Callback for string messages received from the remote host
+     *
+     * @param message The UTF-8 decoded message that was received.
+     **/
+    public abstract void onMessage(String message);
+
+    /**
+     * Called after the websocket connection has been closed.
+     *
+     * @param code   The codes can be looked up here: {@link Framedata}
+     * @param reason Additional information string
+     * @param remote Returns whether or not the closing of the connection was initiated by the remote
+     *               host.
+     **/
+    public abstract void onClose(int code, String reason, boolean remote);
+
+    /**
+     * Called when errors occurs. If an error causes the websocket connection to fail {@link
+     * #onClose(int, String, boolean)} will be called additionally.
+     *
+     * @param ex The exception causing this error
+     **/
+    public abstract void onError(Exception ex);
+
+    @Override
+    public void sendFragmentedFrame(String op, ByteBuffer buffer, boolean fin) {
+        engine.sendFragmentedFrame(op, buffer, fin);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return engine.isOpen();
+    }
+
+    @Override
+    public boolean isFlushAndClose() {
+        return engine.isFlushAndClose();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return engine.isClosed();
+    }
+
+    @Override
+    public boolean isClosing() {
+        return engine.isClosing();
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        return engine.hasBufferedData();
+    }
+
+    @Override
+    public void close(int code) {
+        engine.close(code);
+    }
+
+    @Override
+    public void close(int code, String message) {
+        engine.close(code, message);
+    }
+
+    @Override
+    public void closeConnection(int code, String message) {
+        engine.closeConnection(code, message);
+    }
+
+    @Override
+    public void sendFrame(Framedata framedata) {
+        engine.sendFrame(framedata);
+    }
+
+    @Override
+    public void sendFrame(Collection<Framedata> frames) {
+        engine.sendFrame(frames);
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return engine.getLocalSocketAddress();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() {
+        return engine.getRemoteSocketAddress();
+    }
+
+}
@@ -31,7 +31,6 @@ import org.aoju.bus.logger.Logger;
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.worker.exception.SocketException;
 
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
@@ -87,10 +86,35 @@ public class Draft_6455 {
      * 属性用于本协议中使用的扩展
      */
     private String negotiatedExtension;
+    /**
+     * 组装缓冲区保留的最大容量,超过该大小的帧使用按长度分配的一次性缓冲区
+     */
+    private static final int RETAINED_CAPACITY = 1 << 20;
+    /**
+     * 跨越读取边界的帧头,最长14字节
+     */
+    private final ByteBuffer header = ByteBuffer.allocate(14);
+    /**
+     * 复用的组装缓冲区
+     */
+    private ByteBuffer retained;
     /**
      * 属性的当前不完整帧
      */
-    private ByteBuffer incompleteframe;
+    private Framedata incompleteframe;
+    /**
+     * 不完整帧的载荷,容量按帧头中的长度确定
+     */
+    private ByteBuffer incompletePayload;
+    /**
+     * 不完整帧的掩码
+     */
+    private byte[] incompleteMask;
+    /**
+     * 最近读取的帧头中的载荷长度与掩码
+     */
+    private int frameLength;
+    private byte[] frameMask;
 
     /**
      * 由RFC 6455指定的带有默认扩展名的websocket socketProtocol的构造函数
@@ -298,6 +322,16 @@ public class Draft_6455 {
         return createByteBufferFromFramedata(framedata);
     }
 
+    /**
+     * 完成一个由序列化器直接写入的文本帧:回填帧头并原地加掩码
+     *
+     * @param buffer 已写入负载的缓冲区
+     * @return 可直接写出的帧
+     */
+    public ByteBuffer finishTextFrame(FrameBuffer buffer) {
+        return buffer.finish((byte) (-128 | fromOpcode(Builder.TEXT)), reuseableRandom.nextInt());
+    }
+
     public HandshakeBuilder translateHandshake(ByteBuffer buf) throws SocketException {
         return translateHandshakeHttp(buf);
     }
@@ -391,12 +425,12 @@ public class Draft_6455 {
             throw new IllegalStateException("Size representation not supported/specified");
         }
         if (mask) {
-            ByteBuffer maskkey = ByteBuffer.allocate(4);
-            maskkey.putInt(reuseableRandom.nextInt());
-            buf.put(maskkey.array());
-            for (int i = 0; mes.hasRemaining(); i++) {
-                buf.put((byte) (mes.get() ^ maskkey.get(i % 4)));
-            }
+            int key = reuseableRandom.nextInt();
+            buf.putInt(key);
+            int offset = buf.position();
+            int length = mes.remaining();
+            buf.put(mes);
+            FrameBuffer.mask(buf.array(), offset, length, key);
         } else {
             buf.put(mes);
             //Reset the position of the bytebuffer e.g. for additional use
@@ -407,45 +441,37 @@ public class Draft_6455 {
         return buf;
     }
 
-    private Framedata translateSingleFrame(ByteBuffer buffer)
-            throws SocketException {
-        if (buffer == null) {
-            throw new IllegalArgumentException();
-        }
-        int maxpacketsize = buffer.remaining();
-        int realpacketsize = 2;
-        translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-        byte b1 = buffer.get(/*0*/);
+    /**
+     * 读取帧头,载荷长度和掩码保存在{@link #frameLength}与{@link #frameMask}中
+     *
+     * @param buffer 完整包含帧头的缓冲区
+     * @return 尚未设置载荷的帧
+     * @throws SocketException 帧头不合法
+     */
+    private Framedata translateHeader(ByteBuffer buffer) throws SocketException {
+        byte b1 = buffer.get();
         boolean fin = b1 >> 8 != 0;
         boolean rsv1 = (b1 & 0x40) != 0;
         boolean rsv2 = (b1 & 0x20) != 0;
         boolean rsv3 = (b1 & 0x10) != 0;
-        byte b2 = buffer.get(/*1*/);
+        byte b2 = buffer.get();
         boolean mask = (b2 & -128) != 0;
-        int payloadlength = (byte) (b2 & ~(byte) 128);
+        long payloadlength = b2 & 0x7F;
         String optcode = toOpcode((byte) (b1 & 15));
 
-        if (!(payloadlength >= 0 && payloadlength <= 125)) {
-            TranslatedPayloadMetaData payloadData = translateSingleFramePayloadLength(buffer, optcode,
-                    payloadlength, maxpacketsize, realpacketsize);
-            payloadlength = payloadData.getPayloadLength();
-            realpacketsize = payloadData.getRealPackageSize();
+        if (payloadlength > 125) {
+            if (Builder.PING.equals(optcode) || Builder.PONG.equals(optcode) || Builder.CLOSING.equals(optcode)) {
+                Logger.trace("Invalid frame: more than 125 octets");
+                throw new SocketException(Framedata.PROTOCOL_ERROR, "more than 125 octets");
+            }
+            payloadlength = payloadlength == 126 ? buffer.getShort() & 0xFFFF : buffer.getLong();
         }
         translateSingleFrameCheckLengthLimit(payloadlength);
-        realpacketsize += (mask ? 4 : 0);
-        realpacketsize += payloadlength;
-        translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-
-        ByteBuffer payload = ByteBuffer.allocate(checkAlloc(payloadlength));
+        frameLength = (int) payloadlength;
+        frameMask = null;
         if (mask) {
-            byte[] maskskey = new byte[4];
-            buffer.get(maskskey);
-            for (int i = 0; i < payloadlength; i++) {
-                payload.put((byte) (buffer.get(/*payloadstart + i*/) ^ maskskey[i % 4]));
-            }
-        } else {
-            payload.put(buffer.array(), buffer.position(), payload.limit());
-            buffer.position(buffer.position() + payload.limit());
+            frameMask = new byte[4];
+            buffer.get(frameMask);
         }
 
         Framedata frame = Framedata.get(optcode);
@@ -453,64 +479,128 @@ public class Draft_6455 {
         frame.setRSV1(rsv1);
         frame.setRSV2(rsv2);
         frame.setRSV3(rsv3);
-        payload.flip();
-        frame.setPayload(payload);
-
-        if (Logger.isTrace()) {
-            Logger.trace("afterDecoding({}): {}", frame.getPayloadData().remaining(),
-                    (frame.getPayloadData().remaining() > 1000 ? "too big to display"
-                            : new String(frame.getPayloadData().array())));
-        }
         frame.isValid();
         return frame;
     }
 
-    public int checkAlloc(int bytecount) throws SocketException {
-        if (bytecount < 0) {
-            throw new SocketException(Framedata.PROTOCOL_ERROR, "Negative count");
+    /**
+     * 根据已到达的前两个字节计算帧头长度,不足两个字节时返回2
+     *
+     * @param buffer    缓冲区
+     * @param offset    帧头起始位置
+     * @param available 可用字节数
+     * @return 帧头长度
+     */
+    private static int headerLength(ByteBuffer buffer, int offset, int available) {
+        if (available < 2) {
+            return 2;
         }
-        return bytecount;
+        byte b2 = buffer.get(offset + 1);
+        int length = b2 & 0x7F;
+        int size = 2 + (length == 126 ? 2 : length == 127 ? 8 : 0);
+        return (b2 & -128) != 0 ? size + 4 : size;
     }
 
     /**
-     * Translate the buffer depending when it has an extended payload length (126 or 127)
-     *
-     * @param buffer            the buffer to read from
-     * @param optcode           the decoded optcode
-     * @param oldPayloadlength  the old payload length
-     * @param maxpacketsize     the max packet size allowed
-     * @param oldRealpacketsize the real packet size
-     * @return the new payload data containing new payload length and new packet size
-     * @throws SocketException if the maxpacketsize is smaller than the realpackagesize
-     */
-    private TranslatedPayloadMetaData translateSingleFramePayloadLength(ByteBuffer buffer,
-                                                                        String optcode, int oldPayloadlength, int maxpacketsize, int oldRealpacketsize)
-            throws SocketException {
-        int payloadlength = oldPayloadlength;
-        int realpacketsize = oldRealpacketsize;
-        if (Builder.PING.equals(optcode) || Builder.PONG.equals(optcode) || Builder.CLOSING.equals(optcode)) {
-            Logger.trace("Invalid frame: more than 125 octets");
-            throw new SocketException(Framedata.PROTOCOL_ERROR, "more than 125 octets");
-        }
-        if (payloadlength == 126) {
-            realpacketsize += 2; // additional length bytes
-            translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-            byte[] sizebytes = new byte[3];
-            sizebytes[1] = buffer.get(/*1 + 1*/);
-            sizebytes[2] = buffer.get(/*1 + 2*/);
-            payloadlength = new BigInteger(sizebytes).intValue();
+     * 从读取缓冲区搬运载荷到组装缓冲区,有掩码时按载荷偏移解码
+     */
+    private static void transfer(ByteBuffer src, ByteBuffer dst, byte[] mask) {
+        int count = Math.min(src.remaining(), dst.remaining());
+        if (mask == null) {
+            ByteBuffer part = src.slice();
+            part.limit(count);
+            dst.put(part);
+            src.position(src.position() + count);
         } else {
-            realpacketsize += 8; // additional length bytes
-            translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-            byte[] bytes = new byte[8];
-            for (int i = 0; i < 8; i++) {
-                bytes[i] = buffer.get(/*1 + i*/);
+            int offset = dst.position();
+            for (int i = 0; i < count; i++) {
+                dst.put((byte) (src.get() ^ mask[(offset + i) & 3]));
             }
-            long length = new BigInteger(bytes).longValue();
-            translateSingleFrameCheckLengthLimit(length);
-            payloadlength = (int) length;
         }
-        return new TranslatedPayloadMetaData(payloadlength, realpacketsize);
+    }
+
+    /**
+     * 获取容量至少为length的组装缓冲区,小帧复用同一个缓冲区
+     *
+     * @param length 载荷长度
+     * @return 位置为0、limit为length的缓冲区
+     */
+    private ByteBuffer acquire(int length) {
+        if (length > RETAINED_CAPACITY) {
+            return ByteBuffer.allocate(length);
+        }
+        if (retained == null || retained.capacity() < length) {
+            int capacity = retained == null ? SocketBuilder.RCVBUF : retained.capacity() << 1;
+            retained = ByteBuffer.allocate(Math.min(RETAINED_CAPACITY, Math.max(length, capacity)));
+        }
+        retained.clear();
+        retained.limit(length);
+        return retained;
+    }
+
+    /**
+     * 解出下一帧,数据不足时返回null并保留已读到的部分
+     *
+     * @param buffer 读取缓冲区
+     * @return 帧或者null
+     * @throws SocketException 帧不合法
+     */
+    private Framedata nextFrame(ByteBuffer buffer) throws SocketException {
+        if (incompleteframe != null) {
+            transfer(buffer, incompletePayload, incompleteMask);
+            if (incompletePayload.hasRemaining()) {
+                return null;
+            }
+            incompletePayload.flip();
+            Framedata frame = incompleteframe;
+            frame.setPayload(incompletePayload.asReadOnlyBuffer());
+            incompleteframe = null;
+            incompletePayload = null;
+            incompleteMask = null;
+            return frame;
+        }
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        ByteBuffer source = buffer;
+        if (header.position() > 0 || headerLength(buffer, buffer.position(), buffer.remaining()) > buffer.remaining()) {
+            // 帧头跨越读取边界,先凑齐帧头
+            while (header.position() < headerLength(header, 0, header.position())) {
+                if (!buffer.hasRemaining()) {
+                    return null;
+                }
+                header.put(buffer.get());
+            }
+            header.flip();
+            source = header;
+        }
+        Framedata frame;
+        try {
+            frame = translateHeader(source);
+        } finally {
+            if (source == header) {
+                header.clear();
+            }
+        }
+        if (frameMask == null && buffer.remaining() >= frameLength) {
+            // 载荷完整地落在读取缓冲区内,直接交出只读视图
+            ByteBuffer payload = buffer.slice();
+            payload.limit(frameLength);
+            buffer.position(buffer.position() + frameLength);
+            frame.setPayload(payload.asReadOnlyBuffer());
+            return frame;
+        }
+        incompleteframe = frame;
+        incompletePayload = acquire(frameLength);
+        incompleteMask = frameMask;
+        return nextFrame(buffer);
+    }
+
+    public int checkAlloc(int bytecount) throws SocketException {
+        if (bytecount < 0) {
+            throw new SocketException(Framedata.PROTOCOL_ERROR, "Negative count");
+        }
+        return bytecount;
     }
 
     /**
@@ -534,21 +624,6 @@ public class Draft_6455 {
         }
     }
 
-    /**
-     * Check if the max packet size is smaller than the real packet size
-     *
-     * @param maxpacketsize  the max packet size
-     * @param realpacketsize the real packet size
-     * @throws SocketException if the maxpacketsize is smaller than the realpackagesize
-     */
-    private void translateSingleFrameCheckPacketSize(int maxpacketsize, int realpacketsize)
-            throws SocketException {
-        if (maxpacketsize < realpacketsize) {
-            Logger.trace("Incomplete frame: maxpacketsize < realpacketsize");
-            throw new SocketException(realpacketsize);
-        }
-    }
-
     /**
      * Get a byte that can set RSV bits when OR(|)'d. 0 1 2 3 4 5 6 7 +-+-+-+-+-------+ |F|R|R|R|
      * opcode| |I|S|S|S|  (4)  | |N|V|V|V|       | | |1|2|3|       |
@@ -594,56 +669,26 @@ public class Draft_6455 {
         return 8;
     }
 
-    public List<Framedata> translateFrame(ByteBuffer buffer) throws SocketException {
-        while (true) {
-            List<Framedata> frames = new LinkedList<>();
-            Framedata cur;
-            if (incompleteframe != null) {
-                // complete an incomplete frame
-                try {
-                    buffer.mark();
-                    int availableNextByteCount = buffer.remaining();// The number of bytes received
-                    int expectedNextByteCount = incompleteframe
-                            .remaining();// The number of bytes to complete the incomplete frame
-
-                    if (expectedNextByteCount > availableNextByteCount) {
-                        // did not receive enough bytes to complete the frame
-                        incompleteframe.put(buffer.array(), buffer.position(), availableNextByteCount);
-                        buffer.position(buffer.position() + availableNextByteCount);
-                        return Collections.emptyList();
-                    }
-                    incompleteframe.put(buffer.array(), buffer.position(), expectedNextByteCount);
-                    buffer.position(buffer.position() + expectedNextByteCount);
-                    cur = translateSingleFrame(incompleteframe.duplicate().position(0));
-                    frames.add(cur);
-                    incompleteframe = null;
-                } catch (SocketException e) {
-                    // extending as much as suggested
-                    ByteBuffer extendedframe = ByteBuffer.allocate(checkAlloc(e.getValue()));
-                    assert (extendedframe.limit() > incompleteframe.limit());
-                    incompleteframe.rewind();
-                    extendedframe.put(incompleteframe);
-                    incompleteframe = extendedframe;
-                    continue;
-                }
-            }
-
-            // Read as much as possible full frames
-            while (buffer.hasRemaining()) {
-                buffer.mark();
-                try {
-                    cur = translateSingleFrame(buffer);
-                    frames.add(cur);
-                } catch (SocketException e) {
-                    // remember the incomplete data
-                    buffer.reset();
-                    int pref = e.getValue();
-                    incompleteframe = ByteBuffer.allocate(checkAlloc(pref));
-                    incompleteframe.put(buffer);
-                    break;
-                }
+    /**
+     * 解码缓冲区中的帧,每解出一帧立即交给{@link #processFrame(SocketBuilder, Framedata)}处理
+     * 完整落在缓冲区内的载荷以只读视图交出,不做复制;跨越多次读取的载荷按帧头中的长度
+     * 一次性分配(小帧复用同一个)组装缓冲区,不会随数据到达反复扩容和复制
+     * 交出的载荷只在处理期间有效
+     *
+     * @param socketBuilder websocket
+     * @param buffer        读取缓冲区
+     * @throws SocketException 帧不合法
+     */
+    public void translateFrame(SocketBuilder socketBuilder, ByteBuffer buffer) throws SocketException {
+        Framedata frame;
+        while ((frame = nextFrame(buffer)) != null) {
+            if (Logger.isTrace()) {
+                ByteBuffer payload = frame.getPayloadData();
+                Logger.trace("afterDecoding({}): {}", payload.remaining(),
+                        (payload.remaining() > 1000 ? "too big to display"
+                                : Charset.UTF_8.decode(payload.duplicate()).toString()));
             }
-            return frames;
+            processFrame(socketBuilder, frame);
         }
     }
 
@@ -659,7 +704,10 @@ public class Draft_6455 {
     }
 
     public void reset() {
+        header.clear();
         incompleteframe = null;
+        incompletePayload = null;
+        incompleteMask = null;
         negotiatedExtension = "";
         // socketProtocol = null;
     }
@@ -750,7 +798,7 @@ public class Draft_6455 {
             throws SocketException {
         try {
             socketBuilder.getListener()
-                    .onWebsocketMessage(socketBuilder, stringUtf8(frame.getPayloadData()));
+                    .onWebsocketMessage(socketBuilder, frame.getPayloadData());
         } catch (RuntimeException e) {
             socketBuilder.getListener().onWebsocketError(socketBuilder, new Exception(e.getMessage()));
         }
@@ -760,23 +808,4 @@ public class Draft_6455 {
         return Builder.TWOWAY;
     }
 
-    private class TranslatedPayloadMetaData {
-
-        private final int payloadLength;
-        private final int realPackageSize;
-
-        TranslatedPayloadMetaData(int newPayloadLength, int newRealPackageSize) {
-            this.payloadLength = newPayloadLength;
-            this.realPackageSize = newRealPackageSize;
-        }
-
-        private int getPayloadLength() {
-            return payloadLength;
-        }
-
-        private int getRealPackageSize() {
-            return realPackageSize;
-        }
-    }
-
 }
@@ -0,0 +1,195 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.socket;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 出站文本帧的缓冲区,序列化器直接把UTF-8写在帧头预留空间之后,写完再回填帧头并原地加掩码
+ * 缓冲区数组来自进程内共享的池,帧写出后由写线程归还
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class FrameBuffer extends OutputStream {
+
+    /**
+     * 帧头最大长度:2字节基本头、8字节扩展长度、4字节掩码
+     */
+    static final int HEADER_RESERVE = 14;
+
+    private static final int INITIAL_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_POOLED = 32;
+
+    private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+    /**
+     * 已生成帧、尚未归还的数组,按引用比较;只有这些数组会回到池中,未写出就被丢弃的帧随GC释放
+     */
+    private static final Map<byte[], Boolean> ISSUED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private byte[] buf;
+    private int count = HEADER_RESERVE;
+
+    private FrameBuffer(byte[] buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * 从池中取一个缓冲区,池为空时新建
+     *
+     * @return FrameBuffer
+     */
+    public static FrameBuffer acquire() {
+        byte[] array = POOL.poll();
+        if (array == null) {
+            array = new byte[INITIAL_SIZE];
+        } else {
+            POOLED.decrementAndGet();
+        }
+        return new FrameBuffer(array);
+    }
+
+    /**
+     * 归还已经写出的帧的数组,过大或池已满时交给GC
+     * 不是由{@link FrameBuffer}生成的帧,或已经归还过的帧,直接忽略
+     *
+     * @param frame 已写出的帧
+     */
+    public static void release(ByteBuffer frame) {
+        if (frame == null || !frame.hasArray()) {
+            return;
+        }
+        byte[] array = frame.array();
+        if (ISSUED.remove(array) == null) {
+            return;
+        }
+        if (array.length < INITIAL_SIZE || array.length > MAX_POOLED_SIZE) {
+            return;
+        }
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        POOL.offer(array);
+    }
+
+    /**
+     * 用4字节掩码原地异或,每次处理8字节
+     *
+     * @param array  数组
+     * @param offset 负载起始位置
+     * @param length 负载长度
+     * @param key    掩码
+     */
+    public static void mask(byte[] array, int offset, int length, int key) {
+        long wide = ((long) key << 32) | (key & 0xFFFFFFFFL);
+        int i = 0;
+        for (int end = length - 7; i < end; i += 8) {
+            LONGS.set(array, offset + i, (long) LONGS.get(array, offset + i) ^ wide);
+        }
+        for (; i < length; i++) {
+            array[offset + i] ^= (byte) (key >>> (24 - ((i & 3) << 3)));
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        ensure(1);
+        this.buf[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(len);
+        System.arraycopy(b, off, this.buf, this.count, len);
+        this.count += len;
+    }
+
+    /**
+     * 负载长度
+     *
+     * @return 字节数
+     */
+    public int size() {
+        return this.count - HEADER_RESERVE;
+    }
+
+    /**
+     * 回填帧头并加掩码,之后缓冲区不能再写入
+     *
+     * @param opcode 帧的第一个字节,包括FIN和操作码
+     * @param key    掩码
+     * @return 完整的帧
+     */
+    ByteBuffer finish(byte opcode, int key) {
+        int length = size();
+        int start;
+        if (length < 126) {
+            start = HEADER_RESERVE - 6;
+            this.buf[start + 1] = (byte) (0x80 | length);
+        } else if (length <= 0xFFFF) {
+            start = HEADER_RESERVE - 8;
+            this.buf[start + 1] = (byte) (0x80 | 126);
+            this.buf[start + 2] = (byte) (length >>> 8);
+            this.buf[start + 3] = (byte) length;
+        } else {
+            start = 0;
+            this.buf[1] = (byte) (0x80 | 127);
+            LONGS.set(this.buf, 2, (long) length);
+        }
+        this.buf[start] = opcode;
+        this.buf[HEADER_RESERVE - 4] = (byte) (key >>> 24);
+        this.buf[HEADER_RESERVE - 3] = (byte) (key >>> 16);
+        this.buf[HEADER_RESERVE - 2] = (byte) (key >>> 8);
+        this.buf[HEADER_RESERVE - 1] = (byte) key;
+        mask(this.buf, HEADER_RESERVE, length, key);
+        ISSUED.put(this.buf, Boolean.TRUE);
+        return ByteBuffer.wrap(this.buf, start, this.count - start);
+    }
+
+    private void ensure(int n) {
+        if (this.count + n > this.buf.length) {
+            this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length << 1, this.count + n));
+        }
+    }
+
+}
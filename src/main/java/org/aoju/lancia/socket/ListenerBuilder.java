@@ -30,9 +30,8 @@ import org.aoju.bus.logger.Logger;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,6 +43,18 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class ListenerBuilder implements SocketListener {
 
+    /**
+     * Heartbeat scheduler shared by every client in the process, so an idle connection costs a
+     * scheduled task rather than a thread
+     */
+    private static final ScheduledThreadPoolExecutor CONNECTION_LOST_CHECKER;
+
+    static {
+        CONNECTION_LOST_CHECKER = new ScheduledThreadPoolExecutor(1,
+                new NamedThreadFactory("connectionLostChecker", true));
+        CONNECTION_LOST_CHECKER.setRemoveOnCancelPolicy(true);
+    }
+
     /**
      * Attribute to sync on
      */
@@ -56,10 +67,6 @@ public abstract class ListenerBuilder implements SocketListener {
      * Attribute which allows you to enable/disable the SO_REUSEADDR org.aoju.lancia.socket option.
      */
     private boolean reuseAddr;
-    /**
-     * Attribute for a service that triggers lost connection checking
-     */
-    private ScheduledExecutorService connectionLostCheckerService;
     /**
      * Attribute for a task that checks for lost connections
      */
@@ -123,7 +130,7 @@ public abstract class ListenerBuilder implements SocketListener {
      */
     protected void stopConnectionLostTimer() {
         synchronized (syncConnectionLost) {
-            if (connectionLostCheckerService != null || connectionLostCheckerFuture != null) {
+            if (connectionLostCheckerFuture != null) {
                 this.websocketRunning = false;
                 Logger.trace("Connection lost timer stopped");
                 cancelConnectionLostTimer();
@@ -151,8 +158,6 @@ public abstract class ListenerBuilder implements SocketListener {
      */
     private void restartConnectionLostTimer() {
         cancelConnectionLostTimer();
-        connectionLostCheckerService = Executors
-                .newSingleThreadScheduledExecutor(new NamedThreadFactory("connectionLostChecker"));
         Runnable connectionLostChecker = new Runnable() {
 
             /**
@@ -179,7 +184,7 @@ public abstract class ListenerBuilder implements SocketListener {
             }
         };
 
-        connectionLostCheckerFuture = connectionLostCheckerService
+        connectionLostCheckerFuture = CONNECTION_LOST_CHECKER
                 .scheduleAtFixedRate(connectionLostChecker, connectionLostTimeout, connectionLostTimeout,
                         TimeUnit.NANOSECONDS);
     }
@@ -220,10 +225,6 @@ public abstract class ListenerBuilder implements SocketListener {
      * Cancel any running timer for the connection lost detection
      */
     private void cancelConnectionLostTimer() {
-        if (connectionLostCheckerService != null) {
-            connectionLostCheckerService.shutdownNow();
-            connectionLostCheckerService = null;
-        }
         if (connectionLostCheckerFuture != null) {
             connectionLostCheckerFuture.cancel(false);
             connectionLostCheckerFuture = null;
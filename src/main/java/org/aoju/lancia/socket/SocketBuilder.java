@@ -25,10 +25,13 @@
  ********************************************************************************/
 package org.aoju.lancia.socket;
 
+import com.alibaba.fastjson.JSON;
 import org.aoju.bus.logger.Logger;
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.worker.exception.SocketException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -37,6 +40,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents one end (client or server) of a single SocketBuilder connection. Takes care of the
@@ -66,7 +70,11 @@ public class SocketBuilder implements WebSocket {
     /**
      * Initial buffer size
      */
-    public static final int RCVBUF = 16384;
+    public static final int RCVBUF = 1 << 16;
+    /**
+     * Default maximum number of queued frames handed to the socket in one write
+     */
+    public static final int DEFAULT_WRITE_BATCH = 64;
     /**
      * Queue of buffers that need to be sent to the client.
      */
@@ -115,6 +123,18 @@ public class SocketBuilder implements WebSocket {
      * Attribute to store connection attachment
      */
     private Object attachment;
+    /**
+     * Maximum number of queued frames coalesced into one write
+     */
+    private volatile int writeBatchSize = DEFAULT_WRITE_BATCH;
+    /**
+     * Number of writes issued to the socket
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+    /**
+     * Number of frames carried by those writes
+     */
+    private final AtomicLong writtenFrames = new AtomicLong();
 
     /**
      * creates a websocket with client role
@@ -142,9 +162,11 @@ public class SocketBuilder implements WebSocket {
      */
     public void decode(ByteBuffer socketBuffer) {
         assert (socketBuffer.hasRemaining());
-        Logger.trace("process({}): ({})", socketBuffer.remaining(),
-                (socketBuffer.remaining() > 1000 ? "too big to display"
-                        : new String(socketBuffer.array(), socketBuffer.position(), socketBuffer.remaining())));
+        if (Logger.isTrace()) {
+            Logger.trace("process({}): ({})", socketBuffer.remaining(),
+                    (socketBuffer.remaining() > 1000 ? "too big to display"
+                            : new String(socketBuffer.array(), socketBuffer.arrayOffset() + socketBuffer.position(), socketBuffer.remaining())));
+        }
 
         if (readyState != ReadyState.NOT_YET_CONNECTED) {
             if (readyState == ReadyState.OPEN) {
@@ -215,13 +237,8 @@ public class SocketBuilder implements WebSocket {
     }
 
     private void decodeFrames(ByteBuffer socketBuffer) {
-        List<Framedata> frames;
         try {
-            frames = draft.translateFrame(socketBuffer);
-            for (Framedata f : frames) {
-                Logger.trace("matched frame: {}", f);
-                draft.processFrame(this, f);
-            }
+            draft.translateFrame(this, socketBuffer);
         } catch (SocketException e) {
             Logger.error("Closing due to invalid data in frame", e);
             listener.onWebsocketError(this, e);
@@ -401,6 +418,35 @@ public class SocketBuilder implements WebSocket {
         send(draft.createFrames(text));
     }
 
+    /**
+     * 把消息直接序列化进帧缓冲区,不经过中间字符串
+     *
+     * @param message 要序列化的对象
+     * @return 已加掩码的完整文本帧
+     */
+    public ByteBuffer encode(Object message) {
+        FrameBuffer buffer = FrameBuffer.acquire();
+        try {
+            JSON.writeJSONString(buffer, message);
+        } catch (IOException e) {
+            // 写入内存缓冲区不会失败
+            throw new UncheckedIOException(e);
+        }
+        return draft.finishTextFrame(buffer);
+    }
+
+    /**
+     * 发送由{@link #encode(Object)}生成的帧
+     *
+     * @param frame 完整的帧
+     */
+    public void sendEncoded(ByteBuffer frame) {
+        if (!isOpen()) {
+            throw new RuntimeException("readyState is close");
+        }
+        write(Collections.singletonList(frame));
+    }
+
     private void send(Collection<Framedata> frames) {
         if (!isOpen()) {
             throw new RuntimeException("readyState is close");
@@ -464,8 +510,11 @@ public class SocketBuilder implements WebSocket {
     }
 
     private void write(ByteBuffer buf) {
-        Logger.trace("write({}): {}", buf.remaining(),
-                buf.remaining() > 1000 ? "too big to display" : new String(buf.array()));
+        if (Logger.isTrace()) {
+            Logger.trace("write({}): {}", buf.remaining(),
+                    buf.remaining() > 1000 ? "too big to display"
+                            : new String(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining()));
+        }
 
         outQueue.add(buf);
         listener.onWriteDemand(this);
@@ -551,6 +600,53 @@ public class SocketBuilder implements WebSocket {
         this.lastPong = System.nanoTime();
     }
 
+    /**
+     * Getter for the maximum number of frames coalesced into one write
+     *
+     * @return the write batch size
+     */
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Setter for the maximum number of frames coalesced into one write
+     *
+     * @param writeBatchSize the write batch size, a value lower than 1 restores the default
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize < 1 ? DEFAULT_WRITE_BATCH : writeBatchSize;
+    }
+
+    /**
+     * Record one write to the socket
+     *
+     * @param frames the number of frames it carried
+     */
+    public void recordWrite(int frames) {
+        writeCount.incrementAndGet();
+        writtenFrames.addAndGet(frames);
+    }
+
+    /**
+     * Getter for the number of writes issued to the socket
+     *
+     * @return the write count
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Getter for the average number of frames per write
+     *
+     * @return frames per write, 0 if nothing has been written yet
+     */
+    public double getFramesPerWrite() {
+        long writes = writeCount.get();
+        return writes == 0 ? 0 : (double) writtenFrames.get() / writes;
+    }
+
     /**
      * Getter for the websocket listener
      *
@@ -26,6 +26,7 @@
 package org.aoju.lancia.socket;
 
 import org.aoju.lancia.worker.exception.SocketException;
+import org.aoju.lancia.worker.metrics.FrameBatchEvent;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.*;
@@ -37,9 +38,7 @@ import java.net.*;
 import java.nio.ByteBuffer;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
+import java.util.*;
 import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 
@@ -233,6 +232,25 @@ public abstract class SocketClient extends ListenerBuilder implements Runnable,
         engine.send(text);
     }
 
+    /**
+     * Serializes <var>message</var> straight into a masked text frame without an intermediate string.
+     *
+     * @param message the object to serialize as JSON
+     * @return the frame, ready for {@link #sendEncoded(ByteBuffer)}
+     */
+    public ByteBuffer encodeText(Object message) {
+        return engine.encode(message);
+    }
+
+    /**
+     * Sends a frame produced by {@link #encodeText(Object)}.
+     *
+     * @param frame the frame
+     */
+    public void sendEncoded(ByteBuffer frame) {
+        engine.sendEncoded(frame);
+    }
+
     @Override
     public <T> T getAttachment() {
         return engine.getAttachment();
@@ -300,12 +318,16 @@ public abstract class SocketClient extends ListenerBuilder implements Runnable,
         writeThread = new Thread(new WebsocketWriteThread(this));
         writeThread.start();
 
+        // 读取缓冲区在整个连接期间复用,解码过程不会持有它的引用
         byte[] rawbuffer = new byte[SocketBuilder.RCVBUF];
+        ByteBuffer readBuffer = ByteBuffer.wrap(rawbuffer);
         int readBytes;
 
         try {
             while (!isClosing() && !isClosed() && (readBytes = istream.read(rawbuffer)) != -1) {
-                engine.decode(ByteBuffer.wrap(rawbuffer, 0, readBytes));
+                readBuffer.clear();
+                readBuffer.limit(readBytes);
+                engine.decode(readBuffer);
             }
             engine.eot();
         } catch (IOException e) {
@@ -495,6 +517,24 @@ public abstract class SocketClient extends ListenerBuilder implements Runnable,
 
     }
 
+    /**
+     * Setter for the maximum number of queued frames coalesced into one write
+     *
+     * @param writeBatchSize the write batch size, a value lower than 1 restores the default
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        engine.setWriteBatchSize(writeBatchSize);
+    }
+
+    /**
+     * Getter for the average number of frames carried by one write
+     *
+     * @return frames per write
+     */
+    public double getFramesPerWrite() {
+        return engine.getFramesPerWrite();
+    }
+
     /**
      * Getter for the engine
      *
@@ -665,26 +705,76 @@ public abstract class SocketClient extends ListenerBuilder implements Runnable,
         }
 
         /**
-         * Write the data into the outstream
+         * Write the data into the outstream. Every frame already queued, up to the engine's write
+         * batch size, is staged and written with a single write and flush.
          *
          * @throws IOException if write or flush did not work
          */
         private void runWriteData() throws IOException {
+            List<ByteBuffer> batch = new ArrayList<>();
+            byte[] staging = new byte[SocketBuilder.RCVBUF];
             try {
                 while (!Thread.interrupted()) {
-                    ByteBuffer buffer = engine.outQueue.take();
-                    ostream.write(buffer.array(), 0, buffer.limit());
-                    ostream.flush();
+                    batch.add(engine.outQueue.take());
+                    engine.outQueue.drainTo(batch, engine.getWriteBatchSize() - 1);
+                    writeBatch(batch, staging);
                 }
             } catch (InterruptedException e) {
-                for (ByteBuffer buffer : engine.outQueue) {
-                    ostream.write(buffer.array(), 0, buffer.limit());
-                    ostream.flush();
-                }
+                engine.outQueue.drainTo(batch);
+                writeBatch(batch, staging);
                 Thread.currentThread().interrupt();
             }
         }
 
+        /**
+         * Copy the frames into the staging buffer and write it out; frames that do not fit are
+         * written straight from their own buffer
+         *
+         * @param batch   the frames to write, cleared afterwards
+         * @param staging the staging buffer
+         * @throws IOException if write or flush did not work
+         */
+        private void writeBatch(List<ByteBuffer> batch, byte[] staging) throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            FrameBatchEvent event = new FrameBatchEvent();
+            event.begin();
+            long bytes = 0;
+            int staged = 0;
+            for (ByteBuffer buffer : batch) {
+                int length = buffer.remaining();
+                bytes += length;
+                if (staged + length > staging.length) {
+                    if (staged > 0) {
+                        ostream.write(staging, 0, staged);
+                        staged = 0;
+                    }
+                    if (length > staging.length) {
+                        ostream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                        continue;
+                    }
+                }
+                buffer.get(staging, staged, length);
+                staged += length;
+            }
+            if (staged > 0) {
+                ostream.write(staging, 0, staged);
+            }
+            ostream.flush();
+            engine.recordWrite(batch.size());
+            if (event.shouldCommit()) {
+                event.setFrames(batch.size());
+                event.setBytes(bytes);
+                event.setTransport("socket");
+                event.commit();
+            }
+            for (ByteBuffer buffer : batch) {
+                FrameBuffer.release(buffer);
+            }
+            batch.clear();
+        }
+
         /**
          * Closing the org.aoju.lancia.socket
          */
@@ -28,6 +28,7 @@ package org.aoju.lancia.socket;
 import org.aoju.lancia.worker.exception.SocketException;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 
 /**
  * 由WebSocketClient实现。其中的方法由WebSocket调用。几乎每个方法都接受第一个参数conn，它表示各自事件的源。
@@ -70,6 +71,19 @@ public interface SocketListener {
      */
     void onWebsocketMessage(WebSocket conn, String message);
 
+    /**
+     * Called when an entire text frame has been received, with the payload still UTF-8 encoded.
+     * The buffer is a read-only view that is only valid during this call. By default it is decoded
+     * and passed to {@link #onWebsocketMessage(WebSocket, String)}.
+     *
+     * @param conn    The WebSocket instance this event is occurring on.
+     * @param payload The UTF-8 encoded message that was received.
+     * @throws SocketException if the payload is not valid UTF-8
+     */
+    default void onWebsocketMessage(WebSocket conn, ByteBuffer payload) throws SocketException {
+        onWebsocketMessage(conn, Draft_6455.stringUtf8(payload));
+    }
+
     /**
      * Called after <var>onHandshakeReceived</var> returns <var>true</var>. Indicates that a complete
      * WebSocket connection has been established, and we are ready to send/receive data.
@@ -0,0 +1,194 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.socket;
+
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.worker.exception.SocketException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 选择器线程,一个线程为多个{@link ChannelClient}完成连接、读取和非阻塞写入
+ * 进程内共享少量选择器线程,数量由系统属性{@value #SELECTOR_COUNT_PROPERTY}指定,默认为1
+ * 读到的数据在选择器线程上同步解码和分发,事件处理器不应在该线程上阻塞
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class SocketReactor implements Runnable {
+
+    public static final String SELECTOR_COUNT_PROPERTY = "lancia.socket.selectors";
+
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private static volatile SocketReactor[] REACTORS;
+
+    private final Selector selector;
+
+    private final Thread thread;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 同一选择器线程上的所有连接共用一个读取缓冲区,解码过程不会持有它的引用
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(SocketBuilder.RCVBUF);
+
+    private SocketReactor(int index) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "socket-reactor-" + index);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 轮流选取一个共享的选择器线程
+     *
+     * @return SocketReactor
+     * @throws IOException 选择器打开失败
+     */
+    public static SocketReactor next() throws IOException {
+        SocketReactor[] reactors = REACTORS;
+        if (reactors == null) {
+            synchronized (SocketReactor.class) {
+                reactors = REACTORS;
+                if (reactors == null) {
+                    int count = Math.max(1, Integer.getInteger(SELECTOR_COUNT_PROPERTY, 1));
+                    reactors = new SocketReactor[count];
+                    for (int i = 0; i < count; i++) {
+                        reactors[i] = new SocketReactor(i);
+                    }
+                    REACTORS = reactors;
+                }
+            }
+        }
+        return reactors[Math.floorMod(NEXT.getAndIncrement(), reactors.length)];
+    }
+
+    /**
+     * 在选择器线程上执行任务
+     *
+     * @param task 任务
+     */
+    public void execute(Runnable task) {
+        if (Thread.currentThread() == thread) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 注册通道,连接尚未完成时关注OP_CONNECT
+     *
+     * @param channel 非阻塞通道
+     * @param client  通道所属的客户端
+     */
+    void register(SocketChannel channel, ChannelClient client) {
+        execute(() -> {
+            try {
+                int ops = channel.isConnected() ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+                client.setKey(channel.register(selector, ops, client));
+                if (channel.isConnected()) {
+                    client.onConnected();
+                }
+            } catch (IOException | SocketException | RuntimeException e) {
+                client.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * 为通道开启写关注
+     *
+     * @param key 通道的选择键
+     */
+    void requestWrite(SelectionKey key) {
+        execute(() -> {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    process(key);
+                }
+            } catch (IOException | RuntimeException e) {
+                Logger.error("Socket reactor error", e);
+            }
+        }
+    }
+
+    private void process(SelectionKey key) {
+        ChannelClient client = (ChannelClient) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                if (((SocketChannel) key.channel()).finishConnect()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    client.onConnected();
+                }
+            }
+            if (key.isValid() && key.isReadable()) {
+                readBuffer.clear();
+                client.onReadable(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                if (client.onWritable()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            }
+        } catch (CancelledKeyException e) {
+            // 通道已关闭
+        } catch (IOException | SocketException | RuntimeException e) {
+            client.onFailure(e);
+        }
+    }
+
+}
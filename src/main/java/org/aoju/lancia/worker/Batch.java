@@ -0,0 +1,165 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import com.alibaba.fastjson.JSONObject;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.Builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量命令,先收集命令,发送时连续写入传输通道,不在命令之间等待回应,
+ * 最后一起等待全部结果,减少页面初始化时的往返次数
+ * 同一会话内的命令由浏览器按顺序处理,后面的命令可以依赖前面命令的副作用
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class Batch {
+
+    private final CDPSession session;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final List<CompletableFuture<?>> dependents = new ArrayList<>();
+
+    private boolean sent;
+
+    public Batch(CDPSession session) {
+        this.session = session;
+    }
+
+    /**
+     * 添加命令,在{@link #send()}时才会写入
+     * 在返回的future上注册的同步回调运行在会话的分发通道上,通道按到达顺序逐个处理回应和事件,
+     * 回调执行完之前不会处理这条回应之后到达的消息
+     *
+     * @param method 方法
+     * @param params 参数
+     * @return 命令回应
+     */
+    public CompletableFuture<JSONObject> add(String method, Map<String, Object> params) {
+        if (sent) {
+            throw new IllegalStateException("Batch already sent");
+        }
+        Entry entry = new Entry(method, params, false);
+        entries.add(entry);
+        return entry.future;
+    }
+
+    /**
+     * 添加尽力而为的命令,与单独发送而不等待回应一样,失败时只记录日志,不影响批量的结果
+     *
+     * @param method 方法
+     * @param params 参数
+     * @return 命令回应,失败时以null完成
+     */
+    public CompletableFuture<JSONObject> addBestEffort(String method, Map<String, Object> params) {
+        if (sent) {
+            throw new IllegalStateException("Batch already sent");
+        }
+        Entry entry = new Entry(method, params, true);
+        entries.add(entry);
+        return entry.future;
+    }
+
+    /**
+     * 把依赖于批量命令结果的后续操作纳入批量的完成条件
+     *
+     * @param future 后续操作
+     * @param <T>    结果类型
+     * @return 传入的future
+     */
+    public <T> CompletableFuture<T> include(CompletableFuture<T> future) {
+        dependents.add(future);
+        return future;
+    }
+
+    /**
+     * 连续写入所有命令
+     *
+     * @return 全部命令及后续操作完成时结束
+     */
+    public CompletableFuture<Void> send() {
+        if (sent) {
+            throw new IllegalStateException("Batch already sent");
+        }
+        sent = true;
+        List<CompletableFuture<?>> futures = new ArrayList<>(entries.size() + dependents.size());
+        for (Entry entry : entries) {
+            session.sendAsync(entry.method, entry.params).whenComplete((result, error) -> {
+                if (error == null) {
+                    entry.future.complete(result);
+                } else if (entry.bestEffort) {
+                    Logger.debug("Ignored failure of " + entry.method + ": " + error.getMessage());
+                    entry.future.complete(null);
+                } else {
+                    entry.future.completeExceptionally(error);
+                }
+            });
+            if (!entry.bestEffort) {
+                futures.add(entry.future);
+            }
+        }
+        futures.addAll(dependents);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 写入所有命令并等待结果,除尽力而为的命令外任一命令失败时抛出对应的异常
+     */
+    public void join() {
+        Builder.join(this.send());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        private final String method;
+
+        private final Map<String, Object> params;
+
+        private final CompletableFuture<JSONObject> future = new CompletableFuture<>();
+
+        private final boolean bestEffort;
+
+        private Entry(String method, Map<String, Object> params, boolean bestEffort) {
+            this.method = method;
+            this.params = params;
+            this.bestEffort = bestEffort;
+        }
+
+    }
+
+}
@@ -26,21 +26,22 @@
 package org.aoju.lancia.worker;
 
 import com.alibaba.fastjson.JSONObject;
-import org.aoju.bus.core.toolkit.StringKit;
 import org.aoju.lancia.Builder;
 import org.aoju.lancia.events.EventEmitter;
 import org.aoju.lancia.events.Events;
+import org.aoju.lancia.option.ConnectionOptions;
 import org.aoju.lancia.worker.exception.ProtocolException;
-import org.aoju.lancia.worker.exception.TimeoutException;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * CDPSession实例被用来谈论原始的Chrome Devtools协议
+ * 会话的回应和事件在自己的分发通道中按到达顺序处理,读线程只负责路由
+ * 分发通道运行在{@link WorkerPool#dispatch()}上,内部任务占满{@link Builder#commonExecutor()}时回应仍能送达
  *
  * @author Kimi Liu
  * @version 1.2.8
@@ -48,7 +49,13 @@ import java.util.concurrent.TimeUnit;
  */
 public class CDPSession extends EventEmitter {
 
-    private final Map<Long, Messages> callbacks = new ConcurrentHashMap<>();
+    private final PendingTable callbacks = new PendingTable();
+
+    private final DispatchLane lane;
+
+    private final LongAdder deliveredEvents = new LongAdder();
+
+    private final LongAdder droppedEvents = new LongAdder();
 
     private final String targetType;
 
@@ -61,18 +68,37 @@ public class CDPSession extends EventEmitter {
         this.targetType = targetType;
         this.sessionId = sessionId;
         this.connection = connection;
+        ConnectionOptions options = connection.getConnectionOptions();
+        this.lane = new DispatchLane(WorkerPool::dispatch, options.getLaneCapacity(), options.getLaneOverflowPolicy(), options.getLaneBlockTimeout());
     }
 
+    /**
+     * 会话与目标脱离,之后的发送立即失败
+     * 未完成的回调和断开事件排在分发通道中已有的回应和事件之后,
+     * 已经到达的回应仍能送达,监听者也会先收到之前的事件
+     */
     public void onClosed() {
-        for (Messages callback : callbacks.values()) {
-            callback.setErrorText("Protocol error " + callback.getMethod() + " Target closed.");
-            if (callback.getCountDownLatch() != null) {
-                callback.getCountDownLatch().countDown();
-            }
+        this.onClosed(false);
+    }
+
+    /**
+     * 会话关闭
+     *
+     * @param disposed 链接已经关闭,不会再有回应到达,未完成的回调立即取消
+     */
+    void onClosed(boolean disposed) {
+        Connection connection = this.connection;
+        this.connection = null;
+        if (connection != null) {
+            connection.getProtocolMetrics().sessionClosed(this.sessionId);
+        }
+        if (disposed) {
+            Connection.cancel(this.callbacks);
         }
-        connection = null;
-        callbacks.clear();
-        this.emit(Events.CDPSESSION_DISCONNECTED.getName(), null);
+        this.lane.execute(() -> {
+            Connection.cancel(this.callbacks);
+            this.emit(Events.CDPSESSION_DISCONNECTED.getName(), null);
+        });
     }
 
     /**
@@ -86,84 +112,151 @@ public class CDPSession extends EventEmitter {
      * @return 结果
      */
     public JSONObject send(String method, Map<String, Object> params, boolean isBlock, CountDownLatch outLatch, int timeout) {
+        if (!isBlock && outLatch == null) {
+            return this.send(method, params, false);
+        }
+        CompletableFuture<Envelope> future = this.request(method, params, timeout > 0 ? timeout : Builder.DEFAULT_TIMEOUT);
+        if (outLatch != null) {
+            future.whenComplete((result, error) -> outLatch.countDown());
+        }
+        return isBlock ? Builder.join(future).result(method) : null;
+    }
+
+    /**
+     * cdpsession send message
+     *
+     * @param method  方法
+     * @param params  参数
+     * @param isBlock 是否阻塞，阻塞会等待结果放回
+     * @return result
+     */
+    public JSONObject send(String method, Map<String, Object> params, boolean isBlock) {
+        if (isBlock) {
+            // 在等待的线程上解析结果，不占用读线程
+            return Builder.join(this.request(method, params, this.defaultTimeout())).result(method);
+        }
+        Connection connection = this.connection;
         if (connection == null) {
-            throw new ProtocolException("Protocol error (" + method + "): Session closed. Most likely the" + this.targetType + "has been closed.");
+            throw new ProtocolException(closedMessage(method));
         }
         Messages message = new Messages();
         message.setMethod(method);
         message.setParams(params);
         message.setSessionId(this.sessionId);
-
-        try {
-            if (isBlock) {
-                if (outLatch != null) {
-                    message.setCountDownLatch(outLatch);
-                } else {
-                    CountDownLatch latch = new CountDownLatch(1);
-                    message.setCountDownLatch(latch);
-                }
-                long id = this.connection.rawSend(message, true, this.callbacks);
-                boolean hasResult = message.waitForResult(timeout > 0 ? timeout : Builder.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
-                if (!hasResult) {
-                    throw new TimeoutException("Wait " + method + " for " + (timeout > 0 ? timeout : Builder.DEFAULT_TIMEOUT) + " MILLISECONDS with no response");
-                }
-                if (StringKit.isNotEmpty(message.getErrorText())) {
-                    throw new ProtocolException(message.getErrorText());
-                }
-                return callbacks.remove(id).getResult();
-            } else {
-                if (outLatch != null) {
-                    message.setNeedRemove(true);
-                    message.setCountDownLatch(outLatch);
-                    this.connection.rawSend(message, true, this.callbacks);
-                } else {
-                    this.connection.rawSend(message, false, this.callbacks);
-                }
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        connection.rawSend(message, false, this.callbacks);
         return null;
     }
 
     /**
-     * cdpsession send message
+     * 异步发送消息到浏览器，超时时间取自{@link org.aoju.lancia.option.ConnectionOptions#getSessionWaitingResultTimeout()}
+     *
+     * @param method 方法
+     * @param params 参数
+     * @return 收到回应时完成的future，协议错误以{@link ProtocolException}结束
+     */
+    public CompletableFuture<JSONObject> sendAsync(String method, Map<String, Object> params) {
+        return this.sendAsync(method, params, this.defaultTimeout());
+    }
+
+    /**
+     * 异步发送消息到浏览器，会话关闭时未完成的future以{@link ProtocolException}结束
      *
      * @param method  方法
      * @param params  参数
-     * @param isBlock 是否阻塞，阻塞会等待结果放回
-     * @return result
+     * @param timeout 超时时间，单位是毫秒，小于等于0代表不超时
+     * @return 收到回应时完成的future，超时以{@link org.aoju.lancia.worker.exception.TimeoutException}结束
      */
-    public JSONObject send(String method, Map<String, Object> params, boolean isBlock) {
+    public CompletableFuture<JSONObject> sendAsync(String method, Map<String, Object> params, long timeout) {
+        return this.request(method, params, timeout).thenApply(envelope -> envelope.result(method));
+    }
+
+    /**
+     * 发送类型化命令并等待结果,超时时间取自{@link org.aoju.lancia.option.ConnectionOptions#getSessionWaitingResultTimeout()}
+     *
+     * @param method     方法
+     * @param params     参数,可以为null
+     * @param resultType 结果类型,为null时不解析结果
+     * @param <T>        结果类型
+     * @return 结果
+     */
+    public <T> T invoke(String method, CommandParams params, Class<T> resultType) {
+        return this.invoke(method, params, resultType, this.defaultTimeout());
+    }
+
+    /**
+     * 发送类型化命令并等待结果
+     *
+     * @param method     方法
+     * @param params     参数,可以为null
+     * @param resultType 结果类型,为null时不解析结果
+     * @param timeout    超时时间，单位是毫秒，小于等于0代表不超时
+     * @param <T>        结果类型
+     * @return 结果
+     */
+    public <T> T invoke(String method, CommandParams params, Class<T> resultType, long timeout) {
+        // 在等待的线程上解析结果，不占用读线程
+        return Builder.join(this.request(method, params, timeout)).result(method, resultType);
+    }
+
+    /**
+     * 异步发送类型化命令
+     *
+     * @param method     方法
+     * @param params     参数,可以为null
+     * @param resultType 结果类型,为null时不解析结果
+     * @param <T>        结果类型
+     * @return 收到回应时完成的future
+     */
+    public <T> CompletableFuture<T> invokeAsync(String method, CommandParams params, Class<T> resultType) {
+        return this.request(method, params, this.defaultTimeout()).thenApply(envelope -> envelope.result(method, resultType));
+    }
+
+    /**
+     * 发送类型化命令,不等待回应
+     *
+     * @param method 方法
+     * @param params 参数,可以为null
+     */
+    public void post(String method, CommandParams params) {
+        Connection connection = this.connection;
         if (connection == null) {
-            throw new ProtocolException("Protocol error (" + method + "): Session closed. Most likely the" + this.targetType + "has been closed.");
+            throw new ProtocolException(closedMessage(method));
         }
         Messages message = new Messages();
         message.setMethod(method);
         message.setParams(params);
         message.setSessionId(this.sessionId);
+        connection.rawSend(message, false, this.callbacks);
+    }
 
-        try {
-            if (isBlock) {
-                CountDownLatch latch = new CountDownLatch(1);
-                message.setCountDownLatch(latch);
-                long id = this.connection.rawSend(message, true, this.callbacks);
-                boolean hasResult = message.waitForResult(this.connection.getConnectionOptions().getSessionWaitingResultTimeout(), TimeUnit.MILLISECONDS);
-                if (!hasResult) {
-                    throw new TimeoutException("Wait " + method + " for sessionWaitingResultTimeout:" + (this.connection.getConnectionOptions().getSessionWaitingResultTimeout()) + " MILLISECONDS with no response");
-                }
-                if (StringKit.isNotEmpty(message.getErrorText())) {
-                    throw new ProtocolException(message.getErrorText());
-                }
-                return callbacks.remove(id).getResult();
-            } else {
-                this.connection.rawSend(message, false, this.callbacks);
-            }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    private CompletableFuture<Envelope> request(String method, Object params, long timeout) {
+        Connection connection = this.connection;
+        if (connection == null) {
+            return CompletableFuture.failedFuture(new ProtocolException(closedMessage(method)));
         }
-        return null;
+        Messages message = new Messages();
+        message.setMethod(method);
+        message.setParams(params);
+        message.setSessionId(this.sessionId);
+        return connection.dispatch(message, this.callbacks, timeout);
+    }
+
+    private long defaultTimeout() {
+        Connection connection = this.connection;
+        return connection == null ? 0 : connection.getConnectionOptions().getSessionWaitingResultTimeout();
+    }
+
+    /**
+     * 创建批量命令,命令在{@link Batch#send()}时连续写入
+     *
+     * @return Batch
+     */
+    public Batch batch() {
+        return new Batch(this);
+    }
+
+    private String closedMessage(String method) {
+        return "Protocol error (" + method + "): Session closed. Most likely the " + this.targetType + " has been closed.";
     }
 
     /**
@@ -178,38 +271,30 @@ public class CDPSession extends EventEmitter {
         this.connection.send("Target.detachFromTarget", params, false);
     }
 
-    public void onMessage(JSONObject node) {
-        Long id = node.getLong(Builder.RECV_MESSAGE_ID_PROPERTY);
-        if (id != null) {
-            Messages callback = this.callbacks.get(id);
-            if (callback != null) {
-                try {
-                    JSONObject errNode = node.getJSONObject(Builder.RECV_MESSAGE_ERROR_PROPERTY);
-                    if (errNode != null) {
-                        if (callback.getCountDownLatch() != null) {
-                            callback.setErrorText(Builder.createProtocolError(node));
-                        }
-                    } else {
-                        JSONObject result = node.getJSONObject(Builder.RECV_MESSAGE_RESULT_PROPERTY);
-                        callback.setResult(result);
-                    }
-                } finally {
-                    // 最后把callback都移除掉，免得关闭页面后打印错误
-                    if (callback.getNeedRemove()) {
-                        this.callbacks.remove(id);
-                    }
-                    // 放行等待的线程
-                    if (callback.getCountDownLatch() != null) {
-                        callback.getCountDownLatch().countDown();
-                        callback.setCountDownLatch(null);
-                    }
+    /**
+     * 把消息投递到会话的分发通道,回应与事件保持到达顺序
+     *
+     * @param envelope 消息
+     */
+    public void onMessage(Envelope envelope) {
+        if (envelope.hasId()) {
+            this.lane.execute(() -> {
+                Messages callback = this.callbacks.remove(envelope.getId());
+                if (callback != null) {
+                    Connection.complete(callback, envelope);
                 }
-            }
+            });
         } else {
-            JSONObject paramsNode = node.getJSONObject(Builder.RECV_MESSAGE_PARAMS_PROPERTY);
-            String method = node.getString(Builder.RECV_MESSAGE_METHOD_PROPERTY);
-            if (method != null)
-                this.emit(method, paramsNode);
+            String method = envelope.getMethod();
+            if (method == null) {
+                return;
+            }
+            // 没有监听者的事件不解析
+            if (this.hasListener(method) && this.lane.dispatch(() -> this.emit(method, envelope.params()), true)) {
+                this.deliveredEvents.increment();
+            } else {
+                this.droppedEvents.increment();
+            }
         }
     }
 
@@ -217,6 +302,42 @@ public class CDPSession extends EventEmitter {
         return connection;
     }
 
+    /**
+     * 会话的分发通道,可用于查看积压情况
+     *
+     * @return DispatchLane
+     */
+    public DispatchLane getDispatchLane() {
+        return lane;
+    }
+
+    /**
+     * 会话中交给监听者的事件数
+     *
+     * @return 事件数
+     */
+    public long getDeliveredEventCount() {
+        return deliveredEvents.sum();
+    }
+
+    /**
+     * 会话中未解析就丢弃的事件数,包括没有监听者和分发通道积压时被丢弃的事件
+     *
+     * @return 事件数
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * 会话中正在等待回应的命令数
+     *
+     * @return 命令数
+     */
+    public int getInFlightCount() {
+        return callbacks.size();
+    }
+
     public String getSessionId() {
         return sessionId;
     }
@@ -0,0 +1,140 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import org.aoju.bus.core.lang.Assert;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.socket.ChannelClient;
+import org.aoju.lancia.socket.FrameBuffer;
+import org.aoju.lancia.socket.HandshakeBuilder;
+import org.aoju.lancia.socket.WebSocket;
+import org.aoju.lancia.worker.exception.SocketException;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * 与chromuim通过选择器线程上的非阻塞Socket通信实现
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class ChannelTransport extends ChannelClient implements Transport {
+
+    private Consumer<String> messageConsumer = null;
+
+    private Connection connection = null;
+
+    public ChannelTransport(URI serverURI) {
+        super(serverURI);
+    }
+
+    @Override
+    public void send(String text) {
+        if (this.connection == null) {
+            Logger.warn("Transport connection is null, maybe closed?");
+            return;
+        }
+        Logger.debug(text);
+        super.send(text);
+    }
+
+    @Override
+    public ByteBuffer encode(Messages message) {
+        return encodeText(message);
+    }
+
+    @Override
+    public void sendEncoded(ByteBuffer frame, Messages message) {
+        if (this.connection == null) {
+            Logger.warn("Transport connection is null, maybe closed?");
+            FrameBuffer.release(frame);
+            return;
+        }
+        super.sendEncoded(frame);
+    }
+
+    @Override
+    public void onMessage(String message) {
+        Assert.notNull(this.messageConsumer, "MessageConsumer must be initialized");
+        this.messageConsumer.accept(message);
+    }
+
+    /**
+     * 已绑定{@link Connection}时,文本帧的UTF-8载荷不再解码成String,直接交给连接
+     */
+    @Override
+    public void onWebsocketMessage(WebSocket conn, ByteBuffer payload) throws SocketException {
+        if (this.connection == null) {
+            super.onWebsocketMessage(conn, payload);
+            return;
+        }
+        this.onPayload(payload);
+    }
+
+    @Override
+    public void onPayload(ByteBuffer payload) {
+        Connection connection = this.connection;
+        if (connection == null) {
+            Transport.super.onPayload(payload);
+            return;
+        }
+        connection.onMessage(payload);
+    }
+
+    @Override
+    public void onClose() {
+        this.close();
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        Logger.info("Connection closed by " + (remote ? "remote peer" : "us") + " Code: " + code);
+        this.onClose();
+        if (this.connection != null) {
+            this.connection.dispose();
+        }
+    }
+
+    @Override
+    public void onError(Exception e) {
+        Logger.debug("Websocket runtime exception {}", e.getMessage());
+    }
+
+    @Override
+    public void onOpen(HandshakeBuilder handshake) {
+        Logger.info("Websocket handshake status : " + handshake.getStatus());
+    }
+
+    @Override
+    public void attach(Connection connection) {
+        this.messageConsumer = connection;
+        this.connection = connection;
+    }
+
+}
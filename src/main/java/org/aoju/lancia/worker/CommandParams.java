@@ -0,0 +1,136 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import com.alibaba.fastjson.serializer.JSONSerializable;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeWriter;
+
+import java.lang.reflect.Type;
+
+/**
+ * 类型化命令的参数,序列化时按字段直接写出,不经过Map,也不走反射
+ * 为null的字段不写出,与HashMap参数的行为一致
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public abstract class CommandParams implements JSONSerializable {
+
+    @Override
+    public final void write(JSONSerializer serializer, Object fieldName, Type fieldType, int features) {
+        Fields fields = new Fields(serializer);
+        this.writeFields(fields);
+        fields.end();
+    }
+
+    /**
+     * 写出参数的各个字段
+     *
+     * @param fields 字段写出器
+     */
+    protected abstract void writeFields(Fields fields);
+
+    /**
+     * 字段写出器,第一个字段前写出'{',之后的字段前写出','
+     */
+    protected static final class Fields {
+
+        private final JSONSerializer serializer;
+        private final SerializeWriter out;
+        private char separator = '{';
+
+        Fields(JSONSerializer serializer) {
+            this.serializer = serializer;
+            this.out = serializer.out;
+        }
+
+        public Fields string(String name, String value) {
+            if (value != null) {
+                this.out.writeFieldValue(this.separator, name, value);
+                this.separator = ',';
+            }
+            return this;
+        }
+
+        public Fields integer(String name, int value) {
+            this.out.writeFieldValue(this.separator, name, value);
+            this.separator = ',';
+            return this;
+        }
+
+        public Fields integer(String name, Integer value) {
+            return value == null ? this : this.integer(name, value.intValue());
+        }
+
+        public Fields number(String name, double value) {
+            this.out.writeFieldValue(this.separator, name, value);
+            this.separator = ',';
+            return this;
+        }
+
+        public Fields number(String name, Double value) {
+            return value == null ? this : this.number(name, value.doubleValue());
+        }
+
+        public Fields bool(String name, boolean value) {
+            this.out.writeFieldValue(this.separator, name, value);
+            this.separator = ',';
+            return this;
+        }
+
+        public Fields bool(String name, Boolean value) {
+            return value == null ? this : this.bool(name, value.booleanValue());
+        }
+
+        /**
+         * 写出对象字段,对象按fastjson的规则序列化
+         *
+         * @param name  字段名
+         * @param value 字段值
+         * @return Fields
+         */
+        public Fields object(String name, Object value) {
+            if (value != null) {
+                this.out.write(this.separator);
+                this.out.writeFieldName(name);
+                this.serializer.write(value);
+                this.separator = ',';
+            }
+            return this;
+        }
+
+        void end() {
+            if (this.separator == '{') {
+                this.out.write('{');
+            }
+            this.out.write('}');
+        }
+
+    }
+
+}
@@ -35,13 +35,17 @@ import org.aoju.lancia.events.Events;
 import org.aoju.lancia.kernel.page.TargetInfo;
 import org.aoju.lancia.option.ConnectionOptions;
 import org.aoju.lancia.worker.exception.ProtocolException;
+import org.aoju.lancia.worker.exception.TimeoutException;
+import org.aoju.lancia.worker.metrics.CommandEvent;
+import org.aoju.lancia.worker.metrics.ProtocolMetrics;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 /**
@@ -54,6 +58,12 @@ import java.util.function.Consumer;
 public class Connection extends EventEmitter implements Consumer<String> {
 
     private static final AtomicLong lastId = new AtomicLong(0);
+
+    /**
+     * 关闭时等待入站流水线处理完剩余消息的最长时间,单位是毫秒
+     */
+    private static final long PIPELINE_CLOSE_TIMEOUT = 1000;
+
     /**
      * URL
      */
@@ -66,30 +76,48 @@ public class Connection extends EventEmitter implements Consumer<String> {
     /**
      * 并发
      */
-    private final Map<Long, Messages> callbacks = new ConcurrentHashMap<>();
+    private final PendingTable callbacks = new PendingTable();
 
     private final Map<String, CDPSession> sessions = new ConcurrentHashMap<>();
 
-    private boolean closed;
+    private volatile boolean closed;
+
+    private final LongAdder deliveredEvents = new LongAdder();
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /**
+     * 按方法统计的超时命令数
+     */
+    private final Map<String, LongAdder> timeouts = new ConcurrentHashMap<>();
+
+    /**
+     * 连接及其会话共用的命令超时时间轮,首次登记超时时启动线程
+     */
+    private volatile DeadlineWheel deadlines;
+
+    private volatile ProtocolMetrics metrics = ProtocolMetrics.NOOP;
 
     private ConnectionOptions connectionOptions;
 
+    /**
+     * 入站流水线,解析线程数为0时为空,消息在读线程上直接处理
+     */
+    private volatile InboundPipeline pipeline;
+
     public Connection(String url, Transport transport, int delay) {
         super();
         this.url = url;
         this.transport = transport;
         this.delay = delay;
-        if (this.transport instanceof SocketTransport) {
-            ((SocketTransport) this.transport).addConsumer(this);
-            ((SocketTransport) this.transport).addConnection(this);
-        }
+        this.transport.attach(this);
         // 赋予默认值，调用方使用该构造方法后，需要set connection options
         this.connectionOptions = new ConnectionOptions();
     }
 
     public Connection(String url, Transport transport, int delay, ConnectionOptions connectionOptions) {
         this(url, transport, delay);
-        this.connectionOptions = connectionOptions == null ? new ConnectionOptions() : connectionOptions;
+        this.setConnectionOptions(connectionOptions);
     }
 
     /**
@@ -102,60 +130,171 @@ public class Connection extends EventEmitter implements Consumer<String> {
         return client.getConnection();
     }
 
+    /**
+     * 发送消息到浏览器
+     *
+     * @param method 消息签名中的方法
+     * @param params 消息签名中的参数
+     * @param isWait 是否等待结果返回
+     * @return 结果
+     */
     public JSONObject send(String method, Map<String, Object> params, boolean isWait) {
+        if (isWait) {
+            // 在等待的线程上解析结果，不占用读线程
+            return Builder.join(this.request(method, params, this.defaultTimeout())).result(method);
+        }
         Messages message = new Messages();
         message.setMethod(method);
         message.setParams(params);
-        try {
-            if (isWait) {
-                message.setCountDownLatch(new CountDownLatch(1));
-                long id = rawSend(message, true, this.callbacks);
-                message.waitForResult(0, TimeUnit.MILLISECONDS);
-                if (StringKit.isNotEmpty(message.getErrorText())) {
-                    throw new ProtocolException(message.getErrorText());
-                }
-                return callbacks.remove(id).getResult();
-            } else {
-                rawSend(message, false, this.callbacks);
-                return null;
-            }
-        } catch (InterruptedException e) {
-            throw new ProtocolException(e);
-        }
+        this.rawSend(message, false, this.callbacks);
+        return null;
     }
 
+    /**
+     * 发送消息到浏览器
+     *
+     * @param method   消息签名中的方法
+     * @param params   消息签名中的参数
+     * @param isWait   是否等待结果返回
+     * @param outLatch 收到回应后放行的Countdownlatch
+     * @return 结果
+     */
     public JSONObject send(String method, Map<String, Object> params, boolean isWait, CountDownLatch outLatch) {
+        if (outLatch == null) {
+            return this.send(method, params, isWait);
+        }
+        CompletableFuture<Envelope> future = this.request(method, params, this.defaultTimeout());
+        future.whenComplete((result, error) -> outLatch.countDown());
+        return isWait ? Builder.join(future).result(method) : null;
+    }
+
+    /**
+     * 异步发送消息到浏览器，不会阻塞调用线程，超时时间取自{@link ConnectionOptions#getCommandTimeout()}
+     *
+     * @param method 消息签名中的方法
+     * @param params 消息签名中的参数
+     * @return 收到回应时完成的future，协议错误以{@link ProtocolException}结束
+     */
+    public CompletableFuture<JSONObject> sendAsync(String method, Map<String, Object> params) {
+        return this.sendAsync(method, params, this.defaultTimeout());
+    }
+
+    /**
+     * 异步发送消息到浏览器，不会阻塞调用线程
+     *
+     * @param method  消息签名中的方法
+     * @param params  消息签名中的参数
+     * @param timeout 超时时间，单位是毫秒，小于等于0代表不超时
+     * @return 收到回应时完成的future，超时以{@link TimeoutException}结束
+     */
+    public CompletableFuture<JSONObject> sendAsync(String method, Map<String, Object> params, long timeout) {
+        return this.request(method, params, timeout).thenApply(envelope -> envelope.result(method));
+    }
+
+    private CompletableFuture<Envelope> request(String method, Map<String, Object> params, long timeout) {
         Messages message = new Messages();
         message.setMethod(method);
         message.setParams(params);
-        try {
-            if (isWait) {
-                if (outLatch != null) {
-                    message.setCountDownLatch(outLatch);
-                } else {
-                    message.setCountDownLatch(new CountDownLatch(1));
-                }
-                long id = this.rawSend(message, true, this.callbacks);
-                message.waitForResult(0, TimeUnit.MILLISECONDS);
-                if (StringKit.isNotEmpty(message.getErrorText())) {
-                    throw new ProtocolException(message.getErrorText());
+        return this.dispatch(message, this.callbacks, timeout);
+    }
+
+    private long defaultTimeout() {
+        return this.connectionOptions.getCommandTimeout();
+    }
+
+    /**
+     * 登记回调并发送消息，future完成(回应、超时、取消)后回调会从callbacks中移除
+     * 超时由时间轮处理，到期时先从callbacks中移除回调，再以{@link TimeoutException}结束future
+     *
+     * @param message   发送的消息内容
+     * @param callbacks 对应的callbacks
+     * @param timeout   超时时间，单位是毫秒，小于等于0代表不超时
+     * @return 回应future，结果由调用方用{@link Envelope#result(String)}解析
+     */
+    CompletableFuture<Envelope> dispatch(Messages message, PendingTable callbacks, long timeout) {
+        CompletableFuture<Envelope> future = new CompletableFuture<>();
+        message.setFuture(future);
+        if (this.closed) {
+            future.completeExceptionally(new ProtocolException("Protocol error " + message.getMethod() + " Target closed."));
+            return future;
+        }
+        ProtocolMetrics metrics = this.metrics;
+        if (metrics != ProtocolMetrics.NOOP) {
+            // 在发送前登记，发送失败的命令同样以错误结束；未写出的命令没有发送时间，不计入
+            future.whenComplete((result, error) -> {
+                if (message.getSentAt() != 0) {
+                    metrics.commandCompleted(message.getSessionId(), message.getMethod(),
+                            System.nanoTime() - message.getSentAt(), error != null || result.hasError());
                 }
-                return callbacks.remove(id).getResult();
-            } else {
-                if (outLatch != null) {
-                    message.setNeedRemove(true);
-                    message.setCountDownLatch(outLatch);
-                    this.rawSend(message, true, this.callbacks);
-                } else {
-                    this.rawSend(message, false, this.callbacks);
+            });
+        }
+        try {
+            this.rawSend(message, true, callbacks);
+        } catch (RuntimeException e) {
+            callbacks.remove(message.getId());
+            future.completeExceptionally(new ProtocolException("Protocol error " + message.getMethod() + ": " + e.getMessage(), e));
+            return future;
+        }
+        long id = message.getId();
+        // 发送过程中连接被关闭，回调可能错过了cancel
+        if (this.closed && callbacks.remove(id) != null) {
+            future.completeExceptionally(new ProtocolException("Protocol error " + message.getMethod() + " Target closed."));
+            return future;
+        }
+        if (timeout > 0) {
+            DeadlineWheel.Deadline deadline = this.deadlines().schedule(() -> {
+                if (callbacks.remove(id) != null) {
+                    this.timedOut(message.getMethod(), timeout);
+                    future.completeExceptionally(new TimeoutException("Wait " + message.getMethod() + " for " + timeout + " MILLISECONDS with no response"));
                 }
-            }
+            }, timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> {
+                deadline.cancel();
+                callbacks.remove(id);
+                commitEvent(message, result, error);
+            });
+        } else {
+            future.whenComplete((result, error) -> {
+                callbacks.remove(id);
+                commitEvent(message, result, error);
+            });
+        }
+        return future;
+    }
 
+    /**
+     * 提交命令的JFR事件
+     *
+     * @param message 命令
+     * @param result  浏览器的回应，超时或关闭时为null
+     * @param error   异常
+     */
+    private static void commitEvent(Messages message, Envelope result, Throwable error) {
+        CommandEvent event = message.getEvent();
+        if (event != null) {
+            event.setResponseBytes(result == null ? 0 : result.length());
+            event.setFailed(error != null || result.hasError());
+            event.commit();
+        }
+    }
 
-        } catch (InterruptedException e) {
-            throw new ProtocolException(e);
+    private DeadlineWheel deadlines() {
+        DeadlineWheel wheel = this.deadlines;
+        if (wheel == null) {
+            synchronized (this.timeouts) {
+                wheel = this.deadlines;
+                if (wheel == null) {
+                    wheel = new DeadlineWheel("protocol-deadline-", this.connectionOptions.getDeadlineTick(), DeadlineWheel.DEFAULT_WHEEL_SIZE);
+                    this.deadlines = wheel;
+                }
+            }
         }
-        return null;
+        return wheel;
+    }
+
+    private void timedOut(String method, long timeout) {
+        this.timeouts.computeIfAbsent(method, key -> new LongAdder()).increment();
+        Logger.warn("Protocol command {} timed out after {} ms", method, timeout);
     }
 
     /**
@@ -164,24 +303,133 @@ public class Connection extends EventEmitter implements Consumer<String> {
      * @param callbacks   对应的callbacks
      * @return 发送消息的id
      */
-    public long rawSend(Messages message, boolean putCallback, Map<Long, Messages> callbacks) {
+    public long rawSend(Messages message, boolean putCallback, PendingTable callbacks) {
         long id = lastId.incrementAndGet();
         message.setId(id);
+        // 传输层支持时直接序列化进帧缓冲区，否则退回到字符串
+        ByteBuffer frame = transport.encode(message);
+        String sendMsg = frame == null ? JSON.toJSONString(message) : null;
+        int length = frame == null ? sendMsg.length() : frame.remaining();
+        this.metrics.commandSent(message.getSessionId(), message.getMethod(), length, putCallback);
+        CommandEvent event = new CommandEvent();
+        if (event.isEnabled()) {
+            event.setMethod(message.getMethod());
+            event.setSessionId(message.getSessionId());
+            event.setRequestBytes(length);
+            event.setAwaited(putCallback);
+            event.begin();
+        }
         if (putCallback) {
-            callbacks.put(id, message);
+            message.setSentAt(System.nanoTime());
+            if (event.isEnabled()) {
+                message.setEvent(event);
+            }
+            callbacks.register(message);
+        }
+        if (Logger.isTrace()) {
+            Logger.trace("SEND -> {}", sendMsg != null ? sendMsg : JSON.toJSONString(message));
+        }
+        if (frame == null) {
+            transport.send(sendMsg);
+        } else {
+            transport.sendEncoded(frame, message);
+        }
+        if (!putCallback && event.isEnabled()) {
+            event.commit();
         }
-        String sendMsg = JSON.toJSONString(message);
-        transport.send(sendMsg);
-        Logger.trace("SEND -> " + sendMsg);
         return id;
     }
 
+    /**
+     * 用浏览器的回应完成对应的回调
+     *
+     * @param callback 回调
+     * @param envelope 浏览器的回应
+     */
+    static void complete(Messages callback, Envelope envelope) {
+        if (callback.getFuture() != null) {
+            callback.getFuture().complete(envelope);
+        }
+    }
+
+    /**
+     * 连接或会话关闭时，让所有未完成的回调以异常结束
+     *
+     * @param callbacks 对应的callbacks
+     */
+    static void cancel(PendingTable callbacks) {
+        callbacks.drain(callback -> {
+            if (callback.getFuture() != null) {
+                callback.getFuture().completeExceptionally(new ProtocolException("Protocol error " + callback.getMethod() + " Target closed."));
+            }
+        });
+    }
+
     /**
      * recevie message from browser by websocket
      *
      * @param message 从浏览器接受到的消息
      */
     public void onMessage(String message) {
+        this.slowMo();
+        Logger.trace("<- RECV {}", message);
+        if (StringKit.isEmpty(message)) {
+            return;
+        }
+        Envelope envelope = Envelope.of(message);
+        this.metrics.messageReceived(envelope.getSessionId(), message.length());
+        this.dispatch(envelope);
+    }
+
+    /**
+     * 接收UTF-8编码的消息，不先解码成String，只解析路由需要的字段
+     *
+     * @param payload 从浏览器接受到的消息，只在调用期间有效
+     */
+    public void onMessage(ByteBuffer payload) {
+        this.slowMo();
+        if (!payload.hasRemaining()) {
+            return;
+        }
+        InboundPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.publish(payload);
+            return;
+        }
+        Envelope envelope = Envelope.of(payload);
+        this.prepare(envelope);
+        this.dispatch(envelope);
+    }
+
+    /**
+     * 分发前的准备:记录指标,有监听者的事件预先解析参数
+     * 启用入站流水线时在解析线程上并行执行
+     *
+     * @param envelope 消息
+     */
+    void prepare(Envelope envelope) {
+        String sessionId = envelope.getSessionId();
+        this.metrics.messageReceived(sessionId, envelope.length());
+        if (Logger.isTrace()) {
+            Logger.trace("<- RECV {}", envelope.getText());
+        }
+        String method = envelope.getMethod();
+        if (envelope.hasId() || method == null || this.pipeline == null) {
+            return;
+        }
+        if (sessionId == null) {
+            if (this.hasListener(method)) {
+                envelope.params();
+            }
+        } else {
+            CDPSession session = this.sessions.get(sessionId);
+            if (session != null && session.hasListener(method)) {
+                envelope.params();
+            }
+        }
+    }
+
+    private void slowMo() {
         if (delay > 0) {
             try {
                 Thread.sleep(delay);
@@ -189,26 +437,25 @@ public class Connection extends EventEmitter implements Consumer<String> {
                 Logger.error("slowMo browser Fail:", e);
             }
         }
-        Logger.trace("<- RECV " + message);
-        if (StringKit.isEmpty(message)) {
-            return;
-        }
-        JSONObject readTree = JSON.parseObject(message);
-        String methodNode = readTree.getString(Builder.RECV_MESSAGE_METHOD_PROPERTY);
-        String method = null;
-        if (methodNode != null) {
-            method = methodNode;
-        }
+    }
+
+    /**
+     * 按到达顺序路由消息,会话消息交给对应的会话,回应完成回调,浏览器级别事件交给监听者
+     *
+     * @param envelope 消息
+     */
+    void dispatch(Envelope envelope) {
+        String method = envelope.getMethod();
         if ("Target.attachedToTarget".equals(method)) {
             // attached to target -> page attached to browser
-            JSONObject paramsNode = readTree.getJSONObject(Builder.RECV_MESSAGE_PARAMS_PROPERTY);
+            JSONObject paramsNode = envelope.params();
             String sessionId = paramsNode.getString(Builder.RECV_MESSAGE_SESSION_ID_PROPERTY);
             String typeNode = paramsNode.getJSONObject(Builder.RECV_MESSAGE_TARGETINFO_PROPERTY).getString(Builder.RECV_MESSAGE_TYPE_PROPERTY);
             CDPSession cdpSession = new CDPSession(this, typeNode, sessionId);
             sessions.put(sessionId, cdpSession);
         } else if ("Target.detachedFromTarget".equals(method)) {
             // 页面与浏览器脱离关系
-            JSONObject paramsNode = readTree.getJSONObject(Builder.RECV_MESSAGE_PARAMS_PROPERTY);
+            JSONObject paramsNode = envelope.params();
             String sessionId = paramsNode.getString(Builder.RECV_MESSAGE_SESSION_ID_PROPERTY);
             CDPSession cdpSession = sessions.get(sessionId);
             if (cdpSession != null) {
@@ -216,43 +463,27 @@ public class Connection extends EventEmitter implements Consumer<String> {
                 sessions.remove(sessionId);
             }
         }
-        String objectSessionId = readTree.getString(Builder.RECV_MESSAGE_SESSION_ID_PROPERTY);
-        Long objectId = readTree.getLong(Builder.RECV_MESSAGE_ID_PROPERTY);
+        String objectSessionId = envelope.getSessionId();
         if (objectSessionId != null) {
             // cdpsession消息，当然cdpsession来处理
             CDPSession cdpSession = this.sessions.get(objectSessionId);
             if (cdpSession != null) {
-                cdpSession.onMessage(readTree);
+                cdpSession.onMessage(envelope);
             }
-        } else if (objectId != null) {
+        } else if (envelope.hasId()) {
             // long类型的id,说明属于这次发送消息后接受的回应
-            long id = objectId;
-            Messages callback = this.callbacks.get(id);
+            Messages callback = this.callbacks.remove(envelope.getId());
             if (callback != null) {
-                JSONObject error = readTree.getJSONObject(Builder.RECV_MESSAGE_ERROR_PROPERTY);
-                if (error != null) {
-                    if (callback.getCountDownLatch() != null) {
-                        callback.setErrorText(Builder.createProtocolError(readTree));
-                    }
-                } else {
-                    JSONObject result = readTree.getJSONObject(Builder.RECV_MESSAGE_RESULT_PROPERTY);
-                    callback.setResult(result);
-                }
-
-                // 最后把callback都移除掉，免得关闭页面后打印错误
-                if (callback.getNeedRemove()) {
-                    this.callbacks.remove(id);
-                }
-
-                // 放行等待的线程
-                if (callback.getCountDownLatch() != null) {
-                    callback.getCountDownLatch().countDown();
-                    callback.setCountDownLatch(null);
-                }
+                complete(callback, envelope);
+            }
+        } else if (method != null) {
+            // 是我们监听的事件，没有监听者的事件不解析
+            if (this.hasListener(method)) {
+                this.deliveredEvents.increment();
+                this.emit(method, envelope.params());
+            } else {
+                this.droppedEvents.increment();
             }
-        } else {// 是我们监听的事件，把它事件
-            JSONObject paramsNode = readTree.getJSONObject(Builder.RECV_MESSAGE_PARAMS_PROPERTY);
-            this.emit(method, paramsNode);
         }
     }
 
@@ -295,16 +526,19 @@ public class Connection extends EventEmitter implements Consumer<String> {
     public void onClose() {
         if (this.closed)
             return;
+        InboundPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            // 先把已经收到的消息分发完
+            pipeline.close(PIPELINE_CLOSE_TIMEOUT);
+        }
         this.closed = true;
-        for (Messages callback : this.callbacks.values()) {
-            callback.setErrorText("Protocol error " + callback.getMethod() + " Target closed.");
-            if (callback.getCountDownLatch() != null) {
-                callback.getCountDownLatch().countDown();
-            }
+        cancel(this.callbacks);
+        DeadlineWheel wheel = this.deadlines;
+        if (wheel != null) {
+            wheel.stop();
         }
-        this.callbacks.clear();
         for (CDPSession session : this.sessions.values())
-            session.onClosed();
+            session.onClosed(true);
         this.sessions.clear();
         this.emit(Events.CONNECTION_DISCONNECTED.getName(), null);
     }
@@ -313,12 +547,99 @@ public class Connection extends EventEmitter implements Consumer<String> {
         return closed;
     }
 
+    /**
+     * 积压在入站流水线中尚未分发的消息数,未启用流水线时为0
+     *
+     * @return 消息数
+     */
+    public int getInboundBacklog() {
+        InboundPipeline pipeline = this.pipeline;
+        return pipeline == null ? 0 : pipeline.backlog();
+    }
+
+    /**
+     * 浏览器级别交给监听者的事件数
+     *
+     * @return 事件数
+     */
+    public long getDeliveredEventCount() {
+        return deliveredEvents.sum();
+    }
+
+    /**
+     * 浏览器级别因没有监听者而未解析就丢弃的事件数
+     *
+     * @return 事件数
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * 浏览器级别正在等待回应的命令数,不含会话中的命令
+     *
+     * @return 命令数
+     */
+    public int getInFlightCount() {
+        return callbacks.size();
+    }
+
+    /**
+     * 连接及其会话中超时的命令数,按方法统计
+     *
+     * @return 方法与超时次数, 按方法名排序
+     */
+    public Map<String, Long> getTimeoutCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        this.timeouts.forEach((method, count) -> counts.put(method, count.sum()));
+        return counts;
+    }
+
+    /**
+     * 指定方法超时的命令数
+     *
+     * @param method 方法
+     * @return 超时次数
+     */
+    public long getTimeoutCount(String method) {
+        LongAdder count = this.timeouts.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * 等待到期的命令超时数
+     *
+     * @return 超时数
+     */
+    public int getPendingDeadlineCount() {
+        DeadlineWheel wheel = this.deadlines;
+        return wheel == null ? 0 : wheel.size();
+    }
+
     public ConnectionOptions getConnectionOptions() {
         return connectionOptions;
     }
 
     public void setConnectionOptions(ConnectionOptions connectionOptions) {
         this.connectionOptions = connectionOptions == null ? new ConnectionOptions() : connectionOptions;
+        if (this.transport instanceof ChannelTransport) {
+            TransportFactory.checkLanePolicy(this.connectionOptions);
+        }
+        ProtocolMetrics metrics = this.connectionOptions.getProtocolMetrics();
+        this.metrics = metrics == null ? ProtocolMetrics.NOOP : metrics;
+        int parseWorkers = this.connectionOptions.getParseWorkers();
+        if (parseWorkers > 0 && this.pipeline == null) {
+            this.pipeline = new InboundPipeline(this, parseWorkers, this.connectionOptions.getInboundRingSize());
+        }
+    }
+
+    /**
+     * 协议指标,未配置时为{@link ProtocolMetrics#NOOP}
+     *
+     * @return ProtocolMetrics
+     */
+    public ProtocolMetrics getProtocolMetrics() {
+        return metrics;
     }
 
 }
@@ -0,0 +1,314 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import org.aoju.bus.core.thread.NamedThreadFactory;
+import org.aoju.bus.logger.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 命令超时的时间轮
+ * 登记与取消只是入队,不加锁;桶的维护全部在时间轮自己的线程上进行,每个刻度只处理当前的桶
+ * 取消的超时在下一个刻度从桶中移除,不会像延迟队列那样一直占用内存到原定的时间
+ * 没有待处理的超时时线程挂起,不会空转
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class DeadlineWheel {
+
+    /**
+     * 默认刻度,单位是毫秒
+     */
+    public static final long DEFAULT_TICK = 10;
+
+    /**
+     * 默认桶数
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Deadline> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Deadline> cancelled = new ConcurrentLinkedQueue<>();
+    /**
+     * 尚未到期或取消的超时数,包括还在登记队列中的
+     */
+    private final AtomicInteger count = new AtomicInteger();
+    private final Object lock = new Object();
+    private volatile Thread worker;
+    private volatile boolean stopped;
+    private long startTime;
+    private long tick;
+
+    /**
+     * @param name 线程名前缀
+     */
+    public DeadlineWheel(String name) {
+        this(name, DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param name      线程名前缀
+     * @param tick      刻度,单位是毫秒
+     * @param wheelSize 桶数,向上取整为2的幂
+     */
+    public DeadlineWheel(String name, long tick, int wheelSize) {
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tick > 0 ? tick : DEFAULT_TICK);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 登记超时,到期时在时间轮线程上执行任务,任务应当很快结束
+     *
+     * @param task  到期执行的任务
+     * @param delay 延迟
+     * @param unit  延迟的单位
+     * @return 超时, 可以取消
+     */
+    public Deadline schedule(Runnable task, long delay, TimeUnit unit) {
+        Deadline deadline = new Deadline(this, task, System.nanoTime() + unit.toNanos(delay));
+        if (this.stopped) {
+            deadline.state.set(CANCELLED);
+            return deadline;
+        }
+        this.pending.add(deadline);
+        if (this.count.getAndIncrement() == 0) {
+            this.wakeup();
+        }
+        return deadline;
+    }
+
+    /**
+     * 尚未到期或取消的超时数
+     *
+     * @return 超时数
+     */
+    public int size() {
+        return this.count.get();
+    }
+
+    /**
+     * 停止时间轮,未到期的超时不再执行
+     */
+    public void stop() {
+        this.stopped = true;
+        Thread thread = this.worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void wakeup() {
+        Thread thread = this.worker;
+        if (thread == null) {
+            synchronized (this.lock) {
+                thread = this.worker;
+                if (thread == null) {
+                    if (this.stopped) {
+                        return;
+                    }
+                    this.startTime = System.nanoTime();
+                    thread = new NamedThreadFactory(this.name, true).newThread(this::run);
+                    this.worker = thread;
+                    thread.start();
+                    return;
+                }
+            }
+        }
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!this.stopped) {
+            if (this.count.get() == 0) {
+                LockSupport.park(this);
+                // 挂起期间没有超时,不需要逐个补走空桶
+                this.tick = Math.max(this.tick, (System.nanoTime() - this.startTime) / this.tickNanos);
+                continue;
+            }
+            long deadline = this.startTime + (this.tick + 1) * this.tickNanos;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            this.tick++;
+            this.unlinkCancelled();
+            this.transferPending();
+            this.expire(this.wheel[(int) (this.tick & this.mask)]);
+        }
+        this.pending.clear();
+        this.cancelled.clear();
+    }
+
+    private void unlinkCancelled() {
+        Deadline deadline;
+        while ((deadline = this.cancelled.poll()) != null) {
+            if (deadline.bucket != null) {
+                deadline.bucket.remove(deadline);
+                this.count.decrementAndGet();
+            }
+        }
+    }
+
+    private void transferPending() {
+        // 限制每个刻度转移的数量,避免突发登记拖慢到期处理
+        for (int i = 0; i < 100000; i++) {
+            Deadline deadline = this.pending.poll();
+            if (deadline == null) {
+                return;
+            }
+            if (deadline.state.get() != INIT) {
+                this.count.decrementAndGet();
+                continue;
+            }
+            long target = (deadline.deadline - this.startTime + this.tickNanos - 1) / this.tickNanos;
+            deadline.tick = Math.max(target, this.tick);
+            this.wheel[(int) (deadline.tick & this.mask)].add(deadline);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Deadline deadline = bucket.head;
+        while (deadline != null) {
+            Deadline next = deadline.next;
+            if (deadline.state.get() == CANCELLED) {
+                bucket.remove(deadline);
+                this.count.decrementAndGet();
+            } else if (deadline.tick <= this.tick) {
+                bucket.remove(deadline);
+                this.count.decrementAndGet();
+                if (deadline.state.compareAndSet(INIT, EXPIRED)) {
+                    try {
+                        deadline.task.run();
+                    } catch (Throwable e) {
+                        Logger.error("Deadline task failed", e);
+                    }
+                }
+            }
+            deadline = next;
+        }
+    }
+
+    /**
+     * 时间轮中的一个超时
+     */
+    public static final class Deadline {
+
+        private final DeadlineWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private long tick;
+        private Bucket bucket;
+        private Deadline prev;
+        private Deadline next;
+
+        Deadline(DeadlineWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消超时,已经到期的超时无法取消
+         *
+         * @return true为取消成功
+         */
+        public boolean cancel() {
+            if (this.state.compareAndSet(INIT, CANCELLED)) {
+                this.wheel.cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isExpired() {
+            return this.state.get() == EXPIRED;
+        }
+
+    }
+
+    /**
+     * 双向链表实现的桶,只在时间轮线程上访问
+     */
+    private static final class Bucket {
+
+        private Deadline head;
+        private Deadline tail;
+
+        void add(Deadline deadline) {
+            deadline.bucket = this;
+            if (this.head == null) {
+                this.head = this.tail = deadline;
+            } else {
+                this.tail.next = deadline;
+                deadline.prev = this.tail;
+                this.tail = deadline;
+            }
+        }
+
+        void remove(Deadline deadline) {
+            Deadline next = deadline.next;
+            if (deadline.prev != null) {
+                deadline.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = deadline.prev;
+            }
+            if (deadline == this.head) {
+                this.head = next;
+            }
+            if (deadline == this.tail) {
+                this.tail = deadline.prev;
+            }
+            deadline.prev = null;
+            deadline.next = null;
+            deadline.bucket = null;
+        }
+
+    }
+
+}
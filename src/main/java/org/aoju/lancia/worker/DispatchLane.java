@@ -0,0 +1,257 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.option.LaneOverflowPolicy;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 串行分发通道,投递的任务按顺序逐个执行,同一时刻最多占用执行池的一个线程
+ * 不同通道之间并行,一个通道中的慢任务不会拖住其他通道
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class DispatchLane implements Executor {
+
+    /**
+     * 每次占用执行线程最多连续执行的任务数,超出后重新排队以便让出线程
+     */
+    private static final int DRAIN_BATCH = 64;
+
+    /**
+     * {@link LaneOverflowPolicy#BLOCK}策略下投递方默认的最长等待时间,单位是毫秒
+     */
+    public static final long DEFAULT_BLOCK_TIMEOUT = 1000;
+
+    private final Supplier<? extends Executor> executor;
+
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicInteger peakDepth = new AtomicInteger();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder blockTimeoutCount = new LongAdder();
+
+    /**
+     * 通道腾出空间时通知等待的投递方,只在有等待者时加锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition space = lock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * 积压上限,小于等于0为不限
+     */
+    private final int capacity;
+
+    private final LaneOverflowPolicy policy;
+
+    /**
+     * 投递方等待空间的最长时间,单位是纳秒,超时后照常投递
+     */
+    private final long blockTimeoutNanos;
+
+    /**
+     * 执行当前批次的线程
+     */
+    private volatile Thread runner;
+
+    public DispatchLane(Supplier<? extends Executor> executor) {
+        this(executor, 0, LaneOverflowPolicy.BLOCK);
+    }
+
+    public DispatchLane(Supplier<? extends Executor> executor, int capacity, LaneOverflowPolicy policy) {
+        this(executor, capacity, policy, DEFAULT_BLOCK_TIMEOUT);
+    }
+
+    /**
+     * @param executor 执行池,每次调度时获取,执行池被替换后自动使用新的
+     * @param capacity 积压上限,小于等于0为不限
+     * @param policy       积压达到上限时的处理策略
+     * @param blockTimeout {@link LaneOverflowPolicy#BLOCK}策略下投递方最长等待时间,单位是毫秒,小于等于0为默认值
+     */
+    public DispatchLane(Supplier<? extends Executor> executor, int capacity, LaneOverflowPolicy policy, long blockTimeout) {
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy == null ? LaneOverflowPolicy.BLOCK : policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout > 0 ? blockTimeout : DEFAULT_BLOCK_TIMEOUT);
+    }
+
+    /**
+     * 投递必须执行的任务
+     *
+     * @param task 任务
+     */
+    @Override
+    public void execute(Runnable task) {
+        this.dispatch(task, false);
+    }
+
+    /**
+     * 投递任务
+     *
+     * @param task      任务
+     * @param droppable 积压达到上限且策略为{@link LaneOverflowPolicy#DROP_EVENTS}时是否可以丢弃
+     * @return false为任务被丢弃
+     */
+    public boolean dispatch(Runnable task, boolean droppable) {
+        if (capacity > 0 && depth.get() >= capacity) {
+            if (droppable && LaneOverflowPolicy.DROP_EVENTS == policy) {
+                droppedCount.increment();
+                return false;
+            }
+            // 通道自己的线程投递时不能等待,否则永远腾不出空间
+            if (LaneOverflowPolicy.BLOCK == policy && Thread.currentThread() != runner) {
+                awaitSpace();
+            }
+        }
+        int current = depth.incrementAndGet();
+        if (current > peakDepth.get()) {
+            peakDepth.accumulateAndGet(current, Math::max);
+        }
+        mailbox.add(task);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.get().execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * 等待通道腾出空间,最多等待{@link #blockTimeoutNanos},超时后不再等待,任务照常投递,命令回应不会因此丢失
+     */
+    private void awaitSpace() {
+        long remaining = blockTimeoutNanos;
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (depth.get() >= capacity && scheduled.get()) {
+                if (remaining <= 0) {
+                    blockTimeoutCount.increment();
+                    return;
+                }
+                remaining = space.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void signalSpace() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                space.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        runner = Thread.currentThread();
+        try {
+            Runnable task;
+            for (int i = 0; i < DRAIN_BATCH && (task = mailbox.poll()) != null; i++) {
+                if (depth.decrementAndGet() < capacity) {
+                    signalSpace();
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Logger.error("dispatch lane task failed", e);
+                }
+            }
+        } finally {
+            runner = null;
+            scheduled.set(false);
+            signalSpace();
+        }
+        // 批次结束后仍有积压,或者在重置标记前有任务进来
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.get().execute(this::drain);
+        }
+    }
+
+    /**
+     * 当前积压的任务数
+     *
+     * @return 任务数
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * 积压任务数的峰值
+     *
+     * @return 任务数
+     */
+    public int getPeakDepth() {
+        return peakDepth.get();
+    }
+
+    /**
+     * 因积压被丢弃的事件数
+     *
+     * @return 事件数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 投递方等待空间超时的次数
+     *
+     * @return 次数
+     */
+    public long getBlockTimeoutCount() {
+        return blockTimeoutCount.sum();
+    }
+
+}
@@ -0,0 +1,419 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.aoju.bus.core.lang.Charset;
+import org.aoju.lancia.Builder;
+import org.aoju.lancia.worker.exception.ProtocolException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 浏览器消息的信封
+ * 只扫描顶层字段,取出id、sessionId、method用于路由,
+ * result、params、error只记录位置,由真正的消费方按需解析
+ * 扫描遇到字符串时用indexOf跳过,不会为大体积的截图、响应体构建对象树
+ * 消息可以是String,也可以是UTF-8字节,字节形式的消息直接交给JSON解析器,不再先解码成String
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class Envelope {
+
+    private final String text;
+
+    private final byte[] bytes;
+
+    private long id = -1;
+
+    private String sessionId;
+
+    private String method;
+
+    private int paramsStart = -1;
+    private int paramsEnd = -1;
+    private int resultStart = -1;
+    private int resultEnd = -1;
+    private int errorStart = -1;
+    private int errorEnd = -1;
+
+    /**
+     * 无法扫描时退回完整解析
+     */
+    private JSONObject tree;
+
+    /**
+     * 已解析的事件参数,解析线程预先解析后由分发线程直接使用
+     */
+    private JSONObject params;
+
+    private Envelope(String text, byte[] bytes) {
+        this.text = text;
+        this.bytes = bytes;
+    }
+
+    /**
+     * 扫描消息的顶层字段
+     *
+     * @param text 浏览器消息
+     * @return Envelope
+     */
+    public static Envelope of(String text) {
+        return new Envelope(text, null).init();
+    }
+
+    /**
+     * 扫描UTF-8消息的顶层字段
+     * 传入的缓冲区通常是帧解码器复用的视图,这里复制一份字节,之后不再引用它
+     *
+     * @param payload UTF-8编码的浏览器消息
+     * @return Envelope
+     */
+    public static Envelope of(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new Envelope(null, bytes).init();
+    }
+
+    /**
+     * 扫描UTF-8消息的顶层字段,直接使用传入的数组,调用方之后不能再修改它
+     *
+     * @param bytes UTF-8编码的浏览器消息
+     * @return Envelope
+     */
+    static Envelope adopt(byte[] bytes) {
+        return new Envelope(null, bytes).init();
+    }
+
+    private Envelope init() {
+        try {
+            this.scan();
+        } catch (RuntimeException e) {
+            this.parse();
+        }
+        return this;
+    }
+
+    private void scan() {
+        int i = skipWhitespace(0);
+        expect(i, '{');
+        i = skipWhitespace(i + 1);
+        if (charAt(i) == '}') {
+            return;
+        }
+        while (true) {
+            expect(i, '"');
+            int keyEnd = skipString(i);
+            String key = substring(i + 1, keyEnd - 1);
+            i = skipWhitespace(keyEnd);
+            expect(i, ':');
+            int valueStart = skipWhitespace(i + 1);
+            int valueEnd = skipValue(valueStart);
+            switch (key) {
+                case Builder.RECV_MESSAGE_ID_PROPERTY:
+                    id = Long.parseLong(substring(valueStart, valueEnd));
+                    break;
+                case Builder.RECV_MESSAGE_SESSION_ID_PROPERTY:
+                    sessionId = stringValue(valueStart, valueEnd);
+                    break;
+                case Builder.RECV_MESSAGE_METHOD_PROPERTY:
+                    method = stringValue(valueStart, valueEnd);
+                    break;
+                case Builder.RECV_MESSAGE_PARAMS_PROPERTY:
+                    paramsStart = valueStart;
+                    paramsEnd = valueEnd;
+                    break;
+                case Builder.RECV_MESSAGE_RESULT_PROPERTY:
+                    resultStart = valueStart;
+                    resultEnd = valueEnd;
+                    break;
+                case Builder.RECV_MESSAGE_ERROR_PROPERTY:
+                    errorStart = valueStart;
+                    errorEnd = valueEnd;
+                    break;
+                default:
+                    break;
+            }
+            i = skipWhitespace(valueEnd);
+            char c = charAt(i);
+            if (c == '}') {
+                return;
+            }
+            expect(i, ',');
+            i = skipWhitespace(i + 1);
+        }
+    }
+
+    private void parse() {
+        tree = this.tree();
+        Long value = tree.getLong(Builder.RECV_MESSAGE_ID_PROPERTY);
+        id = value == null ? -1 : value;
+        sessionId = tree.getString(Builder.RECV_MESSAGE_SESSION_ID_PROPERTY);
+        method = tree.getString(Builder.RECV_MESSAGE_METHOD_PROPERTY);
+    }
+
+    /**
+     * 结构字符都是ASCII,UTF-8多字节字符的每个字节都不会与它们相同,因此按字节扫描是安全的
+     */
+    private char charAt(int i) {
+        if (text != null) {
+            return text.charAt(i);
+        }
+        if (i >= bytes.length) {
+            throw new StringIndexOutOfBoundsException(i);
+        }
+        return (char) (bytes[i] & 0xFF);
+    }
+
+    private int indexOfQuote(int from) {
+        if (text != null) {
+            return text.indexOf('"', from);
+        }
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String substring(int start, int end) {
+        return text != null ? text.substring(start, end) : new String(bytes, start, end - start, Charset.UTF_8);
+    }
+
+    private void expect(int i, char c) {
+        if (charAt(i) != c) {
+            throw new IllegalStateException("Unexpected character at " + i);
+        }
+    }
+
+    private int skipWhitespace(int i) {
+        while (Character.isWhitespace(charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param i 起始引号的位置
+     * @return 结束引号之后的位置
+     */
+    private int skipString(int i) {
+        int quote = indexOfQuote(i + 1);
+        while (true) {
+            if (quote < 0) {
+                throw new IllegalStateException("Unterminated string");
+            }
+            int backslashes = 0;
+            for (int j = quote - 1; charAt(j) == '\\'; j--) {
+                backslashes++;
+            }
+            if ((backslashes & 1) == 0) {
+                return quote + 1;
+            }
+            quote = indexOfQuote(quote + 1);
+        }
+    }
+
+    private int skipValue(int i) {
+        char c = charAt(i);
+        if (c == '"') {
+            return skipString(i);
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (true) {
+                c = charAt(i);
+                if (c == '"') {
+                    i = skipString(i);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+        }
+        while (c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            c = charAt(++i);
+        }
+        return i;
+    }
+
+    private String stringValue(int start, int end) {
+        if (charAt(start) != '"') {
+            return null;
+        }
+        String value = substring(start + 1, end - 1);
+        if (value.indexOf('\\') >= 0) {
+            return JSON.parseObject(substring(start, end), String.class);
+        }
+        return value;
+    }
+
+    private JSONObject object(String property, int start, int end) {
+        if (tree != null) {
+            return tree.getJSONObject(property);
+        }
+        if (start < 0 || charAt(start) != '{') {
+            return null;
+        }
+        if (text == null) {
+            return JSON.parseObject(bytes, start, end - start, Charset.UTF_8, JSONObject.class);
+        }
+        return JSON.parseObject(substring(start, end));
+    }
+
+    /**
+     * 命令回应的id,事件没有id时为-1
+     *
+     * @return id
+     */
+    public long getId() {
+        return id;
+    }
+
+    public boolean hasId() {
+        return id >= 0;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public boolean hasError() {
+        return tree != null ? tree.containsKey(Builder.RECV_MESSAGE_ERROR_PROPERTY) : errorStart >= 0;
+    }
+
+    /**
+     * 解析事件参数
+     *
+     * @return params
+     */
+    public JSONObject params() {
+        if (params == null) {
+            params = object(Builder.RECV_MESSAGE_PARAMS_PROPERTY, paramsStart, paramsEnd);
+        }
+        return params;
+    }
+
+    /**
+     * 解析错误信息
+     *
+     * @return error
+     */
+    public JSONObject error() {
+        return object(Builder.RECV_MESSAGE_ERROR_PROPERTY, errorStart, errorEnd);
+    }
+
+    /**
+     * 解析命令结果,回应中带有错误时抛出{@link ProtocolException}
+     *
+     * @param command 对应的命令,用于错误信息
+     * @return result
+     */
+    public JSONObject result(String command) {
+        if (hasError()) {
+            throw new ProtocolException(Builder.createProtocolError(command, error()));
+        }
+        return object(Builder.RECV_MESSAGE_RESULT_PROPERTY, resultStart, resultEnd);
+    }
+
+    /**
+     * 把命令结果直接绑定到指定类型,不经过JSONObject,回应中带有错误时抛出{@link ProtocolException}
+     *
+     * @param command 对应的命令,用于错误信息
+     * @param type    结果类型,为null或Void时不解析
+     * @param <T>     结果类型
+     * @return result
+     */
+    public <T> T result(String command, Class<T> type) {
+        if (hasError()) {
+            throw new ProtocolException(Builder.createProtocolError(command, error()));
+        }
+        if (type == null || type == Void.class) {
+            return null;
+        }
+        if (tree != null) {
+            JSONObject result = tree.getJSONObject(Builder.RECV_MESSAGE_RESULT_PROPERTY);
+            return result == null ? null : result.toJavaObject(type);
+        }
+        if (resultStart < 0 || charAt(resultStart) != '{') {
+            return null;
+        }
+        if (text == null) {
+            return JSON.parseObject(bytes, resultStart, resultEnd - resultStart, Charset.UTF_8, type);
+        }
+        return JSON.parseObject(substring(resultStart, resultEnd), type);
+    }
+
+    /**
+     * 完整解析整个消息
+     *
+     * @return 消息对象
+     */
+    public JSONObject tree() {
+        if (tree == null) {
+            tree = text != null ? JSON.parseObject(text) : JSON.parseObject(bytes, 0, bytes.length, Charset.UTF_8, JSONObject.class);
+        }
+        return tree;
+    }
+
+    /**
+     * 消息长度,字符串形式的消息按字符数计
+     *
+     * @return 长度
+     */
+    public int length() {
+        return text != null ? text.length() : bytes.length;
+    }
+
+    /**
+     * 消息原文,字节形式的消息会在这里解码
+     *
+     * @return 消息原文
+     */
+    public String getText() {
+        return text != null ? text : new String(bytes, Charset.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+
+}
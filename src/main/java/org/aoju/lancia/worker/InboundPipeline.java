@@ -0,0 +1,249 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import org.aoju.bus.core.thread.NamedThreadFactory;
+import org.aoju.bus.logger.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接的入站流水线:读线程 -> 环形缓冲区 -> 解析线程 -> 按序分发
+ * 读线程只把帧的负载复制一次放进预先分配的槽位,多个解析线程并行扫描消息并预先解析有监听者的事件参数,
+ * 解析完成的槽位按到达顺序交给{@link Connection}路由,同一会话的消息不会乱序,
+ * 会话之间的并行由各自的{@link DispatchLane}负责
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+final class InboundPipeline {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static final long STOP_POLL_MILLIS = 100;
+
+    private final Connection connection;
+
+    private final Slot[] ring;
+
+    private final int mask;
+
+    /**
+     * 空闲槽位数,读线程写入前获取,分发后释放
+     */
+    private final Semaphore free;
+
+    /**
+     * 已写入尚未解析的槽位数
+     */
+    private final Semaphore published;
+
+    private final AtomicLong parseCursor = new AtomicLong();
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    private final Thread[] workers;
+
+    /**
+     * 只由读线程访问
+     */
+    private long publishCursor;
+
+    /**
+     * 只由持有{@link #dispatching}的线程修改
+     */
+    private volatile long dispatchCursor;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param connection 连接
+     * @param workers    解析线程数
+     * @param capacity   环形缓冲区槽位数,向上取整为2的幂,小于等于0为默认值
+     */
+    InboundPipeline(Connection connection, int workers, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity <= 0 ? DEFAULT_CAPACITY : capacity, 2) - 1) << 1;
+        this.connection = connection;
+        this.ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            this.ring[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.free = new Semaphore(size);
+        this.published = new Semaphore(0);
+        this.workers = new Thread[workers];
+        NamedThreadFactory factory = new NamedThreadFactory("protocol-parser-", true);
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = factory.newThread(this::parseLoop);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * 读线程调用,把负载复制进下一个槽位,环形缓冲区满时等待
+     *
+     * @param payload UTF-8编码的消息,只在调用期间有效
+     */
+    void publish(ByteBuffer payload) {
+        try {
+            while (!this.free.tryAcquire(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.stopped) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Slot slot = this.ring[(int) (this.publishCursor++ & this.mask)];
+        // Envelope分发后仍引用消息字节,槽位数组不能复用,这里按消息长度分配,解析时直接交给Envelope
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        slot.bytes = bytes;
+        this.published.release();
+    }
+
+    /**
+     * 积压在流水线中尚未分发的消息数
+     *
+     * @return 消息数
+     */
+    int backlog() {
+        return this.ring.length - this.free.availablePermits();
+    }
+
+    /**
+     * 停止解析线程,已写入的消息会先处理完,最多等待timeout毫秒
+     *
+     * @param timeout 超时时间,单位是毫秒
+     */
+    void close(long timeout) {
+        if (this.stopped) {
+            return;
+        }
+        this.stopped = true;
+        for (Thread worker : this.workers) {
+            worker.interrupt();
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Thread worker : this.workers) {
+            if (worker == Thread.currentThread()) {
+                continue;
+            }
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void parseLoop() {
+        while (true) {
+            if (this.stopped) {
+                // 停止后处理完剩余的消息再退出
+                if (!this.published.tryAcquire()) {
+                    return;
+                }
+            } else {
+                try {
+                    this.published.acquire();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            // 每个许可对应一个已写入的槽位,按获取顺序领取序号,领到的槽位一定已写入
+            long sequence = this.parseCursor.getAndIncrement();
+            Slot slot = this.ring[(int) (sequence & this.mask)];
+            Envelope envelope = null;
+            try {
+                envelope = Envelope.adopt(slot.bytes);
+                this.connection.prepare(envelope);
+            } catch (RuntimeException e) {
+                Logger.error("Failed to parse protocol message", e);
+            }
+            slot.envelope = envelope;
+            slot.ready = true;
+            this.drain();
+        }
+    }
+
+    /**
+     * 按序号依次分发已解析的槽位,同一时刻只有一个线程分发,遇到尚未解析完的槽位就停下,
+     * 由解析它的线程接着分发
+     */
+    private void drain() {
+        while (this.dispatching.compareAndSet(false, true)) {
+            try {
+                Slot slot;
+                while ((slot = this.ring[(int) (this.dispatchCursor & this.mask)]).ready) {
+                    Envelope envelope = slot.envelope;
+                    slot.envelope = null;
+                    slot.bytes = null;
+                    slot.ready = false;
+                    this.dispatchCursor++;
+                    this.free.release();
+                    if (envelope != null) {
+                        try {
+                            this.connection.dispatch(envelope);
+                        } catch (RuntimeException e) {
+                            Logger.error("Failed to dispatch protocol message", e);
+                        }
+                    }
+                }
+            } finally {
+                this.dispatching.set(false);
+            }
+            // 放开标记前其他线程可能刚解析完下一个槽位
+            if (!this.ring[(int) (this.dispatchCursor & this.mask)].ready) {
+                return;
+            }
+        }
+    }
+
+    private static final class Slot {
+
+        /**
+         * 消息字节,解析时交给{@link Envelope},分发后释放
+         */
+        private byte[] bytes;
+
+        private Envelope envelope;
+
+        /**
+         * 解析完成,等待分发
+         */
+        private volatile boolean ready;
+
+    }
+
+}
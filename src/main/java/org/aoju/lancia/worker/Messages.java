@@ -25,12 +25,9 @@
  ********************************************************************************/
 package org.aoju.lancia.worker;
 
+import org.aoju.lancia.worker.metrics.CommandEvent;
 
-import com.alibaba.fastjson.JSONObject;
-
-import java.util.Map;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 发送到浏览器的消息
@@ -43,25 +40,29 @@ public class Messages {
 
     private long id;
 
-    private Map<String, Object> params;
+    /**
+     * 参数,可以是Map或{@link CommandParams}
+     */
+    private Object params;
 
     private String method;
 
-    private transient boolean needRemove;
-
-    private transient CountDownLatch countDownLatch;
+    private String sessionId;
 
     /**
-     * 本次发送消息返回的结果
+     * 本次发送消息返回的回应，收到回应或者超时、连接关闭时完成
      */
-    private JSONObject result;
+    private transient CompletableFuture<Envelope> future;
 
-    private String sessionId;
+    /**
+     * 等待回应的命令写入传输层的时间，单位是纳秒，用于统计延迟
+     */
+    private transient long sentAt;
 
     /**
-     * 是否有错误
+     * 开启JFR记录时命令对应的事件，命令结束时提交
      */
-    private String errorText;
+    private transient CommandEvent event;
 
     public long getId() {
         return id;
@@ -71,11 +72,11 @@ public class Messages {
         this.id = id;
     }
 
-    public Map<String, Object> getParams() {
+    public Object getParams() {
         return params;
     }
 
-    public void setParams(Map<String, Object> params) {
+    public void setParams(Object params) {
         this.params = params;
     }
 
@@ -87,22 +88,6 @@ public class Messages {
         this.method = method;
     }
 
-    public CountDownLatch getCountDownLatch() {
-        return countDownLatch;
-    }
-
-    public void setCountDownLatch(CountDownLatch countDownLatch) {
-        this.countDownLatch = countDownLatch;
-    }
-
-    public JSONObject getResult() {
-        return result;
-    }
-
-    public void setResult(JSONObject result) {
-        this.result = result;
-    }
-
     public String getSessionId() {
         return sessionId;
     }
@@ -111,31 +96,28 @@ public class Messages {
         this.sessionId = sessionId;
     }
 
-    public boolean waitForResult(long timeout, TimeUnit timeUnit) throws InterruptedException {
-        if (countDownLatch != null) {
-            if (timeout == 0) {
-                countDownLatch.await();
-                return true;
-            }
-            return countDownLatch.await(timeout, timeUnit);
-        }
-        return true;
+    public CompletableFuture<Envelope> getFuture() {
+        return future;
+    }
+
+    public void setFuture(CompletableFuture<Envelope> future) {
+        this.future = future;
     }
 
-    public String getErrorText() {
-        return errorText;
+    public long getSentAt() {
+        return sentAt;
     }
 
-    public void setErrorText(String errorText) {
-        this.errorText = errorText;
+    public void setSentAt(long sentAt) {
+        this.sentAt = sentAt;
     }
 
-    public boolean getNeedRemove() {
-        return needRemove;
+    public CommandEvent getEvent() {
+        return event;
     }
 
-    public void setNeedRemove(boolean needRemove) {
-        this.needRemove = needRemove;
+    public void setEvent(CommandEvent event) {
+        this.event = event;
     }
 
     @Override
@@ -144,10 +126,7 @@ public class Messages {
                 "id=" + id +
                 ", params=" + params +
                 ", method='" + method + '\'' +
-                ", countDownLatch=" + countDownLatch +
-                ", result=" + result +
                 ", sessionId='" + sessionId + '\'' +
-                ", errorText='" + errorText + '\'' +
                 '}';
     }
 
@@ -0,0 +1,158 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 等待回应的命令表,按命令id定位槽位
+ * 槽位中命令的id即代数,与查找的id不一致时视为未命中;登记时槽位被更早、仍未完成的命令占用,才退回溢出表
+ * 登记与完成都是无锁、不分配对象的O(1)操作
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class PendingTable {
+
+    /**
+     * 默认槽位数
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<Messages> slots;
+
+    private final int mask;
+
+    private final Map<Long, Messages> overflow = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    public PendingTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 槽位数,向上取整为2的幂
+     */
+    public PendingTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 登记等待回应的命令,命令id必须已经分配
+     *
+     * @param message 命令
+     */
+    public void register(Messages message) {
+        long id = message.getId();
+        if (!slots.compareAndSet(index(id), null, message)) {
+            overflow.put(id, message);
+            overflowCount.incrementAndGet();
+        }
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 移除命令,每条命令只会被移除一次
+     *
+     * @param id 命令id
+     * @return 命令, 不存在或已被移除时为null
+     */
+    public Messages remove(long id) {
+        int index = index(id);
+        Messages message = slots.get(index);
+        if (message != null && message.getId() == id) {
+            if (slots.compareAndSet(index, message, null)) {
+                inFlight.decrementAndGet();
+                return message;
+            }
+            return null;
+        }
+        if (overflow.isEmpty()) {
+            return null;
+        }
+        message = overflow.remove(id);
+        if (message != null) {
+            inFlight.decrementAndGet();
+        }
+        return message;
+    }
+
+    /**
+     * 移除所有命令并逐个交给处理器,连接或会话关闭时使用
+     *
+     * @param consumer 处理器
+     */
+    public void drain(Consumer<Messages> consumer) {
+        for (int i = 0; i < slots.length(); i++) {
+            Messages message = slots.getAndSet(i, null);
+            if (message != null) {
+                inFlight.decrementAndGet();
+                consumer.accept(message);
+            }
+        }
+        for (Long id : overflow.keySet()) {
+            Messages message = overflow.remove(id);
+            if (message != null) {
+                inFlight.decrementAndGet();
+                consumer.accept(message);
+            }
+        }
+    }
+
+    /**
+     * 正在等待回应的命令数
+     *
+     * @return 命令数
+     */
+    public int size() {
+        return inFlight.get();
+    }
+
+    /**
+     * 因槽位冲突登记到溢出表的次数
+     *
+     * @return 次数
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private int index(long id) {
+        return (int) id & mask;
+    }
+
+}
@@ -25,17 +25,27 @@
  ********************************************************************************/
 package org.aoju.lancia.worker;
 
+import org.aoju.bus.core.lang.Charset;
 import org.aoju.bus.core.toolkit.IoKit;
 import org.aoju.bus.logger.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
 /**
- * 与chromuim通过pipe通信暂时没实现
+ * 与chromuim通过pipe(--remote-debugging-pipe)通信实现
+ * 浏览器从fd 3读取指令,向fd 4写出消息,每条消息以'\0'结尾
  *
  * @author Kimi Liu
  * @version 1.2.8
@@ -43,65 +53,168 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public class PipeTransport implements Transport {
 
+    /**
+     * 读写缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 超过该大小的拼接缓冲区用完后不再保留
+     */
+    private static final int RETAINED_LIMIT = 1 << 20;
+
+    /**
+     * 通知写线程退出
+     */
+    private static final String EOF = new String();
+
     private final BlockingQueue<String> messageQueue = new LinkedBlockingQueue<>();
-    private final StringBuffer pendingMessage = new StringBuffer();
     private InputStream pipeReader;
-    private OutputStream pipeWriter;
-    private Thread readThread;
-    private Thread writerThread;
+    private WritableByteChannel pipeWriter;
+    private Consumer<String> messageConsumer;
+    private volatile Connection connection;
+    private volatile boolean closed;
 
     public PipeTransport() {
-
+        this.closed = true;
     }
 
     public PipeTransport(InputStream pipeReader, OutputStream pipeWriter) {
+        this(pipeReader, Channels.newChannel(pipeWriter));
+    }
+
+    public PipeTransport(InputStream pipeReader, WritableByteChannel pipeWriter) {
         this.pipeReader = pipeReader;
         this.pipeWriter = pipeWriter;
-        readThread = new Thread(new PipeReaderThread());
+        Thread readThread = new Thread(new PipeReaderThread(), "PipeReadThread");
+        readThread.setDaemon(true);
         readThread.start();
-        writerThread = new Thread(new PipeWriterThread());
+        Thread writerThread = new Thread(new PipeWriterThread(), "PipeWriteThread");
+        writerThread.setDaemon(true);
         writerThread.start();
     }
 
+    @Override
+    public void attach(Connection connection) {
+        this.messageConsumer = connection;
+        this.connection = connection;
+    }
+
     @Override
     public void send(String message) {
-        try {
-            messageQueue.put(message);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        if (this.closed) {
+            Logger.warn("Transport connection is closed, message dropped");
+            return;
         }
+        messageQueue.add(message);
     }
 
     @Override
     public void onMessage(String message) {
+        if (this.messageConsumer != null) {
+            this.messageConsumer.accept(message);
+        }
     }
 
     @Override
-    public void onClose() {
+    public void onPayload(ByteBuffer payload) {
+        Connection connection = this.connection;
+        if (connection == null) {
+            Transport.super.onPayload(payload);
+            return;
+        }
+        connection.onMessage(payload);
+    }
 
+    /**
+     * 管道被浏览器关闭
+     */
+    @Override
+    public void onClose() {
+        if (this.closed) {
+            return;
+        }
+        Logger.info("Pipe closed by remote peer");
+        Connection connection = this.connection;
+        if (connection != null) {
+            connection.dispose();
+        } else {
+            this.close();
+        }
     }
 
     @Override
     public void close() {
-        IoKit.close(pipeWriter);
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        messageQueue.add(EOF);
         IoKit.close(pipeReader);
     }
 
     private class PipeWriterThread implements Runnable {
 
+        private final CharsetEncoder encoder = Charset.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
         @Override
         public void run() {
-            while (true) {
-                try {
-                    //take()方法会阻塞，知道拿到位置
+            try {
+                while (true) {
                     String message = messageQueue.take();
-                    pipeWriter.write(message.getBytes());
-                    pipeWriter.write('\0');
-                    pipeWriter.flush();
-                } catch (InterruptedException | IOException e) {
+                    // 已排队的消息编码进同一个缓冲区,一次写出
+                    while (message != null && message != EOF) {
+                        write(message);
+                        message = messageQueue.poll();
+                    }
+                    flush();
+                    if (message == EOF) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (!closed) {
                     Logger.error("pipe transport send message fail ", e);
                 }
+            } finally {
+                IoKit.close(pipeWriter);
+            }
+        }
+
+        /**
+         * 直接把字符编码进写缓冲区,缓冲区写满时先写出
+         */
+        private void write(String message) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(message);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    flush();
+                }
+            } while (result.isOverflow());
+            while (encoder.flush(buffer).isOverflow()) {
+                flush();
+            }
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) 0);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                pipeWriter.write(buffer);
             }
+            buffer.clear();
         }
     }
 
@@ -110,25 +223,70 @@ public class PipeTransport implements Transport {
      */
     private class PipeReaderThread implements Runnable {
 
+        /**
+         * 跨越多次读取的消息在这里拼接
+         */
+        private byte[] pending = new byte[BUFFER_SIZE];
+
+        private int pendingLength;
+
         @Override
         public void run() {
-            while (true) {
-                try {
-                    int read = pipeReader.read();
-                    if ((char) read != '\0') {
-                        pendingMessage.append((char) read);
-
-                    } else {
-                        String message = pendingMessage.toString();
-                        pendingMessage.delete(0, pendingMessage.length());
-                        onMessage(message);
+            byte[] chunk = new byte[BUFFER_SIZE];
+            int read;
+            try {
+                while ((read = pipeReader.read(chunk)) != -1) {
+                    int start = 0;
+                    for (int i = 0; i < read; i++) {
+                        if (chunk[i] != 0) {
+                            continue;
+                        }
+                        if (pendingLength == 0) {
+                            // 完整落在本次读取内的消息直接交付,不做拷贝
+                            deliver(ByteBuffer.wrap(chunk, start, i - start));
+                        } else {
+                            append(chunk, start, i - start);
+                            deliver(ByteBuffer.wrap(pending, 0, pendingLength));
+                            release();
+                        }
+                        start = i + 1;
+                    }
+                    if (start < read) {
+                        append(chunk, start, read - start);
                     }
-                } catch (IOException e) {
+                }
+            } catch (IOException e) {
+                if (!closed) {
                     Logger.error("read message from chrome error ", e);
                 }
             }
+            onClose();
+        }
+
+        private void deliver(ByteBuffer payload) {
+            try {
+                onPayload(payload);
+            } catch (RuntimeException e) {
+                Logger.error("dispatch message from chrome error ", e);
+            }
+        }
+
+        private void append(byte[] bytes, int offset, int length) {
+            if (pendingLength + length > pending.length) {
+                byte[] grown = new byte[Math.max(pending.length << 1, pendingLength + length)];
+                System.arraycopy(pending, 0, grown, 0, pendingLength);
+                pending = grown;
+            }
+            System.arraycopy(bytes, offset, pending, pendingLength, length);
+            pendingLength += length;
         }
 
+        private void release() {
+            pendingLength = 0;
+            if (pending.length > RETAINED_LIMIT) {
+                pending = new byte[BUFFER_SIZE];
+            }
+        }
     }
 
 }
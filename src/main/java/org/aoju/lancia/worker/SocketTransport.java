@@ -28,10 +28,14 @@ package org.aoju.lancia.worker;
 import org.aoju.bus.core.lang.Assert;
 import org.aoju.bus.logger.Logger;
 import org.aoju.lancia.socket.Draft_6455;
+import org.aoju.lancia.socket.FrameBuffer;
 import org.aoju.lancia.socket.HandshakeBuilder;
 import org.aoju.lancia.socket.SocketClient;
+import org.aoju.lancia.socket.WebSocket;
+import org.aoju.lancia.worker.exception.SocketException;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -70,12 +74,49 @@ public class SocketTransport extends SocketClient implements Transport {
         super.send(text);
     }
 
+    @Override
+    public ByteBuffer encode(Messages message) {
+        return encodeText(message);
+    }
+
+    @Override
+    public void sendEncoded(ByteBuffer frame, Messages message) {
+        if (this.connection == null) {
+            Logger.warn("Transport connection is null, maybe closed?");
+            FrameBuffer.release(frame);
+            return;
+        }
+        super.sendEncoded(frame);
+    }
+
     @Override
     public void onMessage(String message) {
         Assert.notNull(this.messageConsumer, "MessageConsumer must be initialized");
         this.messageConsumer.accept(message);
     }
 
+    /**
+     * 已绑定{@link Connection}时,文本帧的UTF-8载荷不再解码成String,直接交给连接
+     */
+    @Override
+    public void onWebsocketMessage(WebSocket conn, ByteBuffer payload) throws SocketException {
+        if (this.connection == null) {
+            super.onWebsocketMessage(conn, payload);
+            return;
+        }
+        this.onPayload(payload);
+    }
+
+    @Override
+    public void onPayload(ByteBuffer payload) {
+        Connection connection = this.connection;
+        if (connection == null) {
+            Transport.super.onPayload(payload);
+            return;
+        }
+        connection.onMessage(payload);
+    }
+
     @Override
     public void onClose() {
         this.close();
@@ -101,6 +142,12 @@ public class SocketTransport extends SocketClient implements Transport {
         Logger.info("Websocket handshake status : " + handshake.getStatus());
     }
 
+    @Override
+    public void attach(Connection connection) {
+        this.addConsumer(connection);
+        this.addConnection(connection);
+    }
+
     public void addConsumer(Consumer<String> consumer) {
         this.messageConsumer = consumer;
     }
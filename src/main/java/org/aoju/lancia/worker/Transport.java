@@ -25,6 +25,11 @@
  ********************************************************************************/
 package org.aoju.lancia.worker;
 
+import com.alibaba.fastjson.JSON;
+import org.aoju.bus.core.lang.Charset;
+
+import java.nio.ByteBuffer;
+
 /**
  * 网络传送
  *
@@ -34,10 +39,50 @@ package org.aoju.lancia.worker;
  */
 public interface Transport {
 
+    /**
+     * 绑定连接,之后收到的消息交给该连接处理
+     *
+     * @param connection 连接
+     */
+    default void attach(Connection connection) {
+    }
+
     void send(String message);
 
+    /**
+     * 把消息直接序列化成可写出的帧,省去中间字符串
+     * 返回null表示不支持,调用方改用{@link #send(String)}
+     *
+     * @param message 消息
+     * @return 帧或null
+     */
+    default ByteBuffer encode(Messages message) {
+        return null;
+    }
+
+    /**
+     * 发送{@link #encode(Messages)}生成的帧
+     * 默认忽略帧,把消息序列化成字符串后交给{@link #send(String)}
+     *
+     * @param frame   帧
+     * @param message 帧对应的消息
+     */
+    default void sendEncoded(ByteBuffer frame, Messages message) {
+        this.send(JSON.toJSONString(message));
+    }
+
     void onMessage(String message);
 
+    /**
+     * 收到UTF-8编码的消息,缓冲区只在调用期间有效
+     * 默认解码成String后交给{@link #onMessage(String)},能直接处理字节的实现可以覆盖它
+     *
+     * @param payload UTF-8编码的消息
+     */
+    default void onPayload(ByteBuffer payload) {
+        onMessage(Charset.UTF_8.decode(payload.duplicate()).toString());
+    }
+
     void onClose();
 
     void close();
@@ -51,6 +51,9 @@ package org.aoju.lancia.worker;
 
 import org.aoju.bus.core.exception.InternalException;
 import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.option.ConnectionOptions;
+import org.aoju.lancia.option.LaneOverflowPolicy;
+import org.aoju.lancia.option.TransportMode;
 
 import java.net.URI;
 
@@ -70,14 +73,43 @@ public class TransportFactory {
      * @return WebSocketTransport/PipeTransport 客户端
      */
     public static Transport create(String browserWSEndpoint) {
+        return create(browserWSEndpoint, null);
+    }
+
+    /**
+     * 按连接选项中的传输模式创建套接字传输协议
+     *
+     * @param browserWSEndpoint 连接websocket的地址
+     * @param connectionOptions 连接选项,为空时使用默认传输模式
+     * @return WebSocketTransport/PipeTransport 客户端
+     */
+    public static Transport create(String browserWSEndpoint, ConnectionOptions connectionOptions) {
         try {
-            return socket(browserWSEndpoint);
+            if (connectionOptions != null
+                    && TransportMode.SELECTOR == connectionOptions.getTransportMode()
+                    && browserWSEndpoint.startsWith("ws:")) {
+                checkLanePolicy(connectionOptions);
+                return channel(browserWSEndpoint, connectionOptions);
+            }
+            return socket(browserWSEndpoint, connectionOptions);
         } catch (InternalException | InterruptedException e) {
             Logger.warn(e.getMessage());
             return pipe();
         }
     }
 
+    /**
+     * 选择器传输在共用的选择器线程上分发消息,分发通道有上限时只能丢弃事件,不能让选择器线程等待
+     *
+     * @param connectionOptions 连接选项
+     */
+    static void checkLanePolicy(ConnectionOptions connectionOptions) {
+        if (connectionOptions.getLaneCapacity() > 0
+                && LaneOverflowPolicy.DROP_EVENTS != connectionOptions.getLaneOverflowPolicy()) {
+            throw new IllegalArgumentException("Lane overflow policy BLOCK is not supported with TransportMode.SELECTOR, use DROP_EVENTS or an unbounded lane");
+        }
+    }
+
     /**
      * create websocket client
      *
@@ -86,9 +118,54 @@ public class TransportFactory {
      * @throws InterruptedException 被打断异常
      */
     public static Transport socket(String browserWSEndpoint) throws InterruptedException {
+        return socket(browserWSEndpoint, null);
+    }
+
+    /**
+     * create websocket client
+     *
+     * @param browserWSEndpoint 连接websocket的地址
+     * @param connectionOptions 连接选项
+     * @return SocketTransport websocket客户端
+     * @throws InterruptedException 被打断异常
+     */
+    public static Transport socket(String browserWSEndpoint, ConnectionOptions connectionOptions) throws InterruptedException {
         SocketTransport client = new SocketTransport(URI.create(browserWSEndpoint));
         // 保持websokcet连接
         client.setConnectionLostTimeout(0);
+        if (connectionOptions != null) {
+            client.setWriteBatchSize(connectionOptions.getWriteBatchSize());
+        }
+        client.connectBlocking();
+        return client;
+    }
+
+    /**
+     * 创建由共享选择器线程驱动的websocket客户端,仅支持ws协议
+     *
+     * @param browserWSEndpoint 连接websocket的地址
+     * @return ChannelTransport websocket客户端
+     * @throws InterruptedException 被打断异常
+     */
+    public static Transport channel(String browserWSEndpoint) throws InterruptedException {
+        return channel(browserWSEndpoint, null);
+    }
+
+    /**
+     * 创建由共享选择器线程驱动的websocket客户端,仅支持ws协议
+     *
+     * @param browserWSEndpoint 连接websocket的地址
+     * @param connectionOptions 连接选项
+     * @return ChannelTransport websocket客户端
+     * @throws InterruptedException 被打断异常
+     */
+    public static Transport channel(String browserWSEndpoint, ConnectionOptions connectionOptions) throws InterruptedException {
+        ChannelTransport client = new ChannelTransport(URI.create(browserWSEndpoint));
+        // 保持websokcet连接
+        client.setConnectionLostTimeout(0);
+        if (connectionOptions != null) {
+            client.setWriteBatchSize(connectionOptions.getWriteBatchSize());
+        }
         client.connectBlocking();
         return client;
     }
@@ -0,0 +1,287 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker;
+
+import org.aoju.bus.core.thread.NamedThreadFactory;
+import org.aoju.bus.core.toolkit.StringKit;
+import org.aoju.bus.logger.Logger;
+import org.aoju.lancia.Builder;
+import org.aoju.lancia.option.ConnectionOptions;
+import org.aoju.lancia.option.ExecutionMode;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界任务执行池
+ * 内部任务(点击、触摸、协议流读取等)与用户事件处理器分开执行,
+ * 避免用户处理器阻塞在CDP调用上时耗尽内部线程
+ * 队列满后任务不会阻塞提交方(通常是websocket读线程),而是交给新线程执行并计入溢出次数
+ * 会话的分发通道另有专用的执行池,内部任务阻塞在同步调用上时,通道仍能把回应送达
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class WorkerPool extends ThreadPoolExecutor {
+
+    /**
+     * 平台线程模式下的默认队列容量
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 12;
+    /**
+     * 虚拟线程模式下的默认并发数
+     */
+    public static final int DEFAULT_VIRTUAL_WORKERS = 1 << 13;
+
+    private static final Object LOCK = new Object();
+
+    private static volatile WorkerPool INTERNAL;
+    private static volatile WorkerPool USER;
+    private static volatile WorkerPool DISPATCH;
+    /**
+     * 第一次生效的执行池配置,由LOCK保护
+     */
+    private static String CONFIGURED;
+
+    /**
+     * 请求的执行模式
+     */
+    private final ExecutionMode requested;
+    /**
+     * 实际生效的执行模式
+     */
+    private final ExecutionMode mode;
+    private final int capacity;
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final LongAdder overflowCount = new LongAdder();
+
+    private WorkerPool(ThreadFactory factory, ExecutionMode requested, int workers, int capacity) {
+        super(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(capacity), factory, (r, e) -> ((WorkerPool) e).overflow(r));
+        this.requested = requested;
+        this.mode = factory instanceof NamedThreadFactory ? ExecutionMode.PLATFORM : ExecutionMode.VIRTUAL;
+        this.capacity = capacity;
+        this.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 内部任务执行池
+     *
+     * @return WorkerPool
+     */
+    public static WorkerPool internal() {
+        if (INTERNAL == null) {
+            synchronized (LOCK) {
+                if (INTERNAL == null) {
+                    INTERNAL = create("internal-pool-", ExecutionMode.PLATFORM, 0, 0);
+                }
+            }
+        }
+        return INTERNAL;
+    }
+
+    /**
+     * 用户事件处理器执行池
+     *
+     * @return WorkerPool
+     */
+    public static WorkerPool user() {
+        if (USER == null) {
+            synchronized (LOCK) {
+                if (USER == null) {
+                    USER = create("user-pool-", ExecutionMode.PLATFORM, 0, 0);
+                }
+            }
+        }
+        return USER;
+    }
+
+    /**
+     * 会话分发通道的执行池,只运行通道的排空任务
+     * 通道中的回应必须能在内部任务阻塞等待时送达,因此不与{@link #internal()}共用线程
+     *
+     * @return WorkerPool
+     */
+    public static WorkerPool dispatch() {
+        if (DISPATCH == null) {
+            synchronized (LOCK) {
+                if (DISPATCH == null) {
+                    DISPATCH = create("dispatch-pool-", ExecutionMode.PLATFORM, 0, 0);
+                }
+            }
+        }
+        return DISPATCH;
+    }
+
+    /**
+     * 按链接选项配置内部任务与用户事件处理器的执行池,执行池为进程内共享,
+     * 只有第一次指定了执行模式的配置生效,之后不同的配置记录警告后忽略,
+     * 由启动器在创建链接之前调用,未指定执行模式时保持当前配置
+     *
+     * @param options 链接选项
+     */
+    public static void configure(ConnectionOptions options) {
+        if (options == null || options.getExecutionMode() == null) {
+            return;
+        }
+        String config = options.getExecutionMode() + "/" + options.getInternalWorkers() + "/"
+                + options.getUserWorkers() + "/" + options.getWorkerQueueCapacity();
+        synchronized (LOCK) {
+            if (CONFIGURED != null) {
+                if (!CONFIGURED.equals(config)) {
+                    Logger.warn("WorkerPool is already configured as {}, ignoring {}", CONFIGURED, config);
+                }
+                return;
+            }
+            CONFIGURED = config;
+            ExecutionMode mode = options.getExecutionMode();
+            INTERNAL = replace(INTERNAL, "internal-pool-", mode, options.getInternalWorkers(), options.getWorkerQueueCapacity());
+            USER = replace(USER, "user-pool-", mode, options.getUserWorkers(), options.getWorkerQueueCapacity());
+        }
+    }
+
+    private static WorkerPool replace(WorkerPool current, String prefix, ExecutionMode mode, int workers, int capacity) {
+        WorkerPool pool = create(prefix, mode, workers, capacity);
+        if (current != null) {
+            if (current.requested == pool.requested
+                    && current.getMaximumPoolSize() == pool.getMaximumPoolSize()
+                    && current.capacity == pool.capacity) {
+                pool.shutdown();
+                return current;
+            }
+            current.shutdown();
+        }
+        Logger.debug("{} switched to {} mode with {} workers", prefix, pool.mode, pool.getMaximumPoolSize());
+        return pool;
+    }
+
+    private static WorkerPool create(String prefix, ExecutionMode mode, int workers, int capacity) {
+        ThreadFactory factory = threadFactory(prefix, mode);
+        // 默认并发数按实际生效的执行模式取,虚拟线程退回平台线程时不能按虚拟线程的并发数创建平台线程
+        ExecutionMode effective = factory instanceof NamedThreadFactory ? ExecutionMode.PLATFORM : ExecutionMode.VIRTUAL;
+        if (workers <= 0) {
+            workers = defaultWorkers(prefix, effective);
+        }
+        if (capacity <= 0) {
+            capacity = DEFAULT_QUEUE_CAPACITY;
+        }
+        if (effective != mode) {
+            Logger.warn("{} requested {} mode but runs in {} mode with {} workers", prefix, mode, effective, workers);
+        }
+        return new WorkerPool(factory, mode, workers, capacity);
+    }
+
+    private static int defaultWorkers(String prefix, ExecutionMode mode) {
+        if (ExecutionMode.VIRTUAL == mode) {
+            return DEFAULT_VIRTUAL_WORKERS;
+        }
+        String customNum = System.getProperty(Builder.COMMONT_THREAD_POOL_NUM);
+        if (StringKit.isNotEmpty(customNum) && prefix.startsWith("internal")) {
+            return Integer.parseInt(customNum);
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 虚拟线程通过反射获取,编译目标低于JDK 21时同样可用,运行时不支持则退回平台线程
+     *
+     * @param prefix 线程名前缀
+     * @param mode   执行模式
+     * @return 线程工厂
+     */
+    private static ThreadFactory threadFactory(String prefix, ExecutionMode mode) {
+        if (ExecutionMode.VIRTUAL == mode) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                Logger.warn("Virtual threads are not supported by this runtime, {} falls back to platform threads", prefix);
+            }
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command);
+        int depth = getQueue().size();
+        if (depth > peakQueueDepth.get()) {
+            peakQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    private void overflow(Runnable task) {
+        overflowCount.increment();
+        getThreadFactory().newThread(task).start();
+    }
+
+    /**
+     * 实际生效的执行模式
+     *
+     * @return 执行模式
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 当前排队的任务数
+     *
+     * @return 队列深度
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * 历史最大排队任务数
+     *
+     * @return 队列深度峰值
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 队列已满时转交给新线程执行的任务数
+     *
+     * @return 溢出次数
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+}
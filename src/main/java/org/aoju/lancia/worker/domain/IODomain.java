@@ -0,0 +1,114 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.domain;
+
+import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.CommandParams;
+
+/**
+ * IO域的类型化客户端
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class IODomain {
+
+    private final CDPSession client;
+
+    public IODomain(CDPSession client) {
+        this.client = client;
+    }
+
+    /**
+     * IO.read
+     *
+     * @param handle 流的句柄
+     * @return 读到的数据
+     */
+    public ReadResult read(String handle) {
+        return this.client.invoke("IO.read", handle(handle), ReadResult.class);
+    }
+
+    /**
+     * IO.close
+     *
+     * @param handle 流的句柄
+     */
+    public void close(String handle) {
+        this.client.invoke("IO.close", handle(handle), null);
+    }
+
+    private static CommandParams handle(String handle) {
+        return new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("handle", handle);
+            }
+        };
+    }
+
+    /**
+     * IO.read的结果
+     */
+    public static class ReadResult {
+
+        private boolean base64Encoded;
+
+        private String data;
+
+        /**
+         * 回应中没有eof时为null,按流已结束处理
+         */
+        private Boolean eof;
+
+        public boolean getBase64Encoded() {
+            return base64Encoded;
+        }
+
+        public void setBase64Encoded(boolean base64Encoded) {
+            this.base64Encoded = base64Encoded;
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        public void setData(String data) {
+            this.data = data;
+        }
+
+        public Boolean getEof() {
+            return eof;
+        }
+
+        public void setEof(Boolean eof) {
+            this.eof = eof;
+        }
+
+    }
+
+}
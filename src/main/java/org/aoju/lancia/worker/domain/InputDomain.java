@@ -0,0 +1,145 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.domain;
+
+import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.CommandParams;
+
+import java.util.List;
+
+/**
+ * Input域的类型化客户端
+ * 可选参数为null时不发送
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class InputDomain {
+
+    private final CDPSession client;
+
+    public InputDomain(CDPSession client) {
+        this.client = client;
+    }
+
+    /**
+     * Input.dispatchMouseEvent
+     *
+     * @param type        mousePressed、mouseReleased、mouseMoved或mouseWheel
+     * @param x           坐标x
+     * @param y           坐标y
+     * @param modifiers   按下的修饰键
+     * @param button      按键,可选
+     * @param clickCount  点击次数,可选
+     * @param deltaX      滚轮x方向的距离,可选
+     * @param deltaY      滚轮y方向的距离,可选
+     * @param pointerType mouse或pen,可选
+     */
+    public void dispatchMouseEvent(String type, double x, double y, int modifiers, String button, Integer clickCount,
+                                   Double deltaX, Double deltaY, String pointerType) {
+        this.client.invoke("Input.dispatchMouseEvent", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("type", type)
+                        .number("x", x)
+                        .number("y", y)
+                        .integer("modifiers", modifiers)
+                        .string("button", button)
+                        .integer("clickCount", clickCount)
+                        .number("deltaX", deltaX)
+                        .number("deltaY", deltaY)
+                        .string("pointerType", pointerType);
+            }
+        }, null);
+    }
+
+    /**
+     * Input.dispatchKeyEvent
+     *
+     * @param type                  keyDown、keyUp、rawKeyDown或char
+     * @param modifiers             按下的修饰键
+     * @param key                   键名,可选
+     * @param code                  物理键码,可选
+     * @param windowsVirtualKeyCode windows虚拟键码,可选
+     * @param text                  键产生的文本,可选
+     * @param unmodifiedText        不带修饰键时产生的文本,可选
+     * @param autoRepeat            是否自动重复,可选
+     * @param location              键的位置,可选
+     * @param isKeypad              是否小键盘,可选
+     */
+    public void dispatchKeyEvent(String type, int modifiers, String key, String code, Integer windowsVirtualKeyCode,
+                                 String text, String unmodifiedText, Boolean autoRepeat, Integer location, Boolean isKeypad) {
+        this.client.invoke("Input.dispatchKeyEvent", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("type", type)
+                        .integer("modifiers", modifiers)
+                        .string("key", key)
+                        .string("code", code)
+                        .integer("windowsVirtualKeyCode", windowsVirtualKeyCode)
+                        .string("text", text)
+                        .string("unmodifiedText", unmodifiedText)
+                        .bool("autoRepeat", autoRepeat)
+                        .integer("location", location)
+                        .bool("isKeypad", isKeypad);
+            }
+        }, null);
+    }
+
+    /**
+     * Input.insertText
+     *
+     * @param text 插入的文本
+     */
+    public void insertText(String text) {
+        this.client.invoke("Input.insertText", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("text", text);
+            }
+        }, null);
+    }
+
+    /**
+     * Input.dispatchTouchEvent
+     *
+     * @param type        touchStart、touchEnd、touchMove或touchCancel
+     * @param touchPoints 触摸点
+     * @param modifiers   按下的修饰键
+     */
+    public void dispatchTouchEvent(String type, List<?> touchPoints, int modifiers) {
+        this.client.invoke("Input.dispatchTouchEvent", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("type", type)
+                        .object("touchPoints", touchPoints)
+                        .integer("modifiers", modifiers);
+            }
+        }, null);
+    }
+
+}
@@ -0,0 +1,154 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.domain;
+
+import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.CommandParams;
+
+/**
+ * Page域的类型化客户端
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class PageDomain {
+
+    private final CDPSession client;
+
+    public PageDomain(CDPSession client) {
+        this.client = client;
+    }
+
+    /**
+     * Page.navigate,等待浏览器开始导航
+     *
+     * @param url      地址
+     * @param referrer 来源,可选
+     * @param frameId  导航的frame,可选
+     * @param timeout  超时时间，单位是毫秒，小于等于0代表不超时
+     * @return 导航结果
+     */
+    public NavigateResult navigate(String url, String referrer, String frameId, long timeout) {
+        return this.client.invoke("Page.navigate", navigateParams(url, referrer, frameId), NavigateResult.class, timeout);
+    }
+
+    /**
+     * Page.navigate,不等待回应
+     *
+     * @param url      地址
+     * @param referrer 来源,可选
+     * @param frameId  导航的frame,可选
+     */
+    public void navigateNoWait(String url, String referrer, String frameId) {
+        this.client.post("Page.navigate", navigateParams(url, referrer, frameId));
+    }
+
+    private static CommandParams navigateParams(String url, String referrer, String frameId) {
+        return new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("url", url)
+                        .string("referrer", referrer)
+                        .string("frameId", frameId);
+            }
+        };
+    }
+
+    /**
+     * Page.captureScreenshot
+     *
+     * @param format  jpeg、png或webp
+     * @param quality 压缩质量
+     * @param clip    截图区域,可选
+     * @return 截图结果
+     */
+    public CaptureScreenshotResult captureScreenshot(String format, int quality, Object clip) {
+        return this.client.invoke("Page.captureScreenshot", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("format", format)
+                        .integer("quality", quality)
+                        .object("clip", clip);
+            }
+        }, CaptureScreenshotResult.class);
+    }
+
+    /**
+     * Page.navigate的结果
+     */
+    public static class NavigateResult {
+
+        private String frameId;
+
+        private String loaderId;
+
+        private String errorText;
+
+        public String getFrameId() {
+            return frameId;
+        }
+
+        public void setFrameId(String frameId) {
+            this.frameId = frameId;
+        }
+
+        public String getLoaderId() {
+            return loaderId;
+        }
+
+        public void setLoaderId(String loaderId) {
+            this.loaderId = loaderId;
+        }
+
+        public String getErrorText() {
+            return errorText;
+        }
+
+        public void setErrorText(String errorText) {
+            this.errorText = errorText;
+        }
+
+    }
+
+    /**
+     * Page.captureScreenshot的结果
+     */
+    public static class CaptureScreenshotResult {
+
+        private String data;
+
+        public String getData() {
+            return data;
+        }
+
+        public void setData(String data) {
+            this.data = data;
+        }
+
+    }
+
+}
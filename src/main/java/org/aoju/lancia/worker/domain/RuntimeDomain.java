@@ -0,0 +1,124 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.domain;
+
+import org.aoju.lancia.nimble.runtime.ExceptionDetails;
+import org.aoju.lancia.nimble.runtime.RemoteObject;
+import org.aoju.lancia.worker.CDPSession;
+import org.aoju.lancia.worker.CommandParams;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runtime域的类型化客户端
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class RuntimeDomain {
+
+    private final CDPSession client;
+
+    public RuntimeDomain(CDPSession client) {
+        this.client = client;
+    }
+
+    /**
+     * Runtime.evaluate
+     *
+     * @param expression    表达式
+     * @param returnByValue 是否按值返回,可选
+     * @param awaitPromise  是否等待promise完成,可选
+     * @return 执行结果
+     */
+    public EvaluateResult evaluate(String expression, Boolean returnByValue, Boolean awaitPromise) {
+        return this.client.invoke("Runtime.evaluate", new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("expression", expression)
+                        .bool("returnByValue", returnByValue)
+                        .bool("awaitPromise", awaitPromise);
+            }
+        }, EvaluateResult.class);
+    }
+
+    /**
+     * Runtime.releaseObject
+     *
+     * @param objectId 远程对象id
+     */
+    public void releaseObject(String objectId) {
+        this.client.invoke("Runtime.releaseObject", objectId(objectId), null);
+    }
+
+    /**
+     * Runtime.releaseObject,不阻塞调用线程
+     *
+     * @param objectId 远程对象id
+     * @return 收到回应时完成的future
+     */
+    public CompletableFuture<Void> releaseObjectAsync(String objectId) {
+        return this.client.invokeAsync("Runtime.releaseObject", objectId(objectId), Void.class);
+    }
+
+    private static CommandParams objectId(String objectId) {
+        return new CommandParams() {
+            @Override
+            protected void writeFields(Fields fields) {
+                fields.string("objectId", objectId);
+            }
+        };
+    }
+
+    /**
+     * Runtime.evaluate的结果
+     */
+    public static class EvaluateResult {
+
+        private RemoteObject result;
+
+        private ExceptionDetails exceptionDetails;
+
+        public RemoteObject getResult() {
+            return result;
+        }
+
+        public void setResult(RemoteObject result) {
+            this.result = result;
+        }
+
+        public ExceptionDetails getExceptionDetails() {
+            return exceptionDetails;
+        }
+
+        public void setExceptionDetails(ExceptionDetails exceptionDetails) {
+            this.exceptionDetails = exceptionDetails;
+        }
+
+    }
+
+}
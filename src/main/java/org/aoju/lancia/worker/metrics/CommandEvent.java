@@ -0,0 +1,90 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * 一条CDP命令的JFR事件,从写入传输层开始到命令结束
+ * 未开启记录时不登记到命令上,不产生额外开销
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+@Name("org.aoju.lancia.Command")
+@Label("CDP Command")
+@Category({"Lancia", "Protocol"})
+@Description("A Chrome DevTools Protocol command, from write to completion")
+@StackTrace(false)
+public class CommandEvent extends Event {
+
+    @Label("Method")
+    private String method;
+
+    @Label("Session Id")
+    private String sessionId;
+
+    @Label("Request Size")
+    @DataAmount
+    private int requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    private int responseBytes;
+
+    @Label("Awaited")
+    @Description("Whether the command waited for a response")
+    private boolean awaited;
+
+    @Label("Failed")
+    private boolean failed;
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public void setRequestBytes(int requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    public void setResponseBytes(int responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    public void setAwaited(boolean awaited) {
+        this.awaited = awaited;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+}
@@ -0,0 +1,163 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存中的协议指标,按会话和方法分别统计
+ * 会话关闭后该会话的统计被丢弃,浏览器范围的按方法统计一直保留
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class InMemoryProtocolMetrics implements ProtocolMetrics {
+
+    /**
+     * 浏览器级别命令在会话统计中使用的键
+     */
+    public static final String BROWSER = "";
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, MethodStats>> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> bytesReceived = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandSent(String sessionId, String method, int bytes, boolean awaitResponse) {
+        this.stats(this.methods, method).sent(bytes, awaitResponse);
+        this.stats(this.session(sessionId), method).sent(bytes, awaitResponse);
+    }
+
+    @Override
+    public void commandCompleted(String sessionId, String method, long nanos, boolean failed) {
+        this.stats(this.methods, method).completed(nanos, failed);
+        // 会话关闭后才结束的命令不再重建会话统计
+        Map<String, MethodStats> session = this.sessions.get(key(sessionId));
+        if (session != null) {
+            this.stats(session, method).completed(nanos, failed);
+        }
+    }
+
+    @Override
+    public void messageReceived(String sessionId, int bytes) {
+        // 会话关闭后才到达的消息不再重建会话统计
+        if (sessionId != null && !this.sessions.containsKey(sessionId)) {
+            return;
+        }
+        this.bytesReceived.computeIfAbsent(key(sessionId), k -> new LongAdder()).add(bytes);
+    }
+
+    @Override
+    public void sessionClosed(String sessionId) {
+        if (sessionId != null) {
+            this.sessions.remove(sessionId);
+            this.bytesReceived.remove(sessionId);
+        }
+    }
+
+    /**
+     * 浏览器范围内按方法的统计,包括已关闭会话中的命令
+     *
+     * @return 方法与统计, 按方法名排序
+     */
+    public Map<String, MethodStats> getMethodStats() {
+        return new TreeMap<>(this.methods);
+    }
+
+    /**
+     * 指定方法的统计
+     *
+     * @param method 方法
+     * @return 统计, 没有记录时为null
+     */
+    public MethodStats getMethodStats(String method) {
+        return this.methods.get(method);
+    }
+
+    /**
+     * 指定会话按方法的统计
+     *
+     * @param sessionId 会话id,{@link #BROWSER}为浏览器级别的命令
+     * @return 方法与统计, 按方法名排序
+     */
+    public Map<String, MethodStats> getSessionStats(String sessionId) {
+        Map<String, MethodStats> stats = this.sessions.get(key(sessionId));
+        return stats == null ? new TreeMap<>() : new TreeMap<>(stats);
+    }
+
+    /**
+     * 收到的消息字节数,会话从发出第一条命令开始计数,关闭后不再计数
+     *
+     * @param sessionId 会话id,{@link #BROWSER}为浏览器级别的消息
+     * @return 字节数
+     */
+    public long getBytesReceived(String sessionId) {
+        LongAdder bytes = this.bytesReceived.get(key(sessionId));
+        return bytes == null ? 0 : bytes.sum();
+    }
+
+    /**
+     * 收到的消息总字节数,不含已关闭的会话
+     *
+     * @return 字节数
+     */
+    public long getBytesReceived() {
+        long total = 0;
+        for (LongAdder bytes : this.bytesReceived.values()) {
+            total += bytes.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        this.methods.clear();
+        this.sessions.clear();
+        this.bytesReceived.clear();
+    }
+
+    private Map<String, MethodStats> session(String sessionId) {
+        return this.sessions.computeIfAbsent(key(sessionId), k -> new ConcurrentHashMap<>());
+    }
+
+    private MethodStats stats(Map<String, MethodStats> stats, String method) {
+        MethodStats methodStats = stats.get(method);
+        return methodStats != null ? methodStats : stats.computeIfAbsent(method, MethodStats::new);
+    }
+
+    private static String key(String sessionId) {
+        return sessionId == null ? BROWSER : sessionId;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * 一次页面导航的JFR事件,从发送Page.navigate开始到满足waitUntil或失败
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+@Name("org.aoju.lancia.Navigation")
+@Label("Navigation")
+@Category({"Lancia", "Page"})
+@Description("A frame navigation, until the lifecycle events in waitUntil fired or it failed")
+@StackTrace(false)
+public class NavigationEvent extends Event {
+
+    @Label("URL")
+    private String url;
+
+    @Label("Wait Until")
+    private String waitUntil;
+
+    @Label("Timeout")
+    @Timespan(Timespan.MILLISECONDS)
+    private long timeout;
+
+    @Label("Outcome")
+    @Description("success, timeout, or the failure")
+    private String outcome;
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setWaitUntil(String waitUntil) {
+        this.waitUntil = waitUntil;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+}
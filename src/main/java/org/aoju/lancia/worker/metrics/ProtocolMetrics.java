@@ -0,0 +1,84 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+/**
+ * 协议指标的扩展点,连接在发送命令、收到回应和消息时回调
+ * 回调发生在发送线程、读线程或时间轮线程上,实现必须线程安全且足够快
+ * 会话id为null代表浏览器级别的命令
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public interface ProtocolMetrics {
+
+    /**
+     * 不记录任何指标,默认实现
+     */
+    ProtocolMetrics NOOP = new ProtocolMetrics() {
+    };
+
+    /**
+     * 命令已写入传输层
+     *
+     * @param sessionId     会话id
+     * @param method        方法
+     * @param bytes         消息长度,直接编码成帧时为帧的字节数,否则按字符数计,协议消息基本是ASCII
+     * @param awaitResponse 是否等待回应,等待回应的命令之后一定会有一次{@link #commandCompleted}
+     */
+    default void commandSent(String sessionId, String method, int bytes, boolean awaitResponse) {
+    }
+
+    /**
+     * 等待回应的命令结束,包括收到回应、协议错误、超时和连接关闭
+     *
+     * @param sessionId 会话id
+     * @param method    方法
+     * @param nanos     从发送到结束的耗时,单位是纳秒
+     * @param failed    是否以错误结束
+     */
+    default void commandCompleted(String sessionId, String method, long nanos, boolean failed) {
+    }
+
+    /**
+     * 收到浏览器的消息
+     *
+     * @param sessionId 会话id
+     * @param bytes     消息字节数
+     */
+    default void messageReceived(String sessionId, int bytes) {
+    }
+
+    /**
+     * 会话已关闭,实现可以释放该会话的指标
+     *
+     * @param sessionId 会话id
+     */
+    default void sessionClosed(String sessionId) {
+    }
+
+}
@@ -0,0 +1,85 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * 一次截图或生成pdf的JFR事件
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+@Name("org.aoju.lancia.Render")
+@Label("Render")
+@Category({"Lancia", "Page"})
+@Description("A Page.pdf or Page.screenshot call")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("Kind")
+    @Description("pdf or screenshot")
+    private String kind;
+
+    @Label("Format")
+    private String format;
+
+    @Label("Size")
+    @DataAmount
+    private long bytes;
+
+    @Label("Stream Chunks")
+    @Description("IO.read calls used to fetch the result, 0 when it came inline")
+    private int chunks;
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * 记录一块流数据
+     *
+     * @param bytes 数据字节数
+     */
+    public void addChunk(int bytes) {
+        this.chunks++;
+        this.bytes += bytes;
+    }
+
+}
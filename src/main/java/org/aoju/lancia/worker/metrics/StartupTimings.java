@@ -0,0 +1,124 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2022 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ *                                                                               *
+ ********************************************************************************/
+package org.aoju.lancia.worker.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次浏览器启动各阶段的耗时,单位是纳秒,未经历的阶段为0
+ * <p>
+ * spawn: 创建浏览器进程;endpoint: 进程创建后到得知调试地址(pipe连接为打开管道);
+ * connect: 建立到调试地址的传输;firstTarget: 创建Browser并等到第一个page目标
+ *
+ * @author Kimi Liu
+ * @version 1.2.8
+ * @since JDK 1.8+
+ */
+public class StartupTimings {
+
+    /**
+     * 调试地址取自浏览器输出
+     */
+    public static final String SOURCE_STDOUT = "stdout";
+    /**
+     * 调试地址取自user-data-dir中的DevToolsActivePort文件
+     */
+    public static final String SOURCE_ACTIVE_PORT_FILE = "DevToolsActivePort";
+    /**
+     * pipe连接,没有调试地址
+     */
+    public static final String SOURCE_PIPE = "pipe";
+
+    private long spawnNanos;
+    private long endpointNanos;
+    private long connectNanos;
+    private long firstTargetNanos;
+    /**
+     * 调试地址的来源
+     */
+    private String endpointSource;
+
+    public long getSpawnNanos() {
+        return spawnNanos;
+    }
+
+    public void setSpawnNanos(long spawnNanos) {
+        this.spawnNanos = spawnNanos;
+    }
+
+    public long getEndpointNanos() {
+        return endpointNanos;
+    }
+
+    public void setEndpointNanos(long endpointNanos) {
+        this.endpointNanos = endpointNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public void setConnectNanos(long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    public long getFirstTargetNanos() {
+        return firstTargetNanos;
+    }
+
+    public void setFirstTargetNanos(long firstTargetNanos) {
+        this.firstTargetNanos = firstTargetNanos;
+    }
+
+    public String getEndpointSource() {
+        return endpointSource;
+    }
+
+    public void setEndpointSource(String endpointSource) {
+        this.endpointSource = endpointSource;
+    }
+
+    /**
+     * 各阶段耗时之和
+     *
+     * @return 纳秒
+     */
+    public long getTotalNanos() {
+        return spawnNanos + endpointNanos + connectNanos + firstTargetNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "StartupTimings{" +
+                "spawn=" + TimeUnit.NANOSECONDS.toMillis(spawnNanos) + "ms" +
+                ", endpoint=" + TimeUnit.NANOSECONDS.toMillis(endpointNanos) + "ms" +
+                ", connect=" + TimeUnit.NANOSECONDS.toMillis(connectNanos) + "ms" +
+                ", firstTarget=" + TimeUnit.NANOSECONDS.toMillis(firstTargetNanos) + "ms" +
+                ", endpointSource='" + endpointSource + '\'' +
+                '}';
+    }
+
+}